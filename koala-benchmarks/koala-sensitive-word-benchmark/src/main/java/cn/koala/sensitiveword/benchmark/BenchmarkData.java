@@ -0,0 +1,106 @@
+package cn.koala.sensitiveword.benchmark;
+
+import cn.koala.sensitiveword.DefaultRefreshableSensitiveWordFilter;
+import cn.koala.sensitiveword.DefaultRefreshableSensitiveWordFilterChain;
+import cn.koala.sensitiveword.SensitiveWordFilter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 基准测试数据
+ * <p>
+ * 敏感词取自CJK统一汉字, 填充文本取自平假名, 二者不相交, 因此文本的实际命中密度与参数一致
+ *
+ * @author Houtaroy
+ */
+public final class BenchmarkData {
+  public static final long SEED = 20_220_801L;
+  private static final char WORD_FIRST = '一';
+  private static final int WORD_RANGE = 0x9FA5 - WORD_FIRST + 1;
+  private static final char FILLER_FIRST = 'ぁ';
+  private static final int FILLER_RANGE = 0x3096 - FILLER_FIRST + 1;
+  private static final int MIN_WORD_LENGTH = 2;
+  private static final int MAX_WORD_LENGTH = 6;
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * 生成敏感词
+   *
+   * @param size   敏感词数量
+   * @param random 随机数生成器
+   * @return 敏感词列表
+   */
+  public static List<String> words(int size, Random random) {
+    Set<String> result = new LinkedHashSet<>(size << 1);
+    char[] chars = new char[MAX_WORD_LENGTH];
+    while (result.size() < size) {
+      int length = MIN_WORD_LENGTH + random.nextInt(MAX_WORD_LENGTH - MIN_WORD_LENGTH + 1);
+      for (int i = 0; i < length; i++) {
+        chars[i] = (char) (WORD_FIRST + random.nextInt(WORD_RANGE));
+      }
+      result.add(new String(chars, 0, length));
+    }
+    return new ArrayList<>(result);
+  }
+
+  /**
+   * 生成文本
+   *
+   * @param words   敏感词列表
+   * @param length  文本长度
+   * @param density 命中密度, 即每个字符位置开始一个敏感词的概率
+   * @param random  随机数生成器
+   * @return 文本
+   */
+  public static String text(List<String> words, int length, double density, Random random) {
+    StringBuilder result = new StringBuilder(length + MAX_WORD_LENGTH);
+    while (result.length() < length) {
+      if (random.nextDouble() < density) {
+        result.append(words.get(random.nextInt(words.size())));
+      } else {
+        result.append((char) (FILLER_FIRST + random.nextInt(FILLER_RANGE)));
+      }
+    }
+    result.setLength(length);
+    return result.toString();
+  }
+
+  /**
+   * 将敏感词平均分配到多个过滤器并创建过滤链
+   *
+   * @param words       敏感词列表
+   * @param filterCount 过滤器数量
+   * @param merged      是否合并匹配
+   * @return 敏感词过滤链
+   */
+  public static DefaultRefreshableSensitiveWordFilterChain chain(List<String> words, int filterCount,
+                                                                 boolean merged) {
+    List<SensitiveWordFilter> filters = new ArrayList<>(filterCount);
+    for (List<String> partition : partition(words, filterCount)) {
+      filters.add(new DefaultRefreshableSensitiveWordFilter(new InMemorySensitiveWordRepository(partition)));
+    }
+    return new DefaultRefreshableSensitiveWordFilterChain(filters, merged);
+  }
+
+  /**
+   * 将列表平均拆分为多份
+   *
+   * @param list  列表
+   * @param count 份数
+   * @param <T>   元素类型
+   * @return 拆分结果
+   */
+  public static <T> List<List<T>> partition(List<T> list, int count) {
+    List<List<T>> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      result.add(new ArrayList<>(list.subList(list.size() * i / count, list.size() * (i + 1) / count)));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,106 @@
+package cn.koala.sensitiveword.benchmark;
+
+import cn.koala.sensitiveword.DefaultRefreshableSensitiveWordFilterChain;
+import cn.koala.sensitiveword.SensitiveWordFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 敏感词过滤链基准测试
+ * <p>
+ * 敏感词平均分配到filterCount个过滤器, 词库总量不随过滤器数量变化;
+ * 分配速率请使用GC分析器测量: java -jar benchmarks.jar FilterChainBenchmark -prof gc
+ *
+ * @author Houtaroy
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterChainBenchmark {
+  @Param({"1000", "100000", "1000000"})
+  int dictionarySize;
+  @Param({"64", "4096", "262144"})
+  int textLength;
+  @Param({"0", "0.001", "0.01"})
+  double density;
+  @Param({"1", "4"})
+  int filterCount;
+  @Param({"false", "true"})
+  boolean merged;
+
+  DefaultRefreshableSensitiveWordFilterChain chain;
+  String text;
+  char[] chars;
+  int[] ranges;
+
+  /**
+   * 初始化过滤链与文本
+   */
+  @Setup(Level.Trial)
+  public void setup() {
+    Random random = new Random(BenchmarkData.SEED);
+    List<String> words = BenchmarkData.words(dictionarySize, random);
+    chain = BenchmarkData.chain(words, filterCount, merged);
+    text = BenchmarkData.text(words, textLength, density, random);
+    chars = new char[textLength];
+    ranges = new int[textLength];
+  }
+
+  /**
+   * 过滤文本
+   *
+   * @return 过滤后的文本
+   */
+  @Benchmark
+  public String doFilter() {
+    return chain.doFilter(text, SensitiveWordFilter.DEFAULT_REPLACEMENT);
+  }
+
+  /**
+   * 判断文本是否包含敏感词
+   *
+   * @return 是否包含敏感词
+   */
+  @Benchmark
+  public boolean containsAny() {
+    return chain.containsAny(text);
+  }
+
+  /**
+   * 查找敏感词区间
+   *
+   * @return 区间数量
+   */
+  @Benchmark
+  public int find() {
+    return chain.find(text, ranges);
+  }
+
+  /**
+   * 原地替换敏感词
+   *
+   * @return 是否命中敏感词
+   */
+  @Benchmark
+  public boolean mask() {
+    text.getChars(0, textLength, chars, 0);
+    return chain.mask(chars, 0, textLength, SensitiveWordFilter.DEFAULT_REPLACEMENT);
+  }
+}
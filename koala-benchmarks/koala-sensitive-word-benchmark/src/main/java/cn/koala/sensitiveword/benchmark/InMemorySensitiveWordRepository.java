@@ -0,0 +1,77 @@
+package cn.koala.sensitiveword.benchmark;
+
+import cn.koala.sensitiveword.SensitiveWordChanges;
+import cn.koala.sensitiveword.SensitiveWordRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 内存敏感词存储库, 用于基准测试
+ * <p>
+ * 每次调用{@link #toggle(List)}时交替增加或删除同一批敏感词, 版本号加1;
+ * 开启增量查询时, 只返回最近一次变更
+ *
+ * @author Houtaroy
+ */
+public class InMemorySensitiveWordRepository implements SensitiveWordRepository {
+  protected final List<String> words;
+  protected final boolean incremental;
+  protected long version;
+  protected SensitiveWordChanges changes;
+  private boolean toggled;
+
+  /**
+   * 构造函数
+   *
+   * @param words 敏感词列表
+   */
+  public InMemorySensitiveWordRepository(List<String> words) {
+    this(words, false);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param words       敏感词列表
+   * @param incremental 是否支持增量查询
+   */
+  public InMemorySensitiveWordRepository(List<String> words, boolean incremental) {
+    this.words = new ArrayList<>(words);
+    this.incremental = incremental;
+  }
+
+  @Override
+  public List<String> findAll() {
+    return words;
+  }
+
+  @Override
+  public long findLatestVersion() {
+    return version;
+  }
+
+  @Override
+  public Optional<SensitiveWordChanges> findChangedSince(long since) {
+    return incremental && changes != null && since == version - 1 ? Optional.of(changes) : Optional.empty();
+  }
+
+  /**
+   * 交替增加或删除指定的敏感词, 增加的敏感词位于列表末尾
+   *
+   * @param delta 变更的敏感词
+   */
+  public void toggle(List<String> delta) {
+    toggled = !toggled;
+    if (toggled) {
+      words.addAll(delta);
+      changes = new SensitiveWordChanges(version + 1, delta, Collections.emptyList());
+    } else {
+      words.subList(words.size() - delta.size(), words.size()).clear();
+      changes = new SensitiveWordChanges(version + 1, Collections.emptyList(), delta);
+    }
+    version++;
+  }
+}
@@ -0,0 +1,171 @@
+package cn.koala.sensitiveword.benchmark;
+
+import cn.koala.sensitiveword.RefreshableSensitiveWordFilterChain;
+import cn.koala.sensitiveword.SensitiveWordJsonSerializer;
+import cn.koala.web.DataResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.KeyDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.cfg.HandlerInstantiator;
+import com.fasterxml.jackson.databind.cfg.MapperConfig;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.jsontype.TypeIdResolver;
+import com.fasterxml.jackson.databind.jsontype.TypeResolverBuilder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 敏感词Jackson序列化基准测试
+ * <p>
+ * 对比带有{@link SensitiveWordJsonSerializer}的属性与普通属性在{@link DataResponse}序列化中的耗时
+ *
+ * @author Houtaroy
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializerBenchmark {
+  @Param({"1000", "100000"})
+  int dictionarySize;
+  @Param({"10", "100"})
+  int items;
+  @Param({"64", "1024"})
+  int textLength;
+  @Param({"0.01"})
+  double density;
+
+  ObjectMapper objectMapper;
+  DataResponse<List<FilteredMessage>> filtered;
+  DataResponse<List<PlainMessage>> plain;
+
+  /**
+   * 初始化ObjectMapper与响应数据
+   */
+  @Setup
+  public void setup() {
+    Random random = new Random(BenchmarkData.SEED);
+    List<String> words = BenchmarkData.words(dictionarySize, random);
+    objectMapper = new ObjectMapper();
+    objectMapper.setHandlerInstantiator(new FilterChainHandlerInstantiator(BenchmarkData.chain(words, 1, false)));
+    List<FilteredMessage> filteredMessages = new ArrayList<>(items);
+    List<PlainMessage> plainMessages = new ArrayList<>(items);
+    for (int i = 0; i < items; i++) {
+      String content = BenchmarkData.text(words, textLength, density, random);
+      filteredMessages.add(new FilteredMessage(i, content));
+      plainMessages.add(new PlainMessage(i, content));
+    }
+    filtered = DataResponse.ok(filteredMessages);
+    plain = DataResponse.ok(plainMessages);
+  }
+
+  /**
+   * 序列化带有敏感词过滤的响应
+   *
+   * @return JSON
+   * @throws JsonProcessingException 序列化异常
+   */
+  @Benchmark
+  public String filtered() throws JsonProcessingException {
+    return objectMapper.writeValueAsString(filtered);
+  }
+
+  /**
+   * 序列化不带敏感词过滤的响应, 作为基线
+   *
+   * @return JSON
+   * @throws JsonProcessingException 序列化异常
+   */
+  @Benchmark
+  public String plain() throws JsonProcessingException {
+    return objectMapper.writeValueAsString(plain);
+  }
+
+  /**
+   * 带有敏感词过滤的消息
+   *
+   * @author Houtaroy
+   */
+  @Getter
+  @AllArgsConstructor
+  public static class FilteredMessage {
+    private final int id;
+    @JsonSerialize(using = SensitiveWordJsonSerializer.class)
+    private final String content;
+  }
+
+  /**
+   * 不带敏感词过滤的消息
+   *
+   * @author Houtaroy
+   */
+  @Getter
+  @AllArgsConstructor
+  public static class PlainMessage {
+    private final int id;
+    private final String content;
+  }
+
+  /**
+   * 使用指定过滤链创建{@link SensitiveWordJsonSerializer}, 作用同Spring的SpringHandlerInstantiator
+   *
+   * @author Houtaroy
+   */
+  @RequiredArgsConstructor
+  static class FilterChainHandlerInstantiator extends HandlerInstantiator {
+    private final RefreshableSensitiveWordFilterChain filterChain;
+
+    @Override
+    public JsonSerializer<?> serializerInstance(SerializationConfig config, Annotated annotated, Class<?> serClass) {
+      return SensitiveWordJsonSerializer.class.equals(serClass) ? new SensitiveWordJsonSerializer(filterChain) : null;
+    }
+
+    @Override
+    public JsonDeserializer<?> deserializerInstance(DeserializationConfig config, Annotated annotated,
+                                                    Class<?> deserClass) {
+      return null;
+    }
+
+    @Override
+    public KeyDeserializer keyDeserializerInstance(DeserializationConfig config, Annotated annotated,
+                                                   Class<?> keyDeserClass) {
+      return null;
+    }
+
+    @Override
+    public TypeResolverBuilder<?> typeResolverBuilderInstance(MapperConfig<?> config, Annotated annotated,
+                                                              Class<?> builderClass) {
+      return null;
+    }
+
+    @Override
+    public TypeIdResolver typeIdResolverInstance(MapperConfig<?> config, Annotated annotated,
+                                                 Class<?> resolverClass) {
+      return null;
+    }
+  }
+}
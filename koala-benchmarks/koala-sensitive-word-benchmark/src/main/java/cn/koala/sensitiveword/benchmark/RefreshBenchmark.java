@@ -0,0 +1,82 @@
+package cn.koala.sensitiveword.benchmark;
+
+import cn.koala.sensitiveword.DefaultRefreshableSensitiveWordFilter;
+import cn.koala.sensitiveword.DefaultRefreshableSensitiveWordFilterChain;
+import cn.koala.sensitiveword.SensitiveWordFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 敏感词刷新基准测试
+ * <p>
+ * 每次刷新前交替增加或删除changes个敏感词, changes为0时不支持增量查询, 每次刷新重新编译全部敏感词
+ *
+ * @author Houtaroy
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RefreshBenchmark {
+  @Param({"1000", "100000", "1000000"})
+  int dictionarySize;
+  @Param({"0", "100"})
+  int changes;
+  @Param({"1", "4"})
+  int filterCount;
+  @Param({"false", "true"})
+  boolean merged;
+
+  List<InMemorySensitiveWordRepository> repositories;
+  List<List<String>> deltas;
+  DefaultRefreshableSensitiveWordFilterChain chain;
+
+  /**
+   * 初始化过滤链与变更的敏感词
+   */
+  @Setup
+  public void setup() {
+    Random random = new Random(BenchmarkData.SEED);
+    List<String> words = BenchmarkData.words(dictionarySize + Math.max(changes, 1), random);
+    List<String> delta = new ArrayList<>(words.subList(dictionarySize, words.size()));
+    repositories = new ArrayList<>(filterCount);
+    List<SensitiveWordFilter> filters = new ArrayList<>(filterCount);
+    for (List<String> partition : BenchmarkData.partition(words.subList(0, dictionarySize), filterCount)) {
+      InMemorySensitiveWordRepository repository = new InMemorySensitiveWordRepository(partition, changes > 0);
+      repositories.add(repository);
+      filters.add(new DefaultRefreshableSensitiveWordFilter(repository));
+    }
+    deltas = BenchmarkData.partition(delta, filterCount);
+    chain = new DefaultRefreshableSensitiveWordFilterChain(filters, merged);
+  }
+
+  /**
+   * 变更敏感词并刷新过滤链
+   *
+   * @return 快照版本
+   */
+  @Benchmark
+  public long refresh() {
+    for (int i = 0; i < filterCount; i++) {
+      repositories.get(i).toggle(deltas.get(i));
+    }
+    chain.refresh();
+    return chain.getSnapshot().getGeneration();
+  }
+}
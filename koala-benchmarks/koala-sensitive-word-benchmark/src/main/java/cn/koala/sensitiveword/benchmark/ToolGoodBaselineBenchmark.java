@@ -0,0 +1,113 @@
+package cn.koala.sensitiveword.benchmark;
+
+import cn.koala.sensitiveword.SensitiveWordFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import toolgood.words.StringSearchEx2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 原有ToolGood过滤路径的基线基准测试
+ * <p>
+ * 与改造前的实现一致: 每个过滤器持有一个{@link StringSearchEx2}, 过滤链依次调用每个过滤器的Replace,
+ * 刷新时重新设置全部敏感词; 数据与参数同{@link FilterChainBenchmark}和{@link RefreshBenchmark}, 结果可直接对比
+ *
+ * @author Houtaroy
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ToolGoodBaselineBenchmark {
+  @Param({"1000", "100000", "1000000"})
+  int dictionarySize;
+  @Param({"64", "4096", "262144"})
+  int textLength;
+  @Param({"0", "0.001", "0.01"})
+  double density;
+  @Param({"1", "4"})
+  int filterCount;
+
+  List<List<String>> partitions;
+  List<StringSearchEx2> searches;
+  String text;
+
+  /**
+   * 初始化过滤器与文本
+   */
+  @Setup(Level.Trial)
+  public void setup() {
+    Random random = new Random(BenchmarkData.SEED);
+    List<String> words = BenchmarkData.words(dictionarySize, random);
+    partitions = BenchmarkData.partition(words, filterCount);
+    searches = compile(partitions);
+    text = BenchmarkData.text(words, textLength, density, random);
+  }
+
+  /**
+   * 依次使用每个过滤器过滤文本
+   *
+   * @return 过滤后的文本
+   */
+  @Benchmark
+  public String doFilter() {
+    String result = text;
+    for (StringSearchEx2 search : searches) {
+      result = search.Replace(result, SensitiveWordFilter.DEFAULT_REPLACEMENT);
+    }
+    return result;
+  }
+
+  /**
+   * 判断文本是否包含敏感词
+   *
+   * @return 是否包含敏感词
+   */
+  @Benchmark
+  public boolean containsAny() {
+    for (StringSearchEx2 search : searches) {
+      if (search.ContainsAny(text)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 重新设置全部敏感词, 即原有的刷新方式
+   *
+   * @return 过滤器数量
+   */
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public int refresh() {
+    searches = compile(partitions);
+    return searches.size();
+  }
+
+  private static List<StringSearchEx2> compile(List<List<String>> partitions) {
+    List<StringSearchEx2> result = new ArrayList<>(partitions.size());
+    for (List<String> partition : partitions) {
+      StringSearchEx2 search = new StringSearchEx2();
+      search.SetKeywords(partition);
+      result.add(search);
+    }
+    return result;
+  }
+}
@@ -6,30 +6,78 @@ import com.alibaba.druid.wall.spi.MySqlWallProvider;
 import com.alibaba.druid.wall.spi.OracleWallProvider;
 import com.alibaba.druid.wall.spi.PGWallProvider;
 import com.alibaba.druid.wall.spi.SQLServerWallProvider;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnSingleCandidate;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
 
 /**
  * @author Houtaroy
  */
 @Configuration
+@AutoConfigureAfter(name = "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration")
+@EnableConfigurationProperties(DruidProperties.class)
+@Import(MetricsAutoConfig.class)
+@RequiredArgsConstructor
 public class DruidAutoConfig {
+  private final DruidProperties properties;
+
+  /**
+   * 批量注入检查线程池的bean
+   *
+   * @return 批量注入检查线程池
+   */
+  @Bean(destroyMethod = "shutdown")
+  @ConditionalOnMissingBean
+  @ConditionalOnProperty(prefix = "koala.druid.check", name = "parallel", havingValue = "true")
+  public SqlCheckExecutor sqlCheckExecutor() {
+    return new SqlCheckExecutor(properties.getCheck());
+  }
 
   /**
    * SQL服务的bean
    *
+   * @param checkExecutor 批量注入检查线程池
    * @return SQL服务
    */
   @Bean
   @ConditionalOnMissingBean
-  public SqlService sqlService() {
-    InMemorySqlService result = new InMemorySqlService();
+  public SqlService sqlService(ObjectProvider<SqlCheckExecutor> checkExecutor) {
+    InMemorySqlService result = new InMemorySqlService(properties.getMaxTemplates(), properties.getMaxAnalyses(),
+      createWallCheckCache());
     result.addWallProvider(DbType.mysql, new MySqlWallProvider());
     result.addWallProvider(DbType.oracle, new OracleWallProvider());
     result.addWallProvider(DbType.sqlserver, new SQLServerWallProvider());
     result.addWallProvider(DbType.postgresql, new PGWallProvider());
     result.addWallProvider(DbType.db2, new DB2WallProvider());
-    return new InMemorySqlService();
+    checkExecutor.ifAvailable(executor -> result.setCheckExecutor(executor.getExecutor()));
+    return result;
+  }
+
+  /**
+   * 流式SQL查询服务的bean
+   *
+   * @param dataSource 数据源
+   * @param sqlService SQL服务
+   * @return 流式SQL查询服务
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  @ConditionalOnSingleCandidate(DataSource.class)
+  public SqlQueryService sqlQueryService(DataSource dataSource, SqlService sqlService) {
+    return new SqlQueryService(dataSource, sqlService, properties.getFetchSize());
+  }
+
+  private WallCheckCache createWallCheckCache() {
+    WallCacheProperties cache = properties.getWallCache();
+    return cache.isEnabled() ? new WallCheckCache(cache.getMaxSize(), cache.getMaxSqlLength()) : null;
   }
 }
@@ -0,0 +1,56 @@
+package cn.koala.druid;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * SQL服务指标
+ * <p>
+ * koala.druid.wall.cache.*: 开启防火墙检查结果缓存时, 缓存的命中、未命中、淘汰次数与条目数量、命中率
+ *
+ * @author Houtaroy
+ */
+@RequiredArgsConstructor
+public class DruidMetrics implements MeterBinder {
+  private final SqlService sqlService;
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    if (!(sqlService instanceof InMemorySqlService)) {
+      return;
+    }
+    WallCheckCache cache = ((InMemorySqlService) sqlService).getWallCheckCache();
+    if (cache != null) {
+      bindTo(registry, cache);
+    }
+  }
+
+  /**
+   * 注册防火墙检查结果缓存指标
+   *
+   * @param registry 指标注册中心
+   * @param cache    防火墙检查结果缓存
+   */
+  protected void bindTo(MeterRegistry registry, WallCheckCache cache) {
+    FunctionCounter.builder("koala.druid.wall.cache.gets", cache, WallCheckCache::getHits)
+      .tag("result", "hit")
+      .description("防火墙检查结果缓存命中次数")
+      .register(registry);
+    FunctionCounter.builder("koala.druid.wall.cache.gets", cache, WallCheckCache::getMisses)
+      .tag("result", "miss")
+      .description("防火墙检查结果缓存未命中次数")
+      .register(registry);
+    FunctionCounter.builder("koala.druid.wall.cache.evictions", cache, WallCheckCache::getEvictions)
+      .description("防火墙检查结果缓存淘汰次数")
+      .register(registry);
+    Gauge.builder("koala.druid.wall.cache.size", cache, WallCheckCache::size)
+      .description("防火墙检查结果缓存条目数量")
+      .register(registry);
+    Gauge.builder("koala.druid.wall.cache.hit.rate", cache, WallCheckCache::getHitRate)
+      .description("防火墙检查结果缓存命中率")
+      .register(registry);
+  }
+}
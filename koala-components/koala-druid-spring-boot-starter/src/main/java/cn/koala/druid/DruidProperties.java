@@ -0,0 +1,20 @@
+package cn.koala.druid;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
+
+/**
+ * @author Houtaroy
+ */
+@ConfigurationProperties("koala.druid")
+@Data
+public class DruidProperties {
+  private int maxTemplates = InMemorySqlService.DEFAULT_MAX_TEMPLATES;
+  private int maxAnalyses = InMemorySqlService.DEFAULT_MAX_ANALYSES;
+  private int fetchSize = SqlQueryService.DEFAULT_FETCH_SIZE;
+  @NestedConfigurationProperty
+  private WallCacheProperties wallCache = new WallCacheProperties();
+  @NestedConfigurationProperty
+  private SqlCheckProperties check = new SqlCheckProperties();
+}
@@ -0,0 +1,25 @@
+package cn.koala.druid;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Druid指标自动配置
+ *
+ * @author Houtaroy
+ */
+@ConditionalOnClass(MeterRegistry.class)
+public class MetricsAutoConfig {
+
+  /**
+   * SQL服务指标的Bean
+   *
+   * @param sqlService SQL服务
+   * @return SQL服务指标
+   */
+  @Bean
+  public DruidMetrics druidMetrics(SqlService sqlService) {
+    return new DruidMetrics(sqlService);
+  }
+}
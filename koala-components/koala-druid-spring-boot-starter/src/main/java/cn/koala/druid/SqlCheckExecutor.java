@@ -0,0 +1,51 @@
+package cn.koala.druid;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量注入检查的有界线程池, 空闲线程超时后退出, 队列已满时由调用线程执行
+ * <p>
+ * 本身不实现{@link Executor}, 注册为Bean时不会替代Spring Boot默认的任务线程池
+ *
+ * @author Houtaroy
+ */
+public class SqlCheckExecutor {
+  private static final long KEEP_ALIVE_SECONDS = 60L;
+
+  private final ThreadPoolExecutor executor;
+
+  /**
+   * 构造函数
+   *
+   * @param properties 检查配置
+   */
+  public SqlCheckExecutor(SqlCheckProperties properties) {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("koala-sql-check-");
+    threadFactory.setDaemon(true);
+    this.executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(), KEEP_ALIVE_SECONDS,
+      TimeUnit.SECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()), threadFactory,
+      new ThreadPoolExecutor.CallerRunsPolicy());
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * 获取线程池
+   *
+   * @return 线程池
+   */
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  /**
+   * 关闭线程池
+   */
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,15 @@
+package cn.koala.druid;
+
+import lombok.Data;
+
+/**
+ * @author Houtaroy
+ */
+@Data
+public class SqlCheckProperties {
+  public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+  private boolean parallel = false;
+  private int threads = Runtime.getRuntime().availableProcessors();
+  private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+}
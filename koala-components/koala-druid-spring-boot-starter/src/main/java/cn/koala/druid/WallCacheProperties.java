@@ -0,0 +1,13 @@
+package cn.koala.druid;
+
+import lombok.Data;
+
+/**
+ * @author Houtaroy
+ */
+@Data
+public class WallCacheProperties {
+  private boolean enabled = true;
+  private int maxSize = WallCheckCache.DEFAULT_MAX_SIZE;
+  private int maxSqlLength = WallCheckCache.DEFAULT_MAX_SQL_LENGTH;
+}
@@ -0,0 +1,28 @@
+package cn.koala.mqtt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Mqtt消息编解码器自动配置
+ *
+ * @author Houtaroy
+ */
+@ConditionalOnClass(ObjectMapper.class)
+public class CodecAutoConfig {
+
+  /**
+   * 基于Jackson的mqtt消息编解码器的bean
+   *
+   * @param objectMapper ObjectMapper, 不存在时使用默认配置
+   * @return mqtt消息编解码器
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  public MqttPayloadCodec mqttPayloadCodec(ObjectProvider<ObjectMapper> objectMapper) {
+    return new JacksonMqttPayloadCodec(objectMapper.getIfAvailable(ObjectMapper::new));
+  }
+}
@@ -0,0 +1,37 @@
+package cn.koala.mqtt;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.integration.mqtt.outbound.MqttPahoMessageHandler;
+
+/**
+ * Mqtt指标自动配置
+ *
+ * @author Houtaroy
+ */
+@ConditionalOnClass(MeterRegistry.class)
+public class MetricsAutoConfig {
+
+  /**
+   * Mqtt指标的bean
+   *
+   * @param adapter    mqtt入站适配器
+   * @param group      mqtt入站适配器组
+   * @param handler    mqtt出站处理器
+   * @param publisher  mqtt异步发布者
+   * @param properties mqtt配置
+   * @return Mqtt指标
+   */
+  @Bean
+  public MqttMetrics mqttMetrics(MqttAdapter adapter, MqttAdapterGroup group,
+                                 ObjectProvider<MqttPahoMessageHandler> handler,
+                                 ObjectProvider<MqttPublisher> publisher, MqttProperties properties) {
+    MqttPahoMessageHandler current = handler.getIfAvailable();
+    return new MqttMetrics(
+      adapter, group, current instanceof MqttOutboundHandler ? (MqttOutboundHandler) current : null,
+      publisher.getIfAvailable(), properties.getMetricTopics()
+    );
+  }
+}
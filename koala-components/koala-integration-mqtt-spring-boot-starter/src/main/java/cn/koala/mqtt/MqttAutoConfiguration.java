@@ -2,10 +2,13 @@ package cn.koala.mqtt;
 
 import lombok.RequiredArgsConstructor;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.integration.annotation.ServiceActivator;
 import org.springframework.integration.channel.DirectChannel;
 import org.springframework.integration.gateway.GatewayProxyFactoryBean;
@@ -14,7 +17,14 @@ import org.springframework.integration.mqtt.core.MqttPahoClientFactory;
 import org.springframework.integration.mqtt.outbound.MqttPahoMessageHandler;
 import org.springframework.integration.mqtt.support.DefaultPahoMessageConverter;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -23,10 +33,12 @@ import java.util.UUID;
  */
 @Configuration
 @EnableConfigurationProperties(MqttProperties.class)
+@Import({CodecAutoConfig.class, MetricsAutoConfig.class})
 @RequiredArgsConstructor
 public class MqttAutoConfiguration {
 
   private final MqttProperties properties;
+  private final ObjectProvider<MqttOutboundBuffer> outboundBuffer;
 
   /**
    * mqtt客户端工厂的bean
@@ -55,6 +67,20 @@ public class MqttAutoConfiguration {
     return new DirectChannel();
   }
 
+  /**
+   * mqtt主题路由器的bean, 订阅入站通道
+   *
+   * @return mqtt主题路由器
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  @ConditionalOnProperty(prefix = "spring.mqtt", name = "router-enabled", havingValue = "true")
+  public MqttTopicRouter mqttTopicRouter() {
+    MqttTopicRouter result = new MqttTopicRouter();
+    ((SubscribableChannel) mqttInboundChannel()).subscribe(result);
+    return result;
+  }
+
   /**
    * mqtt入站适配器的bean
    *
@@ -64,13 +90,51 @@ public class MqttAutoConfiguration {
   @Bean
   @ConditionalOnMissingBean
   public MqttAdapter mqttAdapter(MqttPahoClientFactory factory) {
+    return createAdapter(factory);
+  }
+
+  /**
+   * mqtt入站适配器组的bean, 包含除mqttAdapter之外的其余consumers-1个入站适配器
+   *
+   * @param factory mqtt客户端工厂
+   * @return mqtt入站适配器组
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  public MqttAdapterGroup mqttAdapterGroup(MqttPahoClientFactory factory) {
+    Assert.state(properties.getConsumers() <= 1 || StringUtils.hasText(properties.getSharedGroup()),
+      "多个入站适配器需配置共享订阅组spring.mqtt.shared-group");
+    List<MqttAdapter> adapters = new ArrayList<>();
+    for (int i = 1; i < properties.getConsumers(); i++) {
+      adapters.add(createAdapter(factory));
+    }
+    return new MqttAdapterGroup(adapters);
+  }
+
+  /**
+   * 创建mqtt入站适配器
+   *
+   * @param factory mqtt客户端工厂
+   * @return mqtt入站适配器
+   */
+  protected MqttAdapter createAdapter(MqttPahoClientFactory factory) {
     MqttAdapter adapter = new MqttAdapter(
       String.format("%s-adapter-%s", properties.getClientId(), UUID.randomUUID()),
       factory, properties.getTopics()
     );
-    adapter.setConverter(new DefaultPahoMessageConverter());
+    DefaultPahoMessageConverter converter = new DefaultPahoMessageConverter();
+    converter.setPayloadAsBytes(properties.isPayloadAsBytes());
+    adapter.setConverter(converter);
     adapter.setQos(properties.getQos());
     adapter.setOutputChannel(mqttInboundChannel());
+    adapter.setManualAcks(properties.isManualAcks());
+    if (properties.getReconnect() != null) {
+      adapter.setBackoff(new MqttReconnectBackoff(properties.getReconnect()));
+    }
+    adapter.setSharedGroup(StringUtils.hasText(properties.getSharedGroup()) ? properties.getSharedGroup() : null);
+    if (properties.getInbound().isEnabled()) {
+      adapter.setDispatcher(new MqttInboundDispatcher(properties.getInbound()));
+    }
     return adapter;
   }
 
@@ -85,16 +149,17 @@ public class MqttAutoConfiguration {
   }
 
   /**
-   * mqtt出站拦截器的bean
+   * mqtt出站拦截器的bean, 连接池大小大于1时经发布者连接池发送
    *
-   * @param factory mqtt客户端工厂
+   * @param factory   mqtt客户端工厂
+   * @param publisher mqtt异步发布者
    * @return mqtt出站拦截器
    */
   @Bean
   @ConditionalOnMissingBean
   @ServiceActivator(inputChannel = "mqttOutboundChannel")
-  public MqttPahoMessageHandler mqttHandler(MqttPahoClientFactory factory) {
-    MqttPahoMessageHandler handler = new MqttPahoMessageHandler(
+  public MqttPahoMessageHandler mqttHandler(MqttPahoClientFactory factory, ObjectProvider<MqttPublisher> publisher) {
+    MqttOutboundHandler handler = new MqttOutboundHandler(
       String.format("%s-handler-%s", properties.getClientId(), UUID.randomUUID()),
       factory
     );
@@ -102,6 +167,9 @@ public class MqttAutoConfiguration {
     handler.setDefaultQos(properties.getDefaultQos());
     handler.setAsync(properties.isAsync());
     handler.setAsyncEvents(properties.isAsyncEvents());
+    if (properties.getPublisherPoolSize() > 1) {
+      publisher.ifAvailable(handler::setPublisher);
+    }
     return handler;
   }
 
@@ -118,15 +186,72 @@ public class MqttAutoConfiguration {
   }
 
   /**
-   * mqttTemplate的bean
+   * mqtt异步发布者的bean, 连接池大小大于1时使用发布者连接池
    *
-   * @param adapter mqtt适配器
-   * @param gateway mqtt消息网关
+   * @param factory mqtt客户端工厂
+   * @return mqtt异步发布者
+   */
+  @Bean(initMethod = "connect")
+  @ConditionalOnMissingBean
+  public MqttPublisher mqttPublisher(MqttPahoClientFactory factory) {
+    if (properties.getPublisherPoolSize() <= 1) {
+      return createPublisher(factory, 0);
+    }
+    return new MqttPublisherPool(properties.getPublisherPoolSize(), index -> createPublisher(factory, index));
+  }
+
+  /**
+   * mqttTemplate的bean, 存在出站持久化缓冲时设置到mqttTemplate
+   *
+   * @param adapter   mqtt适配器
+   * @param gateway   mqtt消息网关
+   * @param publisher mqtt异步发布者
+   * @param codec     mqtt消息编解码器
+   * @param group     mqtt入站适配器组
    * @return mqttTemplate
    */
   @Bean
   @ConditionalOnMissingBean
-  public MqttTemplate mqttTemplate(MqttAdapter adapter, MqttGateway gateway) {
-    return new MqttTemplate(adapter, gateway);
+  public MqttTemplate mqttTemplate(MqttAdapter adapter, MqttGateway gateway, MqttPublisher publisher,
+                                   ObjectProvider<MqttPayloadCodec> codec, MqttAdapterGroup group) {
+    MqttTemplate result = new MqttTemplate(adapter, gateway, publisher, codec.getIfAvailable(), group.getAdapters());
+    outboundBuffer.ifAvailable(result::setOutboundBuffer);
+    return result;
+  }
+
+  /**
+   * mqtt出站持久化缓冲的bean
+   *
+   * @param gateway mqtt消息网关
+   * @return mqtt出站持久化缓冲
+   * @throws IOException 打开消息日志失败
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  @ConditionalOnProperty(prefix = "spring.mqtt.outbound-buffer", name = "enabled", havingValue = "true")
+  public MqttOutboundBuffer mqttOutboundBuffer(MqttGateway gateway) throws IOException {
+    MqttOutboundBufferProperties buffer = properties.getOutboundBuffer();
+    MqttSegmentLog log = new MqttSegmentLog(
+      Path.of(buffer.getDirectory()), buffer.getSegmentSize(), buffer.getMaxSegments(), buffer.getRetention()
+    );
+    log.setForceInterval(buffer.getForceInterval());
+    return new MqttOutboundBuffer(log, MqttTemplate.sender(gateway), buffer.getRate(), buffer.getRetryInterval());
+  }
+
+  /**
+   * 创建mqtt批量发布者
+   *
+   * @param factory mqtt客户端工厂
+   * @param index   发布者序号
+   * @return mqtt批量发布者
+   */
+  protected MqttBatchPublisher createPublisher(MqttPahoClientFactory factory, int index) {
+    MqttReconnectProperties reconnect = properties.getReconnect();
+    boolean buffered = reconnect != null && reconnect.isBufferEnabled();
+    return new MqttBatchPublisher(
+      factory, String.format("%s-publisher-%d-%s", properties.getClientId(), index, UUID.randomUUID()),
+      properties.getBatchWindow(), MqttBatchPublisher.DEFAULT_COMPLETION_TIMEOUT,
+      buffered ? MqttBatchPublisher.bufferOptions(reconnect.getBufferSize()) : null
+    );
   }
 }
@@ -0,0 +1,237 @@
+package cn.koala.mqtt;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mqtt指标
+ * <p>
+ * koala.mqtt.reconnect.attempts: 重连次数, 按结果(result=success/failure)区分
+ * <p>
+ * koala.mqtt.disconnected.duration: 每次断开至重新连接并订阅成功的时长
+ * <p>
+ * koala.mqtt.disconnected.current: 当前已断开的最长时长
+ * <p>
+ * koala.mqtt.subscribe.duration: 连接后订阅的耗时
+ * <p>
+ * 以下消息指标按主题模式(topic)区分, 主题模式为订阅主题与配置的指标主题中最长的匹配项, 无匹配时为other:
+ * <p>
+ * koala.mqtt.messages.in / koala.mqtt.messages.out: 入站/出站消息的消息体字节数, 次数即消息数量
+ * <p>
+ * koala.mqtt.conversion.duration: 入站消息的转换耗时
+ * <p>
+ * koala.mqtt.handler.duration: 入站消息的处理耗时, 按结果(result=success/failure)区分
+ * <p>
+ * koala.mqtt.delivery.duration: 出站消息发布至deliveryComplete的耗时
+ * <p>
+ * koala.mqtt.inflight: 已发布但尚未送达的出站消息数量
+ *
+ * @author Houtaroy
+ */
+public class MqttMetrics implements MeterBinder, MqttObserver {
+  public static final String OTHER_TOPIC = "other";
+  public static final int MAX_RESOLVED_TOPICS = 10000;
+
+  private final List<MqttAdapter> adapters = new ArrayList<>();
+  private final List<MqttOutboundHandler> handlers = new ArrayList<>();
+  private final List<MqttBatchPublisher> publishers = new ArrayList<>();
+  private final MqttTopicTrie<String> patterns = new MqttTopicTrie<>();
+  private final Map<String, String> resolved = new ConcurrentHashMap<>();
+  private final Map<String, TopicMeters> topicMeters = new ConcurrentHashMap<>();
+  private MeterRegistry registry;
+  private Counter reconnectSuccess;
+  private Counter reconnectFailure;
+  private Timer disconnected;
+  private Timer subscribe;
+
+  /**
+   * 构造函数
+   *
+   * @param adapter mqtt入站适配器
+   * @param group   mqtt入站适配器组
+   */
+  public MqttMetrics(MqttAdapter adapter, MqttAdapterGroup group) {
+    this(adapter, group, null, null, new String[0]);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param adapter   mqtt入站适配器
+   * @param group     mqtt入站适配器组
+   * @param handler   mqtt出站处理器, 为null时不采集
+   * @param publisher mqtt异步发布者, 为null时不采集
+   * @param topics    额外的指标主题模式, 用于出站消息
+   */
+  public MqttMetrics(MqttAdapter adapter, MqttAdapterGroup group, MqttOutboundHandler handler,
+                     MqttPublisher publisher, String... topics) {
+    this.adapters.add(adapter);
+    this.adapters.addAll(group.getAdapters());
+    if (handler != null) {
+      this.handlers.add(handler);
+    }
+    addPublisher(publisher);
+    Arrays.stream(adapter.getTopic()).forEach(topic -> patterns.add(topic, topic));
+    Arrays.stream(topics).forEach(topic -> patterns.add(topic, topic));
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    this.registry = registry;
+    reconnectSuccess = Counter.builder("koala.mqtt.reconnect.attempts").tag("result", "success")
+      .description("Mqtt重连次数").register(registry);
+    reconnectFailure = Counter.builder("koala.mqtt.reconnect.attempts").tag("result", "failure")
+      .description("Mqtt重连次数").register(registry);
+    disconnected = Timer.builder("koala.mqtt.disconnected.duration")
+      .description("Mqtt断开至重新连接并订阅成功的时长").register(registry);
+    subscribe = Timer.builder("koala.mqtt.subscribe.duration")
+      .description("Mqtt连接后订阅的耗时").register(registry);
+    TimeGauge.builder("koala.mqtt.disconnected.current", adapters, TimeUnit.NANOSECONDS,
+        current -> current.stream().mapToLong(MqttAdapter::getDisconnectedNanos).max().orElse(0))
+      .description("Mqtt当前已断开的最长时长")
+      .register(registry);
+    Gauge.builder("koala.mqtt.inflight", this, MqttMetrics::getInFlight)
+      .description("Mqtt已发布但尚未送达的出站消息数量")
+      .register(registry);
+    adapters.forEach(adapter -> adapter.setObserver(this));
+    handlers.forEach(handler -> handler.setObserver(this));
+    publishers.forEach(publisher -> publisher.setObserver(this));
+  }
+
+  @Override
+  public void onReconnectAttempt(String clientId, boolean success) {
+    (success ? reconnectSuccess : reconnectFailure).increment();
+  }
+
+  @Override
+  public void onReconnected(String clientId, long disconnectedNanos) {
+    disconnected.record(disconnectedNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void onSubscribed(String clientId, long nanos) {
+    subscribe.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void onMessageArrived(String topic, int bytes, long conversionNanos) {
+    TopicMeters meters = getTopicMeters(topic);
+    meters.in.record(bytes);
+    meters.conversion.record(conversionNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void onMessageHandled(String topic, long nanos, boolean success) {
+    TopicMeters meters = getTopicMeters(topic);
+    (success ? meters.handlerSuccess : meters.handlerFailure).record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void onMessagePublished(String topic, int bytes) {
+    getTopicMeters(topic).out.record(bytes);
+  }
+
+  @Override
+  public void onDeliveryComplete(String topic, long nanos) {
+    getTopicMeters(topic).delivery.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * 获取主题对应的主题模式, 多个模式匹配时取最长的模式
+   * <p>
+   * 主题模式在构造后不再变化, 匹配结果按主题缓存, 缓存的主题数量达到{@link #MAX_RESOLVED_TOPICS}后不再写入新的主题
+   *
+   * @param topic 主题
+   * @return 主题模式, 无匹配时为{@link #OTHER_TOPIC}
+   */
+  public String resolve(String topic) {
+    if (topic == null) {
+      return OTHER_TOPIC;
+    }
+    String result = resolved.get(topic);
+    if (result != null) {
+      return result;
+    }
+    return resolved.size() < MAX_RESOLVED_TOPICS ? resolved.computeIfAbsent(topic, this::match) : match(topic);
+  }
+
+  /**
+   * 获取已发布但尚未送达的出站消息数量
+   *
+   * @return 在途消息数量
+   */
+  public double getInFlight() {
+    return handlers.stream().mapToInt(MqttOutboundHandler::getInFlight).sum()
+      + publishers.stream().mapToInt(MqttBatchPublisher::getInFlight).sum();
+  }
+
+  /**
+   * 获取主题模式的指标, 首次使用时注册
+   *
+   * @param topic 主题
+   * @return 主题模式的指标
+   */
+  protected TopicMeters getTopicMeters(String topic) {
+    return topicMeters.computeIfAbsent(resolve(topic), pattern -> new TopicMeters(registry, pattern));
+  }
+
+  private String match(String topic) {
+    return patterns.match(topic).stream().max(Comparator.comparingInt(String::length)).orElse(OTHER_TOPIC);
+  }
+
+  private void addPublisher(MqttPublisher publisher) {
+    if (publisher instanceof MqttPublisherPool) {
+      ((MqttPublisherPool) publisher).getPublishers().forEach(this::addPublisher);
+    } else if (publisher instanceof MqttBatchPublisher) {
+      publishers.add((MqttBatchPublisher) publisher);
+    }
+  }
+
+  /**
+   * 单个主题模式的指标
+   *
+   * @author Houtaroy
+   */
+  protected static class TopicMeters {
+    private final DistributionSummary in;
+    private final DistributionSummary out;
+    private final Timer conversion;
+    private final Timer handlerSuccess;
+    private final Timer handlerFailure;
+    private final Timer delivery;
+
+    /**
+     * 构造函数
+     *
+     * @param registry 指标注册器
+     * @param pattern  主题模式
+     */
+    protected TopicMeters(MeterRegistry registry, String pattern) {
+      in = DistributionSummary.builder("koala.mqtt.messages.in").tag("topic", pattern).baseUnit("bytes")
+        .description("Mqtt入站消息的消息体字节数").register(registry);
+      out = DistributionSummary.builder("koala.mqtt.messages.out").tag("topic", pattern).baseUnit("bytes")
+        .description("Mqtt出站消息的消息体字节数").register(registry);
+      conversion = Timer.builder("koala.mqtt.conversion.duration").tag("topic", pattern)
+        .description("Mqtt入站消息的转换耗时").register(registry);
+      handlerSuccess = Timer.builder("koala.mqtt.handler.duration").tag("topic", pattern).tag("result", "success")
+        .description("Mqtt入站消息的处理耗时").register(registry);
+      handlerFailure = Timer.builder("koala.mqtt.handler.duration").tag("topic", pattern).tag("result", "failure")
+        .description("Mqtt入站消息的处理耗时").register(registry);
+      delivery = Timer.builder("koala.mqtt.delivery.duration").tag("topic", pattern).publishPercentileHistogram()
+        .description("Mqtt出站消息发布至deliveryComplete的耗时").register(registry);
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package cn.koala.sensitiveword;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * 敏感词指标自动配置
+ *
+ * @author Houtaroy
+ */
+@ConditionalOnClass(MeterRegistry.class)
+public class MetricsAutoConfig {
+
+  /**
+   * 敏感词过滤链指标的Bean
+   *
+   * @param filterChain 敏感词过滤链
+   * @param properties  敏感词配置
+   * @return 敏感词过滤链指标
+   */
+  @Bean
+  public SensitiveWordMetrics sensitiveWordMetrics(RefreshableSensitiveWordFilterChain filterChain,
+                                                   SensitiveWordProperties properties) {
+    return new SensitiveWordMetrics(filterChain, properties.isFilterMetrics());
+  }
+}
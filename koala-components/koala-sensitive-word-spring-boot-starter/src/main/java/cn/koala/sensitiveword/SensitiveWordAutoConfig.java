@@ -6,6 +6,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 
@@ -17,6 +18,7 @@ import java.util.List;
  */
 @Configuration
 @EnableConfigurationProperties(SensitiveWordProperties.class)
+@Import(MetricsAutoConfig.class)
 @RequiredArgsConstructor
 @Slf4j
 public class SensitiveWordAutoConfig {
@@ -34,7 +36,29 @@ public class SensitiveWordAutoConfig {
   public RefreshableSensitiveWordFilterChain sensitiveWordFilterChain(List<SensitiveWordFilter> filters) {
     List<SensitiveWordFilter> result = attemptAddResourceSensitiveWordFilter();
     result.addAll(filters);
-    return new DefaultRefreshableSensitiveWordFilterChain(result);
+    return new DefaultRefreshableSensitiveWordFilterChain(result, properties.isMerged(), createCache(),
+      createReplacer());
+  }
+
+  /**
+   * 创建过滤结果缓存
+   *
+   * @return 过滤结果缓存, 未开启时为null
+   */
+  protected SensitiveWordCache createCache() {
+    SensitiveWordCacheProperties cache = properties.getCache();
+    return cache.isEnabled() ? new SensitiveWordCache(cache.getMaxWeight(), cache.getMaxContentLength()) : null;
+  }
+
+  /**
+   * 创建并行替换器
+   *
+   * @return 并行替换器, 未开启时为null
+   */
+  protected ParallelSensitiveWordReplacer createReplacer() {
+    SensitiveWordParallelProperties parallel = properties.getParallel();
+    return parallel.isEnabled()
+      ? new ParallelSensitiveWordReplacer(parallel.getThreshold(), parallel.getSegmentSize()) : null;
   }
 
   /**
@@ -60,7 +84,7 @@ public class SensitiveWordAutoConfig {
     Resource resource = resourceLoader.getResource(location);
     if (resource.exists()) {
       try {
-        filters.add(new FileSensitiveWordFilter(resource.getFile().getPath()));
+        filters.add(new FileSensitiveWordFilter(resource.getFile().getPath(), location));
       } catch (Exception e) {
         LOGGER.error("添加资源敏感词过滤器失败", e);
       }
@@ -0,0 +1,13 @@
+package cn.koala.sensitiveword;
+
+import lombok.Data;
+
+/**
+ * @author Houtaroy
+ */
+@Data
+public class SensitiveWordCacheProperties {
+  private boolean enabled = false;
+  private long maxWeight = SensitiveWordCache.DEFAULT_MAX_WEIGHT;
+  private int maxContentLength = SensitiveWordCache.DEFAULT_MAX_CONTENT_LENGTH;
+}
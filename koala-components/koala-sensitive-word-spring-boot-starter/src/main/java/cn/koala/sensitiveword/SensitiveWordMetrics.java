@@ -0,0 +1,136 @@
+package cn.koala.sensitiveword;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 敏感词过滤链指标
+ * <p>
+ * koala.sensitive.word.snapshot.generation: 当前快照版本
+ * <p>
+ * koala.sensitive.word.refresh.duration: 最近一次刷新耗时
+ * <p>
+ * koala.sensitive.word.cache.*: 开启过滤结果缓存时, 缓存的命中、未命中、淘汰次数与条目数量、文本总长度
+ * <p>
+ * koala.sensitive.word.filter.*: 开启过滤器指标时, 按过滤器名称(资源文件过滤器为资源定位)统计的过滤耗时、扫描字符数、
+ * 命中次数、替换字符数与刷新耗时; 每次过滤都会为每个过滤器调用nanoTime并记录直方图, 默认关闭
+ *
+ * @author Houtaroy
+ */
+@RequiredArgsConstructor
+public class SensitiveWordMetrics implements MeterBinder, SensitiveWordObserver {
+  private static final String FILTER_TAG = "filter";
+
+  private final RefreshableSensitiveWordFilterChain filterChain;
+  private final boolean filterMetrics;
+  private final Map<String, FilterMeters> filterMeters = new ConcurrentHashMap<>();
+  private final Map<String, Timer> refreshTimers = new ConcurrentHashMap<>();
+  private MeterRegistry registry;
+
+  /**
+   * 构造函数, 不开启过滤器指标
+   *
+   * @param filterChain 敏感词过滤链
+   */
+  public SensitiveWordMetrics(RefreshableSensitiveWordFilterChain filterChain) {
+    this(filterChain, false);
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    if (!(filterChain instanceof DefaultRefreshableSensitiveWordFilterChain)) {
+      return;
+    }
+    DefaultRefreshableSensitiveWordFilterChain chain = (DefaultRefreshableSensitiveWordFilterChain) filterChain;
+    Gauge.builder("koala.sensitive.word.snapshot.generation", chain, c -> c.getSnapshot().getGeneration())
+      .description("敏感词过滤链快照版本")
+      .register(registry);
+    TimeGauge.builder("koala.sensitive.word.refresh.duration", chain, TimeUnit.NANOSECONDS,
+        c -> c.getSnapshot().getRefreshDuration().toNanos())
+      .description("敏感词过滤链最近一次刷新耗时")
+      .register(registry);
+    if (chain.getCache() != null) {
+      bindTo(registry, chain.getCache());
+    }
+    if (filterMetrics) {
+      this.registry = registry;
+      chain.setObserver(this);
+    }
+  }
+
+  @Override
+  public void onFilter(String name, int length, SensitiveWordStatistics statistics, long nanos) {
+    FilterMeters meters = filterMeters.computeIfAbsent(name, key -> new FilterMeters(registry, key));
+    meters.duration.record(nanos, TimeUnit.NANOSECONDS);
+    meters.chars.increment(length);
+    meters.matches.increment(statistics.getMatches());
+    meters.replacements.increment(statistics.getReplacements());
+  }
+
+  @Override
+  public void onRefresh(String name, long nanos) {
+    refreshTimers.computeIfAbsent(name, key -> Timer.builder("koala.sensitive.word.filter.refresh")
+      .tag(FILTER_TAG, key)
+      .description("敏感词过滤器刷新耗时")
+      .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * 注册过滤结果缓存指标
+   *
+   * @param registry 指标注册中心
+   * @param cache    过滤结果缓存
+   */
+  protected void bindTo(MeterRegistry registry, SensitiveWordCache cache) {
+    FunctionCounter.builder("koala.sensitive.word.cache.gets", cache, SensitiveWordCache::getHits)
+      .tag("result", "hit")
+      .description("敏感词过滤结果缓存命中次数")
+      .register(registry);
+    FunctionCounter.builder("koala.sensitive.word.cache.gets", cache, SensitiveWordCache::getMisses)
+      .tag("result", "miss")
+      .description("敏感词过滤结果缓存未命中次数")
+      .register(registry);
+    FunctionCounter.builder("koala.sensitive.word.cache.evictions", cache, SensitiveWordCache::getEvictions)
+      .description("敏感词过滤结果缓存淘汰次数")
+      .register(registry);
+    Gauge.builder("koala.sensitive.word.cache.size", cache, SensitiveWordCache::size)
+      .description("敏感词过滤结果缓存条目数量")
+      .register(registry);
+    Gauge.builder("koala.sensitive.word.cache.weight", cache, SensitiveWordCache::weight)
+      .description("敏感词过滤结果缓存条目总权重")
+      .register(registry);
+  }
+
+  /**
+   * 单个过滤器的指标
+   *
+   * @author Houtaroy
+   */
+  static class FilterMeters {
+    private final Timer duration;
+    private final Counter chars;
+    private final Counter matches;
+    private final Counter replacements;
+
+    FilterMeters(MeterRegistry registry, String name) {
+      this.duration = Timer.builder("koala.sensitive.word.filter.duration").tag(FILTER_TAG, name)
+        .description("敏感词过滤器过滤耗时").publishPercentileHistogram().register(registry);
+      this.chars = Counter.builder("koala.sensitive.word.filter.chars").tag(FILTER_TAG, name)
+        .description("敏感词过滤器扫描字符数").register(registry);
+      this.matches = Counter.builder("koala.sensitive.word.filter.matches").tag(FILTER_TAG, name)
+        .description("敏感词过滤器命中次数").register(registry);
+      this.replacements = Counter.builder("koala.sensitive.word.filter.replacements").tag(FILTER_TAG, name)
+        .description("敏感词过滤器替换字符数").register(registry);
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package cn.koala.sensitiveword;
+
+import lombok.Data;
+
+/**
+ * @author Houtaroy
+ */
+@Data
+public class SensitiveWordParallelProperties {
+  private boolean enabled = false;
+  private int threshold = ParallelSensitiveWordReplacer.DEFAULT_THRESHOLD;
+  private int segmentSize = ParallelSensitiveWordReplacer.DEFAULT_SEGMENT_SIZE;
+}
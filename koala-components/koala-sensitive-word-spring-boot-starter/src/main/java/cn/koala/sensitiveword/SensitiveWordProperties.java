@@ -2,6 +2,7 @@ package cn.koala.sensitiveword;
 
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -13,4 +14,10 @@ import java.util.List;
 @Data
 public class SensitiveWordProperties {
   private List<String> resourceLocations = new ArrayList<>();
+  private boolean merged = false;
+  private boolean filterMetrics = false;
+  @NestedConfigurationProperty
+  private SensitiveWordCacheProperties cache = new SensitiveWordCacheProperties();
+  @NestedConfigurationProperty
+  private SensitiveWordParallelProperties parallel = new SensitiveWordParallelProperties();
 }
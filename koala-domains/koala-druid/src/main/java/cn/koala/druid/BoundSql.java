@@ -0,0 +1,18 @@
+package cn.koala.druid;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 绑定参数的sql, 参数以JDBC占位符?表示, 参数值按占位符顺序排列
+ *
+ * @author Houtaroy
+ */
+@Getter
+@AllArgsConstructor
+public class BoundSql {
+  private final String sql;
+  private final List<Object> parameters;
+}
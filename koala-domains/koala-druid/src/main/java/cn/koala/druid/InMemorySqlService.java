@@ -3,16 +3,80 @@ package cn.koala.druid;
 import com.alibaba.druid.DbType;
 import com.alibaba.druid.wall.WallCheckResult;
 import com.alibaba.druid.wall.WallProvider;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 /**
+ * 内存SQL服务
+ * <p>
+ * 按SQL文本缓存编译后的{@link SqlTemplate}, 按(数据库类型, 规范化后的SQL)缓存{@link SelectAnalysis},
+ * 缓存数量超过上限时淘汰最久未被访问的条目
+ * <p>
+ * 配置{@link WallCheckCache}时缓存防火墙检查结果, 通过{@link #addWallProvider(DbType, WallProvider)}替换防火墙时,
+ * 该数据库类型的缓存失效
+ * <p>
+ * 配置检查线程池时批量注入检查并行执行; {@link WallProvider}的检查状态保存在线程本地变量中, 同一实例可在多个线程中并发检查
+ *
  * @author Houtaroy
  */
 @SuppressWarnings("PMD")
 public class InMemorySqlService implements SqlService {
+  public static final int DEFAULT_MAX_TEMPLATES = 1024;
+  public static final int DEFAULT_MAX_ANALYSES = 1024;
+
   protected final Map<DbType, WallProvider> providers = new ConcurrentHashMap<>(DbType.values().length);
+  protected final LruCache<String, SqlTemplate> templates;
+  protected final LruCache<AnalysisKey, SelectAnalysis> analyses;
+  protected final WallCheckCache wallCheckCache;
+  protected volatile Executor checkExecutor;
+
+  /**
+   * 构造函数
+   */
+  public InMemorySqlService() {
+    this(DEFAULT_MAX_TEMPLATES);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param maxTemplates SQL模板缓存的最大数量
+   */
+  public InMemorySqlService(int maxTemplates) {
+    this(maxTemplates, null);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param maxTemplates   SQL模板缓存的最大数量
+   * @param wallCheckCache 防火墙检查结果缓存, 为null时不缓存
+   */
+  public InMemorySqlService(int maxTemplates, WallCheckCache wallCheckCache) {
+    this(maxTemplates, DEFAULT_MAX_ANALYSES, wallCheckCache);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param maxTemplates   SQL模板缓存的最大数量
+   * @param maxAnalyses    查询语句分析结果缓存的最大数量
+   * @param wallCheckCache 防火墙检查结果缓存, 为null时不缓存
+   */
+  public InMemorySqlService(int maxTemplates, int maxAnalyses, WallCheckCache wallCheckCache) {
+    this.templates = new LruCache<>(maxTemplates);
+    this.analyses = new LruCache<>(maxAnalyses);
+    this.wallCheckCache = wallCheckCache;
+  }
 
   /**
    * 新增防火墙
@@ -22,7 +86,48 @@ public class InMemorySqlService implements SqlService {
    * @return 新增防火墙
    */
   public WallProvider addWallProvider(DbType dbType, WallProvider provider) {
-    return providers.put(dbType, provider);
+    WallProvider result = providers.put(dbType, provider);
+    if (wallCheckCache != null) {
+      wallCheckCache.invalidate(dbType);
+    }
+    return result;
+  }
+
+  /**
+   * 设置批量注入检查的线程池, 应使用有界线程池, 队列已满时由调用线程执行
+   *
+   * @param checkExecutor 线程池, 为null时在调用线程中依次检查
+   */
+  public void setCheckExecutor(Executor checkExecutor) {
+    this.checkExecutor = checkExecutor;
+  }
+
+  /**
+   * 获取防火墙检查结果缓存
+   *
+   * @return 防火墙检查结果缓存, 未配置时为null
+   */
+  public WallCheckCache getWallCheckCache() {
+    return wallCheckCache;
+  }
+
+  @Override
+  public SqlTemplate getTemplate(String sql) {
+    SqlTemplate result = templates.get(sql);
+    if (result == null) {
+      result = templates.putIfAbsent(sql, SqlTemplate.compile(sql));
+    }
+    return result;
+  }
+
+  @Override
+  public SelectAnalysis analyze(DbType dbType, String sql) {
+    AnalysisKey key = new AnalysisKey(dbType, WallCheckCache.normalize(sql));
+    SelectAnalysis result = analyses.get(key);
+    if (result == null) {
+      result = analyses.putIfAbsent(key, SelectAnalysis.analyze(dbType, sql));
+    }
+    return result;
   }
 
   @Override
@@ -30,8 +135,27 @@ public class InMemorySqlService implements SqlService {
     return !wallCheck(dbType, sql).getViolations().isEmpty();
   }
 
+  @Override
+  public SqlCheckResult check(DbType dbType, String sql) throws NoSuchWallProviderException {
+    return SqlCheckResult.of(sql, wallCheck(dbType, sql));
+  }
+
+  @Override
+  public List<SqlCheckResult> isInjection(DbType dbType, Collection<String> sqls) throws NoSuchWallProviderException {
+    WallProvider provider = getWallProvider(dbType);
+    Executor executor = checkExecutor;
+    Function<String, SqlCheckResult> check = sql -> SqlCheckResult.of(sql, wallCheck(dbType, provider, sql));
+    if (executor == null || sqls.size() <= 1) {
+      return sqls.stream().map(check).toList();
+    }
+    List<CompletableFuture<SqlCheckResult>> futures = sqls.stream()
+      .map(sql -> CompletableFuture.supplyAsync(() -> check.apply(sql), executor))
+      .toList();
+    return futures.stream().map(InMemorySqlService::join).toList();
+  }
+
   /**
-   * 防火墙检查
+   * 防火墙检查, 配置缓存时结果可能来自缓存并在调用方之间共享, 不应修改
    *
    * @param dbType 数据库类型
    * @param sql    sql语句
@@ -39,10 +163,69 @@ public class InMemorySqlService implements SqlService {
    * @throws NoSuchWallProviderException 没有找到防火墙提供者
    */
   public WallCheckResult wallCheck(DbType dbType, String sql) throws NoSuchWallProviderException {
-    WallProvider provider = providers.get(dbType);
-    if (provider == null) {
+    return wallCheck(dbType, getWallProvider(dbType), sql);
+  }
+
+  /**
+   * 获取防火墙
+   *
+   * @param dbType 数据库类型
+   * @return 防火墙
+   * @throws NoSuchWallProviderException 没有找到防火墙提供者
+   */
+  protected WallProvider getWallProvider(DbType dbType) throws NoSuchWallProviderException {
+    WallProvider result = providers.get(dbType);
+    if (result == null) {
       throw new NoSuchWallProviderException(dbType);
     }
-    return provider.check(sql);
+    return result;
+  }
+
+  /**
+   * 使用防火墙检查
+   *
+   * @param dbType   数据库类型
+   * @param provider 防火墙
+   * @param sql      sql语句
+   * @return 检查结果
+   */
+  protected WallCheckResult wallCheck(DbType dbType, WallProvider provider, String sql) {
+    if (wallCheckCache == null) {
+      return provider.check(sql);
+    }
+    // 缓存先读取版本再执行检查, 检查时重新获取防火墙, 保证替换后旧防火墙的结果不会写入新版本
+    return wallCheckCache.get(dbType, sql, text -> providers.get(dbType).check(text));
+  }
+
+  /**
+   * 等待检查结果, 检查抛出的异常原样抛出
+   *
+   * @param future 检查结果
+   * @return 检查结果
+   */
+  private static SqlCheckResult join(CompletableFuture<SqlCheckResult> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * 查询语句分析结果的缓存键
+   *
+   * @author Houtaroy
+   */
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  protected static class AnalysisKey {
+    private final DbType dbType;
+    private final String sql;
   }
 }
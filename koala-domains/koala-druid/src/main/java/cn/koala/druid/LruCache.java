@@ -0,0 +1,94 @@
+package cn.koala.druid;
+
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 最近最少使用缓存
+ * <p>
+ * 基于按访问排序的{@link LinkedHashMap}, 条目数量超过{@link #getMaxSize()}时淘汰最久未被访问的条目, 所有操作互斥执行
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ * @author Houtaroy
+ */
+public class LruCache<K, V> {
+  private static final int INITIAL_CAPACITY = 16;
+  private static final float LOAD_FACTOR = 0.75f;
+
+  @Getter
+  private final int maxSize;
+  private final Map<K, V> entries;
+  private long evictions;
+
+  /**
+   * 构造函数
+   *
+   * @param maxSize 缓存的最大条目数量
+   */
+  public LruCache(int maxSize) {
+    this.maxSize = maxSize;
+    this.entries = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        boolean evict = size() > LruCache.this.maxSize;
+        if (evict) {
+          evictions++;
+        }
+        return evict;
+      }
+    };
+  }
+
+  /**
+   * 查询缓存, 命中的条目成为最近使用的条目
+   *
+   * @param key 键
+   * @return 值, 未命中时为null
+   */
+  public synchronized V get(K key) {
+    return entries.get(key);
+  }
+
+  /**
+   * 写入缓存, 键已存在时保留原值
+   *
+   * @param key   键
+   * @param value 值
+   * @return 缓存中的值
+   */
+  public synchronized V putIfAbsent(K key, V value) {
+    V existing = entries.putIfAbsent(key, value);
+    return existing != null ? existing : value;
+  }
+
+  /**
+   * 移除满足条件的条目
+   *
+   * @param filter 键的条件
+   */
+  public synchronized void removeIf(Predicate<? super K> filter) {
+    entries.keySet().removeIf(filter);
+  }
+
+  /**
+   * 获取缓存条目数量
+   *
+   * @return 缓存条目数量
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * 获取淘汰次数
+   *
+   * @return 淘汰次数
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+}
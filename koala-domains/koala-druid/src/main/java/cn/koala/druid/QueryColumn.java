@@ -0,0 +1,134 @@
+package cn.koala.druid;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 查询结果列
+ * <p>
+ * 列名优先使用查询列的别名, 其次为查询列名与结果集列标签; 列类型按JDBC类型在查询开始时确定, 逐行读取时无需再次判断
+ *
+ * @author Houtaroy
+ */
+@Getter
+public class QueryColumn {
+  private static final ColumnType OBJECT = new ColumnType(Object.class, ResultSet::getObject);
+  private static final Map<Integer, ColumnType> TYPES = new HashMap<>();
+
+  static {
+    ColumnType integer = new ColumnType(Integer.class, (rs, index) -> nullable(rs, rs.getInt(index)));
+    ColumnType decimal = new ColumnType(BigDecimal.class, ResultSet::getBigDecimal);
+    ColumnType floating = new ColumnType(Double.class, (rs, index) -> nullable(rs, rs.getDouble(index)));
+    ColumnType bool = new ColumnType(Boolean.class, (rs, index) -> nullable(rs, rs.getBoolean(index)));
+    ColumnType string = new ColumnType(String.class, ResultSet::getString);
+    TYPES.put(Types.BIGINT, new ColumnType(Long.class, (rs, index) -> nullable(rs, rs.getLong(index))));
+    TYPES.put(Types.INTEGER, integer);
+    TYPES.put(Types.SMALLINT, integer);
+    TYPES.put(Types.TINYINT, integer);
+    TYPES.put(Types.DECIMAL, decimal);
+    TYPES.put(Types.NUMERIC, decimal);
+    TYPES.put(Types.DOUBLE, floating);
+    TYPES.put(Types.FLOAT, floating);
+    TYPES.put(Types.REAL, new ColumnType(Float.class, (rs, index) -> nullable(rs, rs.getFloat(index))));
+    TYPES.put(Types.BOOLEAN, bool);
+    TYPES.put(Types.BIT, bool);
+    TYPES.put(Types.CHAR, string);
+    TYPES.put(Types.VARCHAR, string);
+    TYPES.put(Types.LONGVARCHAR, string);
+    TYPES.put(Types.NCHAR, string);
+    TYPES.put(Types.NVARCHAR, string);
+    TYPES.put(Types.LONGNVARCHAR, string);
+    TYPES.put(Types.DATE, new ColumnType(LocalDate.class, (rs, index) -> {
+      Date value = rs.getDate(index);
+      return value == null ? null : value.toLocalDate();
+    }));
+    TYPES.put(Types.TIMESTAMP, new ColumnType(LocalDateTime.class, (rs, index) -> {
+      Timestamp value = rs.getTimestamp(index);
+      return value == null ? null : value.toLocalDateTime();
+    }));
+  }
+
+  private final String name;
+  private final String table;
+  private final int index;
+  private final int jdbcType;
+  private final SelectColumn selectColumn;
+  private final Class<?> javaType;
+  private final ColumnReader reader;
+
+  /**
+   * 构造函数
+   *
+   * @param name         列名
+   * @param table        表名, 未知时为null
+   * @param index        结果集列序号, 从1开始
+   * @param jdbcType     JDBC类型
+   * @param selectColumn 对应的查询列, 无法对应时为null
+   */
+  public QueryColumn(String name, String table, int index, int jdbcType, SelectColumn selectColumn) {
+    this.name = name;
+    this.table = table;
+    this.index = index;
+    this.jdbcType = jdbcType;
+    this.selectColumn = selectColumn;
+    ColumnType type = TYPES.getOrDefault(jdbcType, OBJECT);
+    this.javaType = type.javaType;
+    this.reader = type.reader;
+  }
+
+  /**
+   * 读取当前行的列值, 列值类型为{@link #getJavaType()}, 未知的JDBC类型使用驱动默认的类型
+   *
+   * @param rs 结果集
+   * @return 列值
+   * @throws SQLException SQL异常
+   */
+  public Object read(ResultSet rs) throws SQLException {
+    return reader.read(rs, index);
+  }
+
+  private static Object nullable(ResultSet rs, Object value) throws SQLException {
+    return rs.wasNull() ? null : value;
+  }
+
+  /**
+   * 列读取函数
+   *
+   * @author Houtaroy
+   */
+  @FunctionalInterface
+  protected interface ColumnReader {
+
+    /**
+     * 读取列值
+     *
+     * @param rs    结果集
+     * @param index 列序号, 从1开始
+     * @return 列值
+     * @throws SQLException SQL异常
+     */
+    Object read(ResultSet rs, int index) throws SQLException;
+  }
+
+  /**
+   * 列类型
+   *
+   * @author Houtaroy
+   */
+  @AllArgsConstructor
+  protected static class ColumnType {
+    private final Class<?> javaType;
+    private final ColumnReader reader;
+  }
+}
@@ -0,0 +1,91 @@
+package cn.koala.druid;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 查询结果行
+ * <p>
+ * 同一查询的所有行共享列定义与列名索引, 每行只保存列值数组
+ *
+ * @author Houtaroy
+ */
+public class QueryRow {
+  private final List<QueryColumn> columns;
+  private final Map<String, Integer> positions;
+  private final Object[] values;
+
+  /**
+   * 构造函数
+   *
+   * @param columns   查询结果列
+   * @param positions 列名(小写)与列位置的映射
+   * @param values    列值
+   */
+  protected QueryRow(List<QueryColumn> columns, Map<String, Integer> positions, Object[] values) {
+    this.columns = columns;
+    this.positions = positions;
+    this.values = values;
+  }
+
+  /**
+   * 获取查询结果列
+   *
+   * @return 查询结果列
+   */
+  public List<QueryColumn> getColumns() {
+    return columns;
+  }
+
+  /**
+   * 按位置获取列值
+   *
+   * @param position 列位置, 从0开始
+   * @return 列值
+   */
+  public Object get(int position) {
+    return values[position];
+  }
+
+  /**
+   * 按列名获取列值, 列名不区分大小写
+   *
+   * @param name 列名
+   * @return 列值
+   * @throws IllegalArgumentException 列不存在
+   */
+  public Object get(String name) {
+    Integer position = positions.get(name.toLowerCase(Locale.ROOT));
+    if (position == null) {
+      throw new IllegalArgumentException(String.format("查询结果中不存在列[%s]", name));
+    }
+    return values[position];
+  }
+
+  /**
+   * 按列名获取指定类型的列值
+   *
+   * @param name 列名
+   * @param type 列值类型
+   * @param <T>  列值类型
+   * @return 列值
+   */
+  public <T> T get(String name, Class<T> type) {
+    return type.cast(get(name));
+  }
+
+  /**
+   * 转换为列名与列值的映射
+   *
+   * @return 列名与列值的映射
+   */
+  public Map<String, Object> toMap() {
+    Map<String, Object> result = new LinkedHashMap<>();
+    for (int i = 0; i < values.length; i++) {
+      result.put(columns.get(i).getName(), values[i]);
+    }
+    return result;
+  }
+}
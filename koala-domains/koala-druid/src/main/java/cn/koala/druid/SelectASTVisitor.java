@@ -1,6 +1,5 @@
 package cn.koala.druid;
 
-import cn.koala.constant.Int;
 import com.alibaba.druid.sql.ast.SQLExpr;
 import com.alibaba.druid.sql.ast.expr.SQLAllColumnExpr;
 import com.alibaba.druid.sql.ast.expr.SQLCharExpr;
@@ -18,8 +17,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.BiConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -41,18 +38,15 @@ public class SelectASTVisitor implements SQLASTVisitor {
   protected List<SelectColumn> selectColumns = new ArrayList<>();
   protected List<String> parameters = new ArrayList<>();
 
-  private Map<Class<? extends SQLExpr>, BiConsumer<SQLExpr, String>> selectColumnExprFunctions;
-
   /**
-   * 构造函数
+   * 查询列表达式的计算函数, 所有实例共享, 按实例分派以支持子类重写计算方法
    */
-  public SelectASTVisitor() {
-    selectColumnExprFunctions = new ConcurrentHashMap<>(Int.INT_16);
-    selectColumnExprFunctions.put(SQLAllColumnExpr.class, this::computeAllColumn);
-    selectColumnExprFunctions.put(SQLIdentifierExpr.class, this::computeIdentifier);
-    selectColumnExprFunctions.put(SQLMethodInvokeExpr.class, this::computeMethodInvoke);
-    selectColumnExprFunctions.put(SQLPropertyExpr.class, this::computeProperty);
-  }
+  private static final Map<Class<? extends SQLExpr>, SelectColumnFunction> SELECT_COLUMN_FUNCTIONS = Map.of(
+    SQLAllColumnExpr.class, SelectASTVisitor::computeAllColumn,
+    SQLIdentifierExpr.class, SelectASTVisitor::computeIdentifier,
+    SQLMethodInvokeExpr.class, SelectASTVisitor::computeMethodInvoke,
+    SQLPropertyExpr.class, SelectASTVisitor::computeProperty
+  );
 
   @Override
   public void endVisit(SQLSelectQueryBlock x) {
@@ -101,8 +95,8 @@ public class SelectASTVisitor implements SQLASTVisitor {
    */
   protected void computeSelectColumns() {
     selectItems.forEach(item ->
-      Optional.ofNullable(selectColumnExprFunctions.get(item.getExpr().getClass()))
-        .ifPresent(function -> function.accept(item.getExpr(), item.getAlias()))
+      Optional.ofNullable(SELECT_COLUMN_FUNCTIONS.get(item.getExpr().getClass()))
+        .ifPresent(function -> function.compute(this, item.getExpr(), item.getAlias()))
     );
   }
 
@@ -168,4 +162,22 @@ public class SelectASTVisitor implements SQLASTVisitor {
   protected String getSelectTableNameByAlias(String alias) {
     return getSelectTableByAlias(alias).map(SelectTable::getName).orElse(null);
   }
+
+  /**
+   * 查询列表达式的计算函数
+   *
+   * @author Houtaroy
+   */
+  @FunctionalInterface
+  protected interface SelectColumnFunction {
+
+    /**
+     * 计算查询列
+     *
+     * @param visitor 查询语句访问者
+     * @param expr    查询列表达式
+     * @param alias   别名
+     */
+    void compute(SelectASTVisitor visitor, SQLExpr expr, String alias);
+  }
 }
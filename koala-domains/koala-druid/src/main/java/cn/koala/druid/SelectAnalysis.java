@@ -0,0 +1,106 @@
+package cn.koala.druid;
+
+import com.alibaba.druid.DbType;
+import com.alibaba.druid.sql.SQLUtils;
+import com.alibaba.druid.sql.ast.SQLStatement;
+import com.alibaba.druid.sql.ast.statement.SQLSelectStatement;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 查询语句分析结果
+ * <p>
+ * 包含查询表、查询列与查询参数, 结果可缓存并在调用方之间共享, 因此列表不可修改,
+ * 其中的查询表与查询列为访问者结果的不可变副本, 调用setter时抛出{@link UnsupportedOperationException}
+ *
+ * @author Houtaroy
+ */
+@Getter
+public class SelectAnalysis {
+  private final List<SelectTable> tables;
+  private final List<SelectColumn> columns;
+  private final List<String> parameters;
+
+  /**
+   * 构造函数
+   *
+   * @param visitor 已访问查询语句的访问者
+   */
+  public SelectAnalysis(SelectASTVisitor visitor) {
+    this.tables = visitor.getSelectTables().stream().map(FrozenTable::new).collect(Collectors.toUnmodifiableList());
+    this.columns = visitor.getSelectColumns().stream().map(FrozenColumn::new)
+      .collect(Collectors.toUnmodifiableList());
+    this.parameters = List.copyOf(visitor.getParameters());
+  }
+
+  /**
+   * 解析并分析查询语句
+   *
+   * @param dbType 数据库类型
+   * @param sql    sql
+   * @return 查询语句分析结果
+   * @throws IllegalArgumentException 不是查询语句
+   */
+  public static SelectAnalysis analyze(DbType dbType, String sql) {
+    SQLStatement statement = SQLUtils.parseSingleStatement(sql, dbType);
+    if (!(statement instanceof SQLSelectStatement)) {
+      throw new IllegalArgumentException(String.format("只支持分析查询语句: %s", sql));
+    }
+    SelectASTVisitor visitor = new SelectASTVisitor();
+    statement.accept(visitor);
+    return new SelectAnalysis(visitor);
+  }
+
+  private static UnsupportedOperationException immutable() {
+    return new UnsupportedOperationException("缓存的查询语句分析结果不可修改");
+  }
+
+  /**
+   * 不可变的查询表
+   *
+   * @author Houtaroy
+   */
+  private static class FrozenTable extends SelectTable {
+    FrozenTable(SelectTable source) {
+      super(source);
+    }
+
+    @Override
+    public void setName(String name) {
+      throw immutable();
+    }
+
+    @Override
+    public void setAlias(String alias) {
+      throw immutable();
+    }
+  }
+
+  /**
+   * 不可变的查询列
+   *
+   * @author Houtaroy
+   */
+  private static class FrozenColumn extends SelectColumn {
+    FrozenColumn(SelectColumn source) {
+      super(source.getTable(), source.getName(), source.getAlias());
+    }
+
+    @Override
+    public void setTable(String table) {
+      throw immutable();
+    }
+
+    @Override
+    public void setName(String name) {
+      throw immutable();
+    }
+
+    @Override
+    public void setAlias(String alias) {
+      throw immutable();
+    }
+  }
+}
@@ -20,4 +20,14 @@ public class SelectTable {
     this.name = expr.getTableName();
     this.alias = expr.getAlias();
   }
+
+  /**
+   * 复制构造函数
+   *
+   * @param source 查询表
+   */
+  protected SelectTable(SelectTable source) {
+    this.name = source.name;
+    this.alias = source.alias;
+  }
 }
@@ -0,0 +1,33 @@
+package cn.koala.druid;
+
+import com.alibaba.druid.wall.Violation;
+import com.alibaba.druid.wall.WallCheckResult;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 单条sql的注入检查结果
+ *
+ * @author Houtaroy
+ */
+@Getter
+@AllArgsConstructor
+public class SqlCheckResult {
+  private final String sql;
+  private final boolean injection;
+  private final List<Violation> violations;
+
+  /**
+   * 根据防火墙检查结果创建注入检查结果
+   *
+   * @param sql    sql
+   * @param result 防火墙检查结果
+   * @return 注入检查结果
+   */
+  public static SqlCheckResult of(String sql, WallCheckResult result) {
+    List<Violation> violations = List.copyOf(result.getViolations());
+    return new SqlCheckResult(sql, !violations.isEmpty(), violations);
+  }
+}
@@ -0,0 +1,299 @@
+package cn.koala.druid;
+
+import com.alibaba.druid.DbType;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 流式SQL查询服务
+ * <p>
+ * 通过{@link SqlService#bind(String, Map)}绑定参数, 只执行通过防火墙检查的查询语句, 在获取连接前拒绝其他语句与存在注入的语句;
+ * 使用只进只读游标与fetchSize逐批读取结果, 结果不会全部加载到内存;
+ * MySQL使用流式结果集(fetchSize为{@link Integer#MIN_VALUE}), PostgreSQL在查询期间关闭自动提交以使用游标
+ * <p>
+ * 结果列与{@link SqlService#analyze(DbType, String)}分析出的查询列对应, 列值按JDBC类型读取为对应的Java类型
+ *
+ * @author Houtaroy
+ */
+public class SqlQueryService {
+  public static final int DEFAULT_FETCH_SIZE = 1000;
+
+  private final DataSource dataSource;
+  private final SqlService sqlService;
+  private final int fetchSize;
+
+  /**
+   * 构造函数
+   *
+   * @param dataSource 数据源
+   * @param sqlService SQL服务
+   */
+  public SqlQueryService(DataSource dataSource, SqlService sqlService) {
+    this(dataSource, sqlService, DEFAULT_FETCH_SIZE);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param dataSource 数据源
+   * @param sqlService SQL服务
+   * @param fetchSize  每次从数据库读取的行数
+   */
+  public SqlQueryService(DataSource dataSource, SqlService sqlService, int fetchSize) {
+    this.dataSource = dataSource;
+    this.sqlService = sqlService;
+    this.fetchSize = fetchSize;
+  }
+
+  /**
+   * 查询并逐行回调
+   *
+   * @param dbType     数据库类型
+   * @param sql        sql
+   * @param parameters 参数
+   * @param callback   行回调
+   * @return 行数
+   * @throws SQLException                SQL异常
+   * @throws NoSuchWallProviderException 没有找到SQL防火墙异常
+   * @throws IllegalArgumentException    不是查询语句或存在SQL注入
+   */
+  public long query(DbType dbType, String sql, Map<String, Object> parameters, Consumer<QueryRow> callback)
+    throws SQLException, NoSuchWallProviderException {
+    try (Cursor cursor = open(dbType, sql, parameters)) {
+      long result = 0;
+      QueryRow row = cursor.next();
+      while (row != null) {
+        callback.accept(row);
+        result++;
+        row = cursor.next();
+      }
+      return result;
+    }
+  }
+
+  /**
+   * 查询并返回行流, 流关闭时释放连接, 应在try-with-resources中使用
+   *
+   * @param dbType     数据库类型
+   * @param sql        sql
+   * @param parameters 参数
+   * @return 行流
+   * @throws SQLException                SQL异常
+   * @throws NoSuchWallProviderException 没有找到SQL防火墙异常
+   * @throws IllegalArgumentException    不是查询语句或存在SQL注入
+   */
+  public Stream<QueryRow> stream(DbType dbType, String sql, Map<String, Object> parameters)
+    throws SQLException, NoSuchWallProviderException {
+    Cursor cursor = open(dbType, sql, parameters);
+    Spliterator<QueryRow> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+      Spliterator.ORDERED | Spliterator.NONNULL) {
+      @Override
+      public boolean tryAdvance(Consumer<? super QueryRow> action) {
+        QueryRow row = cursor.nextUnchecked();
+        if (row != null) {
+          action.accept(row);
+        }
+        return row != null;
+      }
+    };
+    return StreamSupport.stream(spliterator, false).onClose(cursor::closeUnchecked);
+  }
+
+  /**
+   * 打开游标
+   *
+   * @param dbType     数据库类型
+   * @param sql        sql
+   * @param parameters 参数
+   * @return 游标
+   * @throws SQLException                SQL异常
+   * @throws NoSuchWallProviderException 没有找到SQL防火墙异常
+   * @throws IllegalArgumentException    不是查询语句或存在SQL注入
+   */
+  protected Cursor open(DbType dbType, String sql, Map<String, Object> parameters)
+    throws SQLException, NoSuchWallProviderException {
+    BoundSql bound = sqlService.bind(sql, parameters);
+    SelectAnalysis analysis = sqlService.analyze(dbType, bound.getSql());
+    if (sqlService.isInjection(dbType, bound.getSql())) {
+      throw new IllegalArgumentException(String.format("SQL存在注入风险: %s", bound.getSql()));
+    }
+    Cursor result = new Cursor(dataSource.getConnection(), dbType == DbType.postgresql);
+    try {
+      PreparedStatement statement = result.connection.prepareStatement(bound.getSql(), ResultSet.TYPE_FORWARD_ONLY,
+        ResultSet.CONCUR_READ_ONLY);
+      result.statement = statement;
+      statement.setFetchSize(isMySql(dbType) ? Integer.MIN_VALUE : fetchSize);
+      for (int i = 0; i < bound.getParameters().size(); i++) {
+        statement.setObject(i + 1, bound.getParameters().get(i));
+      }
+      result.resultSet = statement.executeQuery();
+      result.project(analysis.getColumns());
+      return result;
+    } catch (SQLException | RuntimeException e) {
+      result.close();
+      throw e;
+    }
+  }
+
+  private static boolean isMySql(DbType dbType) {
+    return dbType == DbType.mysql || dbType == DbType.mariadb;
+  }
+
+  /**
+   * 根据查询列与结果集元数据确定结果列
+   * <p>
+   * 查询列不包含*、数量与结果集列数相同且每个位置的列标签都与该位置查询列的别名或列名一致时按位置对应,
+   * 用于区分同名的列; 否则按列标签对应, 避免子查询的重复列或未识别的表达式使数量恰好相同时错位
+   *
+   * @param metaData      结果集元数据
+   * @param selectColumns 查询列
+   * @return 结果列
+   * @throws SQLException SQL异常
+   */
+  protected static List<QueryColumn> project(ResultSetMetaData metaData, List<SelectColumn> selectColumns)
+    throws SQLException {
+    int count = metaData.getColumnCount();
+    boolean positional = selectColumns.size() == count && selectColumns.stream().noneMatch(SelectColumn::isSelectAll);
+    for (int index = 1; positional && index <= count; index++) {
+      positional = matches(selectColumns.get(index - 1), metaData.getColumnLabel(index));
+    }
+    Map<String, SelectColumn> named = new HashMap<>(selectColumns.size());
+    selectColumns.forEach(column -> named.putIfAbsent(nameOf(column).toLowerCase(Locale.ROOT), column));
+    List<QueryColumn> result = new ArrayList<>(count);
+    for (int index = 1; index <= count; index++) {
+      String label = metaData.getColumnLabel(index);
+      SelectColumn column = positional ? selectColumns.get(index - 1) : named.get(label.toLowerCase(Locale.ROOT));
+      String name = column == null ? label : nameOf(column);
+      String table = column == null || column.getTable() == null ? metaData.getTableName(index) : column.getTable();
+      result.add(new QueryColumn(name, table, index, metaData.getColumnType(index), column));
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  private static boolean matches(SelectColumn column, String label) {
+    return label != null && (label.equalsIgnoreCase(column.getAlias()) || label.equalsIgnoreCase(column.getName()));
+  }
+
+  private static String nameOf(SelectColumn column) {
+    return column.getAlias() == null ? column.getName() : column.getAlias();
+  }
+
+  /**
+   * 查询游标, 持有连接、语句与结果集
+   *
+   * @author Houtaroy
+   */
+  protected static class Cursor implements AutoCloseable {
+    private final Connection connection;
+    private final boolean autoCommit;
+    private PreparedStatement statement;
+    private ResultSet resultSet;
+    private List<QueryColumn> columns;
+    private Map<String, Integer> positions;
+
+    /**
+     * 构造函数
+     *
+     * @param connection    数据库连接
+     * @param disableCommit 是否在查询期间关闭自动提交
+     * @throws SQLException SQL异常
+     */
+    protected Cursor(Connection connection, boolean disableCommit) throws SQLException {
+      this.connection = connection;
+      try {
+        this.autoCommit = connection.getAutoCommit();
+        if (disableCommit && autoCommit) {
+          connection.setAutoCommit(false);
+        }
+      } catch (SQLException e) {
+        connection.close();
+        throw e;
+      }
+    }
+
+    /**
+     * 读取下一行
+     *
+     * @return 下一行, 没有更多行时为null
+     * @throws SQLException SQL异常
+     */
+    protected QueryRow next() throws SQLException {
+      if (!resultSet.next()) {
+        return null;
+      }
+      Object[] values = new Object[columns.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = columns.get(i).read(resultSet);
+      }
+      return new QueryRow(columns, positions, values);
+    }
+
+    /**
+     * 读取下一行, SQL异常包装为非受检异常
+     *
+     * @return 下一行, 没有更多行时为null
+     */
+    protected QueryRow nextUnchecked() {
+      try {
+        return next();
+      } catch (SQLException e) {
+        throw new IllegalStateException("读取查询结果失败", e);
+      }
+    }
+
+    /**
+     * 关闭游标, SQL异常包装为非受检异常
+     */
+    protected void closeUnchecked() {
+      try {
+        close();
+      } catch (SQLException e) {
+        throw new IllegalStateException("关闭查询失败", e);
+      }
+    }
+
+    @Override
+    public void close() throws SQLException {
+      try (connection) {
+        closeStatement();
+        if (connection.getAutoCommit() != autoCommit) {
+          connection.rollback();
+          connection.setAutoCommit(autoCommit);
+        }
+      }
+    }
+
+    private void closeStatement() throws SQLException {
+      try (PreparedStatement current = statement) {
+        if (resultSet != null) {
+          resultSet.close();
+        }
+      }
+    }
+
+    private void project(List<SelectColumn> selectColumns) throws SQLException {
+      this.columns = SqlQueryService.project(resultSet.getMetaData(), selectColumns);
+      Map<String, Integer> result = new HashMap<>(columns.size());
+      for (int i = 0; i < columns.size(); i++) {
+        result.putIfAbsent(columns.get(i).getName().toLowerCase(Locale.ROOT), i);
+      }
+      this.positions = result;
+    }
+  }
+}
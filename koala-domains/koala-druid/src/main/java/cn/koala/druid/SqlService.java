@@ -2,6 +2,9 @@ package cn.koala.druid;
 
 import com.alibaba.druid.DbType;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -10,18 +13,46 @@ import java.util.Map;
 public interface SqlService {
 
   /**
-   * 编译sql
+   * 获取SQL模板
+   *
+   * @param sql sql
+   * @return SQL模板
+   */
+  default SqlTemplate getTemplate(String sql) {
+    return SqlTemplate.compile(sql);
+  }
+
+  /**
+   * 编译sql, 将参数值直接写入SQL
    *
    * @param sql        sql
    * @param parameters 参数
    * @return 编译后的sql
    */
   default String compile(String sql, Map<String, Object> parameters) {
-    String result = sql;
-    for (String key : parameters.keySet()) {
-      result = result.replaceAll(String.format("#\\{%s}", key), parameters.get(key).toString());
-    }
-    return result;
+    return getTemplate(sql).render(parameters);
+  }
+
+  /**
+   * 绑定sql参数, 将参数替换为JDBC占位符
+   *
+   * @param sql        sql
+   * @param parameters 参数
+   * @return 绑定参数的sql
+   */
+  default BoundSql bind(String sql, Map<String, Object> parameters) {
+    return getTemplate(sql).bind(parameters);
+  }
+
+  /**
+   * 分析查询语句
+   *
+   * @param dbType 数据库类型
+   * @param sql    sql
+   * @return 查询语句分析结果
+   */
+  default SelectAnalysis analyze(DbType dbType, String sql) {
+    return SelectAnalysis.analyze(dbType, sql);
   }
 
   /**
@@ -33,4 +64,32 @@ public interface SqlService {
    * @throws NoSuchWallProviderException 没有找到SQL防火墙异常
    */
   boolean isInjection(DbType dbType, String sql) throws NoSuchWallProviderException;
+
+  /**
+   * 检查sql注入
+   *
+   * @param dbType 数据库类型
+   * @param sql    sql
+   * @return 检查结果, 实现不提供违规详情时违规列表为空
+   * @throws NoSuchWallProviderException 没有找到SQL防火墙异常
+   */
+  default SqlCheckResult check(DbType dbType, String sql) throws NoSuchWallProviderException {
+    return new SqlCheckResult(sql, isInjection(dbType, sql), List.of());
+  }
+
+  /**
+   * 批量检查sql注入
+   *
+   * @param dbType 数据库类型
+   * @param sqls   sql列表
+   * @return 与sql列表顺序一致的检查结果
+   * @throws NoSuchWallProviderException 没有找到SQL防火墙异常
+   */
+  default List<SqlCheckResult> isInjection(DbType dbType, Collection<String> sqls) throws NoSuchWallProviderException {
+    List<SqlCheckResult> result = new ArrayList<>(sqls.size());
+    for (String sql : sqls) {
+      result.add(check(dbType, sql));
+    }
+    return result;
+  }
 }
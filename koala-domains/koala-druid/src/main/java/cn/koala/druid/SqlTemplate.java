@@ -0,0 +1,226 @@
+package cn.koala.druid;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的SQL模板
+ * <p>
+ * 编译时将SQL中的#{name}参数解析为片段列表, 渲染时只需遍历一次片段; 模板不可变, 可缓存并在多线程中复用
+ * <p>
+ * 单引号字符串中的参数整体视为一个字符串片段, 绑定时整个字符串替换为一个JDBC占位符,
+ * 例如'#{name}%'绑定为?与参数值"admin%"
+ *
+ * @author Houtaroy
+ */
+public class SqlTemplate {
+  private static final String PARAMETER_PREFIX = "#{";
+  private static final char PARAMETER_SUFFIX = '}';
+  private static final char QUOTE = '\'';
+  private static final String ESCAPED_QUOTE = "''";
+  private static final char PLACEHOLDER = '?';
+  private static final int PARAMETER_LENGTH_ESTIMATE = 8;
+  private static final int NOT_FOUND = -1;
+
+  @Getter
+  private final String sql;
+  private final List<Segment> segments;
+  @Getter
+  private final List<String> parameterNames;
+
+  /**
+   * 构造函数
+   *
+   * @param sql      sql
+   * @param segments 片段列表
+   */
+  protected SqlTemplate(String sql, List<Segment> segments) {
+    this.sql = sql;
+    this.segments = segments;
+    List<String> names = new ArrayList<>();
+    segments.forEach(segment -> segment.collectNames(names));
+    this.parameterNames = Collections.unmodifiableList(names);
+  }
+
+  /**
+   * 编译SQL模板
+   *
+   * @param sql sql
+   * @return SQL模板
+   */
+  public static SqlTemplate compile(String sql) {
+    return new SqlTemplate(sql, parse(sql, true));
+  }
+
+  /**
+   * 将参数值直接写入SQL, 未提供的参数保留原样
+   *
+   * @param parameters 参数
+   * @return 渲染后的sql
+   */
+  public String render(Map<String, Object> parameters) {
+    StringBuilder result = new StringBuilder(sql.length() + parameterNames.size() * PARAMETER_LENGTH_ESTIMATE);
+    segments.forEach(segment -> segment.render(result, parameters));
+    return result.toString();
+  }
+
+  /**
+   * 将参数替换为JDBC占位符, 参数值按占位符顺序放入绑定参数列表
+   *
+   * @param parameters 参数
+   * @return 绑定参数的sql
+   * @throws IllegalArgumentException 缺少参数
+   */
+  public BoundSql bind(Map<String, Object> parameters) {
+    StringBuilder result = new StringBuilder(sql.length());
+    List<Object> values = new ArrayList<>(parameterNames.size());
+    segments.forEach(segment -> segment.bind(result, values, parameters));
+    return new BoundSql(result.toString(), values);
+  }
+
+  /**
+   * 解析片段列表
+   *
+   * @param text   文本
+   * @param quotes 是否识别单引号字符串
+   * @return 片段列表
+   */
+  protected static List<Segment> parse(String text, boolean quotes) {
+    List<Segment> result = new ArrayList<>();
+    StringBuilder literal = new StringBuilder();
+    int index = 0;
+    while (index < text.length()) {
+      int quoteEnd = quotes && text.charAt(index) == QUOTE ? quoteEnd(text, index) : NOT_FOUND;
+      int parameterEnd = text.startsWith(PARAMETER_PREFIX, index) ? text.indexOf(PARAMETER_SUFFIX, index) : NOT_FOUND;
+      int nextParameter = quoteEnd > 0 ? text.indexOf(PARAMETER_PREFIX, index) : NOT_FOUND;
+      boolean quotedParameter = nextParameter > index && nextParameter < quoteEnd;
+      if (quotedParameter) {
+        addLiteral(result, literal);
+        result.add(Segment.quoted(parse(text.substring(index + 1, quoteEnd), false)));
+        index = quoteEnd + 1;
+      } else if (quoteEnd > 0) {
+        literal.append(text, index, quoteEnd + 1);
+        index = quoteEnd + 1;
+      } else if (parameterEnd > 0) {
+        addLiteral(result, literal);
+        result.add(Segment.parameter(text.substring(index + PARAMETER_PREFIX.length(), parameterEnd)));
+        index = parameterEnd + 1;
+      } else {
+        literal.append(text.charAt(index++));
+      }
+    }
+    addLiteral(result, literal);
+    return result;
+  }
+
+  private static int quoteEnd(String text, int start) {
+    int index = start + 1;
+    while (index < text.length()) {
+      if (text.charAt(index) != QUOTE) {
+        index++;
+      } else if (text.startsWith(ESCAPED_QUOTE, index)) {
+        index += ESCAPED_QUOTE.length();
+      } else {
+        return index;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  private static void addLiteral(List<Segment> segments, StringBuilder literal) {
+    if (literal.length() > 0) {
+      segments.add(Segment.literal(literal.toString()));
+      literal.setLength(0);
+    }
+  }
+
+  /**
+   * SQL模板片段: 文本, 参数或包含参数的单引号字符串
+   *
+   * @author Houtaroy
+   */
+  protected static final class Segment {
+    private final String text;
+    private final String name;
+    private final List<Segment> children;
+
+    private Segment(String text, String name, List<Segment> children) {
+      this.text = text;
+      this.name = name;
+      this.children = children;
+    }
+
+    static Segment literal(String text) {
+      return new Segment(text, null, null);
+    }
+
+    static Segment parameter(String name) {
+      return new Segment(null, name, null);
+    }
+
+    static Segment quoted(List<Segment> children) {
+      return new Segment(null, null, children);
+    }
+
+    void collectNames(List<String> names) {
+      if (name != null) {
+        names.add(name);
+      } else if (children != null) {
+        children.forEach(child -> child.collectNames(names));
+      }
+    }
+
+    void render(StringBuilder out, Map<String, Object> parameters) {
+      if (text != null) {
+        out.append(text);
+      } else if (name != null) {
+        renderParameter(out, parameters);
+      } else {
+        out.append(QUOTE);
+        children.forEach(child -> child.render(out, parameters));
+        out.append(QUOTE);
+      }
+    }
+
+    void bind(StringBuilder out, List<Object> values, Map<String, Object> parameters) {
+      if (text != null) {
+        out.append(text);
+        return;
+      }
+      if (name != null && !parameters.containsKey(name)) {
+        throw new IllegalArgumentException(String.format("缺少SQL参数[%s]", name));
+      }
+      out.append(PLACEHOLDER);
+      if (name != null) {
+        values.add(parameters.get(name));
+      } else {
+        StringBuilder value = new StringBuilder();
+        children.forEach(child -> child.renderBound(value, parameters));
+        values.add(value.toString());
+      }
+    }
+
+    private void renderBound(StringBuilder out, Map<String, Object> parameters) {
+      if (name != null && !parameters.containsKey(name)) {
+        throw new IllegalArgumentException(String.format("缺少SQL参数[%s]", name));
+      }
+      if (text == null) {
+        render(out, parameters);
+      } else {
+        out.append(text.replace(ESCAPED_QUOTE, String.valueOf(QUOTE)));
+      }
+    }
+
+    private void renderParameter(StringBuilder out, Map<String, Object> parameters) {
+      if (parameters.containsKey(name)) {
+        out.append(parameters.get(name));
+      } else {
+        out.append(PARAMETER_PREFIX).append(name).append(PARAMETER_SUFFIX);
+      }
+    }
+  }
+}
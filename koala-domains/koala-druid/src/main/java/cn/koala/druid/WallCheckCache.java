@@ -0,0 +1,226 @@
+package cn.koala.druid;
+
+import com.alibaba.druid.DbType;
+import com.alibaba.druid.wall.WallCheckResult;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 防火墙检查结果缓存
+ * <p>
+ * 以(数据库类型, 规范化后的SQL)为键缓存检查结果, 只缓存长度不超过{@link #getMaxSqlLength()}的SQL,
+ * 条目数量超过{@link #getMaxSize()}时淘汰最久未被访问的条目
+ * <p>
+ * 规范化只去除首尾空白并将引号外的连续空白合并为一个空格; 引号外出现注释、方括号标识符([a b])、美元符号($$字符串体与
+ * $1参数)、Oracle替代引号(q'[...]')或引号内出现反斜杠时, 其后的内容保持原样, 保证含义不同的SQL不会得到相同的键;
+ * 检查始终使用原始SQL
+ * <p>
+ * 每个数据库类型有独立的版本, {@link #invalidate(DbType)}后旧版本的条目被移除, 检查中的旧版本结果写入后也不会再被读取
+ * <p>
+ * 缓存的检查结果在调用方之间共享, 不应修改
+ *
+ * @author Houtaroy
+ */
+public class WallCheckCache {
+  public static final int DEFAULT_MAX_SIZE = 4096;
+  public static final int DEFAULT_MAX_SQL_LENGTH = 8192;
+  private static final char ESCAPE = '\\';
+  private static final char HASH_COMMENT = '#';
+  private static final String LINE_COMMENT = "--";
+  private static final String BLOCK_COMMENT = "/*";
+  private static final char SPACE = ' ';
+  private static final String QUOTES = "'\"`";
+  private static final String VERBATIM_STARTS = "[$";
+  private static final char SINGLE_QUOTE = '\'';
+  private static final String ALTERNATIVE_QUOTE_PREFIX = "qQ";
+
+  @Getter
+  private final int maxSqlLength;
+  private final LruCache<Key, WallCheckResult> entries;
+  private final Map<DbType, Long> generations = new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * 构造函数
+   */
+  public WallCheckCache() {
+    this(DEFAULT_MAX_SIZE, DEFAULT_MAX_SQL_LENGTH);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param maxSize      缓存的最大条目数量
+   * @param maxSqlLength 可缓存SQL的最大长度
+   */
+  public WallCheckCache(int maxSize, int maxSqlLength) {
+    this.maxSqlLength = maxSqlLength;
+    this.entries = new LruCache<>(maxSize);
+  }
+
+  /**
+   * 查询检查结果, 未命中时执行检查并写入缓存
+   *
+   * @param dbType 数据库类型
+   * @param sql    sql
+   * @param loader 检查函数, 参数为原始SQL
+   * @return 检查结果
+   */
+  public WallCheckResult get(DbType dbType, String sql, Function<String, WallCheckResult> loader) {
+    if (sql == null || sql.length() > maxSqlLength) {
+      return loader.apply(sql);
+    }
+    Key key = new Key(dbType, generations.getOrDefault(dbType, 0L), normalize(sql));
+    WallCheckResult result = entries.get(key);
+    if (result != null) {
+      hits.increment();
+      return result;
+    }
+    misses.increment();
+    result = loader.apply(sql);
+    return result != null ? entries.putIfAbsent(key, result) : null;
+  }
+
+  /**
+   * 使数据库类型的缓存失效
+   *
+   * @param dbType 数据库类型
+   */
+  public void invalidate(DbType dbType) {
+    long generation = generations.merge(dbType, 1L, Long::sum);
+    entries.removeIf(key -> key.dbType == dbType && key.generation < generation);
+  }
+
+  /**
+   * 获取缓存的最大条目数量
+   *
+   * @return 缓存的最大条目数量
+   */
+  public int getMaxSize() {
+    return entries.getMaxSize();
+  }
+
+  /**
+   * 获取缓存条目数量
+   *
+   * @return 缓存条目数量
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * 获取命中次数
+   *
+   * @return 命中次数
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * 获取未命中次数
+   *
+   * @return 未命中次数
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * 获取淘汰次数
+   *
+   * @return 淘汰次数
+   */
+  public long getEvictions() {
+    return entries.getEvictions();
+  }
+
+  /**
+   * 获取命中率
+   *
+   * @return 命中率, 没有查询时为0
+   */
+  public double getHitRate() {
+    long hit = getHits();
+    long total = hit + getMisses();
+    return total == 0 ? 0 : (double) hit / total;
+  }
+
+  /**
+   * 规范化SQL
+   *
+   * @param sql sql
+   * @return 规范化后的sql
+   */
+  public static String normalize(String sql) {
+    String text = sql.strip();
+    StringBuilder result = new StringBuilder(text.length());
+    char quote = 0;
+    int index = 0;
+    while (index < text.length()) {
+      char current = text.charAt(index);
+      boolean verbatim = quote == 0 ? isVerbatimStart(text, index) : current == ESCAPE;
+      if (verbatim) {
+        return result.append(text, index, text.length()).toString();
+      }
+      if (quote == 0 && Character.isWhitespace(current)) {
+        index = skipWhitespace(text, index);
+        result.append(SPACE);
+        continue;
+      }
+      if (quote == 0 && QUOTES.indexOf(current) >= 0) {
+        quote = current;
+      } else if (current == quote) {
+        quote = 0;
+      }
+      result.append(current);
+      index++;
+    }
+    return result.toString();
+  }
+
+  /**
+   * 引号外的内容是否需要从此处开始保持原样: 注释、方言相关的标识符或字符串
+   *
+   * @param text  sql
+   * @param index 位置
+   * @return 是否保持原样
+   */
+  private static boolean isVerbatimStart(String text, int index) {
+    char current = text.charAt(index);
+    boolean alternativeQuote = current == SINGLE_QUOTE && index > 0
+      && ALTERNATIVE_QUOTE_PREFIX.indexOf(text.charAt(index - 1)) >= 0;
+    boolean comment = current == HASH_COMMENT || text.startsWith(LINE_COMMENT, index)
+      || text.startsWith(BLOCK_COMMENT, index);
+    return comment || alternativeQuote || VERBATIM_STARTS.indexOf(current) >= 0;
+  }
+
+  private static int skipWhitespace(String text, int start) {
+    int index = start;
+    while (index < text.length() && Character.isWhitespace(text.charAt(index))) {
+      index++;
+    }
+    return index;
+  }
+
+  /**
+   * 缓存键
+   *
+   * @author Houtaroy
+   */
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  protected static class Key {
+    private final DbType dbType;
+    private final long generation;
+    private final String sql;
+  }
+}
@@ -0,0 +1,187 @@
+package cn.koala.druid;
+
+import cn.koala.constant.Int;
+import com.alibaba.druid.DbType;
+import com.alibaba.druid.wall.spi.MySqlWallProvider;
+import com.alibaba.druid.wall.spi.PGWallProvider;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @author Houtaroy
+ */
+public class SqlQueryServiceTest {
+  private static final int ROWS = 100;
+  private static final int FETCH_SIZE = 10;
+  private static final String[] LABELS = {"id", "username", "score"};
+  private static final int[] TYPES = {Types.BIGINT, Types.VARCHAR, Types.DECIMAL};
+
+  private final List<Object> parameters = new ArrayList<>();
+  private final AtomicInteger fetchSize = new AtomicInteger();
+  private final AtomicInteger fetched = new AtomicInteger();
+  private final AtomicBoolean forwardOnly = new AtomicBoolean();
+  private final AtomicBoolean closed = new AtomicBoolean();
+  private final AtomicBoolean connected = new AtomicBoolean();
+
+  /**
+   * 逐行回调, 参数绑定为占位符, 列名与类型来自查询列与JDBC类型
+   *
+   * @throws Exception 异常
+   */
+  @Test
+  void query() throws Exception {
+    SqlQueryService service = new SqlQueryService(dataSource(), sqlService(), FETCH_SIZE);
+    String sql = "select t.id, t.name as username, t.score from t_user t where t.name like '#{name}%'";
+    List<QueryRow> rows = new ArrayList<>();
+    long count = service.query(DbType.postgresql, sql, Map.of("name", "admin"), rows::add);
+    Assertions.assertEquals(count, ROWS);
+    Assertions.assertEquals(parameters, List.of("admin%"));
+    Assertions.assertEquals(fetchSize.get(), FETCH_SIZE);
+    Assertions.assertTrue(forwardOnly.get());
+    Assertions.assertTrue(closed.get());
+    QueryColumn column = rows.get(0).getColumns().get(1);
+    Assertions.assertEquals(column.getName(), "username");
+    Assertions.assertEquals(column.getTable(), "t_user");
+    Assertions.assertEquals(column.getJavaType(), String.class);
+    Assertions.assertEquals(rows.get(1).get("ID", Long.class), Int.INT_2);
+    Assertions.assertEquals(rows.get(1).toMap().keySet(), List.of(LABELS).stream().collect(Collectors.toSet()));
+  }
+
+  /**
+   * 行流只读取消费的行, 关闭流时释放连接
+   *
+   * @throws Exception 异常
+   */
+  @Test
+  void stream() throws Exception {
+    SqlQueryService service = new SqlQueryService(dataSource(), sqlService(), FETCH_SIZE);
+    try (Stream<QueryRow> rows = service.stream(DbType.mysql, "select * from t_user", new HashMap<>())) {
+      Assertions.assertEquals(rows.limit(Int.INT_4).count(), Int.INT_4);
+      Assertions.assertEquals(fetched.get(), Int.INT_4);
+      Assertions.assertEquals(fetchSize.get(), Integer.MIN_VALUE);
+    }
+    Assertions.assertTrue(closed.get());
+  }
+
+  /**
+   * 列标签与查询列逐一对应时按位置区分同名列, 数量相同但标签不一致时按列标签对应
+   *
+   * @throws Exception 异常
+   */
+  @Test
+  void project() throws Exception {
+    List<QueryColumn> same = SqlQueryService.project(metaData("id", "ID"),
+      List.of(new SelectColumn("t_user", "id", null), new SelectColumn("t_role", "id", null)));
+    Assertions.assertEquals(same.get(1).getTable(), "t_role");
+    List<QueryColumn> shifted = SqlQueryService.project(metaData("a", "1", "2"), List.of(
+      new SelectColumn("t", "a", null), new SelectColumn("t", "a", null), new SelectColumn("x", "a", null)));
+    Assertions.assertEquals(shifted.get(0).getName(), "a");
+    Assertions.assertEquals(shifted.get(1).getName(), "1");
+    Assertions.assertEquals(shifted.get(1).getTable(), "t_user");
+    Assertions.assertNull(shifted.get(2).getSelectColumn());
+  }
+
+  /**
+   * 非查询语句与存在注入的语句在获取连接前被拒绝
+   */
+  @Test
+  void reject() {
+    SqlQueryService service = new SqlQueryService(dataSource(), sqlService(), FETCH_SIZE);
+    Map<String, Object> parameters = Map.of("id", 1);
+    Assertions.assertThrows(IllegalArgumentException.class,
+      () -> service.query(DbType.mysql, "delete from t_user where id = #{id}", parameters, row -> { }));
+    Assertions.assertThrows(IllegalArgumentException.class,
+      () -> service.stream(DbType.mysql, "select * from t_user where id = #{id} or 1 = 1", parameters));
+    Assertions.assertFalse(connected.get());
+  }
+
+  private InMemorySqlService sqlService() {
+    InMemorySqlService result = new InMemorySqlService();
+    result.addWallProvider(DbType.mysql, new MySqlWallProvider());
+    result.addWallProvider(DbType.postgresql, new PGWallProvider());
+    return result;
+  }
+
+  private DataSource dataSource() {
+    return proxy(DataSource.class, Map.of("getConnection", args -> {
+      connected.set(true);
+      return connection();
+    }));
+  }
+
+  private Connection connection() {
+    Map<String, Function<Object[], Object>> methods = new HashMap<>();
+    methods.put("getAutoCommit", args -> true);
+    methods.put("prepareStatement", args -> {
+      forwardOnly.set((int) args[1] == ResultSet.TYPE_FORWARD_ONLY);
+      return statement();
+    });
+    methods.put("close", args -> {
+      closed.set(true);
+      return null;
+    });
+    return proxy(Connection.class, methods);
+  }
+
+  private PreparedStatement statement() {
+    Map<String, Function<Object[], Object>> methods = new HashMap<>();
+    methods.put("setFetchSize", args -> {
+      fetchSize.set((int) args[0]);
+      return null;
+    });
+    methods.put("setObject", args -> parameters.add(args[1]));
+    methods.put("executeQuery", args -> resultSet());
+    return proxy(PreparedStatement.class, methods);
+  }
+
+  private ResultSet resultSet() {
+    AtomicInteger row = new AtomicInteger();
+    Map<String, Function<Object[], Object>> methods = new HashMap<>();
+    methods.put("next", args -> {
+      fetched.incrementAndGet();
+      return row.incrementAndGet() <= ROWS;
+    });
+    methods.put("getLong", args -> (long) row.get());
+    methods.put("getString", args -> "user" + row.get());
+    methods.put("getBigDecimal", args -> BigDecimal.valueOf(row.get()));
+    methods.put("wasNull", args -> false);
+    methods.put("getMetaData", args -> metaData());
+    return proxy(ResultSet.class, methods);
+  }
+
+  private ResultSetMetaData metaData() {
+    return metaData(LABELS);
+  }
+
+  private ResultSetMetaData metaData(String... labels) {
+    Map<String, Function<Object[], Object>> methods = new HashMap<>();
+    methods.put("getColumnCount", args -> labels.length);
+    methods.put("getColumnLabel", args -> labels[(int) args[0] - 1]);
+    methods.put("getColumnType", args -> TYPES[((int) args[0] - 1) % TYPES.length]);
+    methods.put("getTableName", args -> "t_user");
+    return proxy(ResultSetMetaData.class, methods);
+  }
+
+  private static <T> T proxy(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+      (instance, method, args) -> methods.getOrDefault(method.getName(), arguments -> null).apply(args)));
+  }
+}
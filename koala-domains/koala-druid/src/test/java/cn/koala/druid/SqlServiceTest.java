@@ -1,17 +1,25 @@
 package cn.koala.druid;
 
+import cn.koala.constant.Int;
 import com.alibaba.druid.DbType;
+import com.alibaba.druid.wall.WallCheckResult;
 import com.alibaba.druid.wall.spi.MySqlWallProvider;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * @author Houtaroy
  */
 public class SqlServiceTest {
+  private static final int WALL_CACHE_SIZE = 2;
+  private static final int WALL_CACHE_HITS = 3;
 
   /**
    * SQL编译测试
@@ -27,6 +35,64 @@ public class SqlServiceTest {
       "select * from t_user where id = 1 and name like 'admin%'");
   }
 
+  /**
+   * 参数值按原样写入, 未提供的参数保留原样, 模板按SQL缓存, 超出上限时淘汰最久未被访问的模板
+   */
+  @Test
+  void render() {
+    SqlService sqlService = new InMemorySqlService();
+    String sql = "select * from t_user where id = #{id} and remark = '#{remark}' and code = #{code}";
+    Map<String, Object> parameters = new HashMap<>();
+    parameters.put("id", "$1");
+    parameters.put("remark", "a\\b");
+    Assertions.assertEquals(sqlService.compile(sql, parameters),
+      "select * from t_user where id = $1 and remark = 'a\\b' and code = #{code}");
+    Assertions.assertSame(sqlService.getTemplate(sql), sqlService.getTemplate(sql));
+    Assertions.assertEquals(sqlService.getTemplate(sql).getParameterNames(), List.of("id", "remark", "code"));
+    SqlService limited = new InMemorySqlService(WALL_CACHE_SIZE);
+    SqlTemplate template = limited.getTemplate(sql);
+    limited.getTemplate("select 1");
+    limited.getTemplate(sql);
+    limited.getTemplate("select 2");
+    Assertions.assertSame(template, limited.getTemplate(sql));
+  }
+
+  /**
+   * 参数替换为JDBC占位符, 单引号字符串中的参数整体绑定
+   */
+  @Test
+  void bind() {
+    SqlService sqlService = new InMemorySqlService();
+    String sql = "select * from t_user where id = #{id} and name like '#{name}%' and type = 'it''s'";
+    Map<String, Object> parameters = new HashMap<>();
+    parameters.put("id", 1);
+    parameters.put("name", "admin");
+    BoundSql bound = sqlService.bind(sql, parameters);
+    Assertions.assertEquals(bound.getSql(), "select * from t_user where id = ? and name like ? and type = 'it''s'");
+    Assertions.assertEquals(bound.getParameters(), List.of(1, "admin%"));
+    parameters.remove("name");
+    Assertions.assertThrows(IllegalArgumentException.class, () -> sqlService.bind(sql, parameters));
+  }
+
+  /**
+   * 查询语句分析结果按规范化后的SQL缓存
+   */
+  @Test
+  void analyze() {
+    SqlService sqlService = new InMemorySqlService();
+    String sql = "select t.id, t.name as username from t_user t where t.name = '#{name}'";
+    SelectAnalysis analysis = sqlService.analyze(DbType.mysql, sql);
+    Assertions.assertEquals(analysis.getTables().get(0).getName(), "t_user");
+    Assertions.assertEquals(analysis.getColumns().get(1).getAlias(), "username");
+    Assertions.assertEquals(analysis.getParameters(), List.of("name"));
+    Assertions.assertSame(analysis, sqlService.analyze(DbType.mysql, sql.replace(" from ", "\n  from ")));
+    Assertions.assertNotSame(analysis, sqlService.analyze(DbType.postgresql, sql));
+    Assertions.assertThrows(UnsupportedOperationException.class, () -> analysis.getParameters().add("id"));
+    Assertions.assertThrows(UnsupportedOperationException.class, () -> analysis.getColumns().get(1).setAlias("x"));
+    Assertions.assertThrows(UnsupportedOperationException.class, () -> analysis.getTables().get(0).setName("x"));
+    Assertions.assertEquals(analysis.getColumns().get(1), new SelectColumn("t_user", "name", "username"));
+  }
+
   /**
    * 检查SQL语句
    * 包含正确/错误/语法异常/存在SQL注入
@@ -47,4 +113,71 @@ public class SqlServiceTest {
       "no such WallProvider for database dm, you can add one by yourself"
     );
   }
+
+  /**
+   * 批量检查结果与输入顺序一致, 并行与依次检查的结果相同
+   *
+   * @throws NoSuchWallProviderException 无对应数据库的WallProvider
+   */
+  @Test
+  void checkBatch() throws NoSuchWallProviderException {
+    InMemorySqlService sqlService = new InMemorySqlService();
+    sqlService.addWallProvider(DbType.mysql, new MySqlWallProvider());
+    List<String> sqls = new ArrayList<>();
+    for (int i = 0; i < Int.INT_16; i++) {
+      sqls.add(String.format("select * from t_user where id = %d", i));
+      sqls.add(String.format("select * from t_user where id = %d and 1 = 1", i));
+    }
+    List<SqlCheckResult> sequential = sqlService.isInjection(DbType.mysql, sqls);
+    ExecutorService executor = Executors.newFixedThreadPool(Int.INT_4);
+    try {
+      sqlService.setCheckExecutor(executor);
+      List<SqlCheckResult> parallel = sqlService.isInjection(DbType.mysql, sqls);
+      for (int i = 0; i < sqls.size(); i++) {
+        Assertions.assertEquals(parallel.get(i).getSql(), sqls.get(i));
+        Assertions.assertEquals(parallel.get(i).isInjection(), i % Int.INT_2 == 1);
+        Assertions.assertEquals(parallel.get(i).isInjection(), sequential.get(i).isInjection());
+      }
+      Assertions.assertFalse(parallel.get(1).getViolations().isEmpty());
+      sqlService.addWallProvider(DbType.mysql, new MySqlWallProvider() {
+        @Override
+        public WallCheckResult check(String sql) {
+          throw new IllegalStateException(sql);
+        }
+      });
+      Assertions.assertThrows(IllegalStateException.class, () -> sqlService.isInjection(DbType.mysql, sqls));
+    } finally {
+      executor.shutdown();
+    }
+    Assertions.assertThrows(NoSuchWallProviderException.class, () -> sqlService.isInjection(DbType.dm, sqls));
+  }
+
+  /**
+   * 防火墙检查结果按规范化后的SQL缓存, 超出上限时淘汰最久未被访问的结果, 替换防火墙后缓存失效
+   *
+   * @throws NoSuchWallProviderException 无对应数据库的WallProvider
+   */
+  @Test
+  void wallCheckCache() throws NoSuchWallProviderException {
+    WallCheckCache cache = new WallCheckCache(WALL_CACHE_SIZE, WallCheckCache.DEFAULT_MAX_SQL_LENGTH);
+    InMemorySqlService sqlService = new InMemorySqlService(InMemorySqlService.DEFAULT_MAX_TEMPLATES, cache);
+    sqlService.addWallProvider(DbType.mysql, new MySqlWallProvider());
+    String sql = "select * from t_user where id = 1 and name = 'a  b'";
+    WallCheckResult result = sqlService.wallCheck(DbType.mysql, sql);
+    Assertions.assertSame(result, sqlService.wallCheck(DbType.mysql, String.format("  %s%n", sql.replace(" where ", "\n  where\t"))));
+    Assertions.assertNotSame(result, sqlService.wallCheck(DbType.mysql, sql.replace("a  b", "a b")));
+    Assertions.assertSame(result, sqlService.wallCheck(DbType.mysql, sql));
+    Assertions.assertTrue(sqlService.isInjection(DbType.mysql, "select * from t_user where id = 1 and 1 = 1"));
+    Assertions.assertSame(result, sqlService.wallCheck(DbType.mysql, sql));
+    Assertions.assertEquals(cache.getHits(), WALL_CACHE_HITS);
+    Assertions.assertEquals(cache.getMisses(), WALL_CACHE_SIZE + 1);
+    Assertions.assertEquals(cache.size(), WALL_CACHE_SIZE);
+    Assertions.assertEquals(cache.getEvictions(), 1);
+    sqlService.addWallProvider(DbType.mysql, new MySqlWallProvider());
+    Assertions.assertEquals(cache.size(), 0);
+    Assertions.assertEquals(WallCheckCache.normalize("select 1 -- a  b\n  or 1 = 1"), "select 1 -- a  b\n  or 1 = 1");
+    Assertions.assertEquals(WallCheckCache.normalize("select  [a  b] from t"), "select [a  b] from t");
+    Assertions.assertEquals(WallCheckCache.normalize("select  $$a  b$$"), "select $$a  b$$");
+    Assertions.assertEquals(WallCheckCache.normalize("select  q'[a ' b  c]'"), "select q'[a ' b  c]'");
+  }
 }
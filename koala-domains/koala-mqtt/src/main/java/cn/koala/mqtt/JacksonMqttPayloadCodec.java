@@ -0,0 +1,44 @@
+package cn.koala.mqtt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.messaging.converter.MessageConversionException;
+
+import java.io.IOException;
+
+/**
+ * 基于Jackson的Mqtt消息编解码器
+ * <p>
+ * 使用对应格式的ObjectMapper即可支持JSON以外的格式, 如基于CBORFactory的ObjectMapper
+ *
+ * @author Houtaroy
+ */
+public class JacksonMqttPayloadCodec implements MqttPayloadCodec {
+  private final ObjectMapper objectMapper;
+
+  /**
+   * 构造函数
+   *
+   * @param objectMapper ObjectMapper
+   */
+  public JacksonMqttPayloadCodec(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public byte[] encode(Object value) {
+    try {
+      return objectMapper.writeValueAsBytes(value);
+    } catch (IOException e) {
+      throw new MessageConversionException("Failed to encode MQTT payload", e);
+    }
+  }
+
+  @Override
+  public <T> T decode(byte[] payload, Class<T> type) {
+    try {
+      return objectMapper.readValue(payload, type);
+    } catch (IOException e) {
+      throw new MessageConversionException("Failed to decode MQTT payload", e);
+    }
+  }
+}
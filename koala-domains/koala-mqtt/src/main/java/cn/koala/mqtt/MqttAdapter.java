@@ -19,16 +19,20 @@ import org.springframework.integration.mqtt.core.MqttPahoComponent;
 import org.springframework.integration.mqtt.event.MqttConnectionFailedEvent;
 import org.springframework.integration.mqtt.event.MqttSubscribedEvent;
 import org.springframework.integration.mqtt.inbound.AbstractMqttMessageDrivenChannelAdapter;
+import org.springframework.integration.mqtt.support.MqttHeaders;
 import org.springframework.integration.mqtt.support.MqttUtils;
 import org.springframework.integration.support.AbstractIntegrationMessageBuilder;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
 import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.converter.MessageConversionException;
 import org.springframework.messaging.support.GenericMessage;
 import org.springframework.util.Assert;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.concurrent.ScheduledFuture;
 
 /**
@@ -50,6 +54,8 @@ public class MqttAdapter extends AbstractMqttMessageDrivenChannelAdapter
 
   private static final int DEFAULT_RECOVERY_INTERVAL = 10_000;
 
+  private static final String SHARED_SUBSCRIPTION_PREFIX = "$share/";
+
   private final MqttPahoClientFactory clientFactory;
 
   private int recoveryInterval = DEFAULT_RECOVERY_INTERVAL;
@@ -72,6 +78,20 @@ public class MqttAdapter extends AbstractMqttMessageDrivenChannelAdapter
 
   private volatile ConsumerStopAction consumerStopAction;
 
+  private volatile MqttInboundDispatcher dispatcher;
+
+  private volatile String sharedGroup;
+
+  private final MqttTopicTrie<IMqttMessageListener> sharedListeners = new MqttTopicTrie<>();
+
+  private volatile MqttReconnectBackoff backoff;
+
+  private volatile MqttObserver observer;
+
+  private int reconnectAttempts;
+
+  private volatile long disconnectedAt;
+
   /**
    * Use this constructor for a single url (although it may be overridden if the server
    * URI(s) are provided by the {@link MqttConnectOptions#getServerURIs()} provided by
@@ -163,6 +183,52 @@ public class MqttAdapter extends AbstractMqttMessageDrivenChannelAdapter
     this.manualAcks = manualAcks;
   }
 
+  /**
+   * 设置入站消息异步分发器, 为null时在Paho回调线程中同步发送消息
+   *
+   * @param dispatcher 入站消息异步分发器
+   */
+  public void setDispatcher(MqttInboundDispatcher dispatcher) {
+    this.dispatcher = dispatcher;
+  }
+
+  /**
+   * 设置重连退避策略, 为null时按固定的recoveryInterval重连
+   *
+   * @param backoff 重连退避策略
+   */
+  public void setBackoff(MqttReconnectBackoff backoff) {
+    this.backoff = backoff;
+  }
+
+  /**
+   * 设置观察者, 用于采集连接与入站消息的指标
+   *
+   * @param observer 观察者, 为null时不回调
+   */
+  public void setObserver(MqttObserver observer) {
+    this.observer = observer;
+  }
+
+  /**
+   * 获取当前已断开的时长
+   *
+   * @return 已断开的时长(纳秒), 未断开时为0
+   */
+  public long getDisconnectedNanos() {
+    long at = this.disconnectedAt;
+    return at == 0 ? 0 : System.nanoTime() - at;
+  }
+
+  /**
+   * 设置共享订阅组, 设置后以$share/{group}/{topic}的形式订阅, 同组的客户端分摊消息
+   *
+   * @param sharedGroup 共享订阅组, 为null时不使用共享订阅
+   */
+  public void setSharedGroup(String sharedGroup) {
+    this.sharedGroup = sharedGroup;
+  }
+
   /**
    * @since 4.2.2
    */
@@ -188,6 +254,11 @@ public class MqttAdapter extends AbstractMqttMessageDrivenChannelAdapter
   @Override
   protected void doStart() {
     Assert.state(getTaskScheduler() != null, "A 'taskScheduler' is required");
+    if (this.dispatcher != null) {
+      Assert.state(this.manualAcks || this.dispatcher.getBackpressure() != MqttBackpressure.NACK,
+        "NACK backpressure requires manual acks");
+      this.dispatcher.start(this::handleArrived);
+    }
     try {
       connectAndSubscribe();
     } catch (Exception ex) {
@@ -205,11 +276,12 @@ public class MqttAdapter extends AbstractMqttMessageDrivenChannelAdapter
           || (this.consumerStopAction.equals(ConsumerStopAction.UNSUBSCRIBE_CLEAN)
           && this.cleanSession)) {
 
-          this.client.unsubscribe(getTopic());
+          this.client.unsubscribe(toSubscriptions(getTopic()));
         }
       } catch (MqttException ex) {
         logger.error(ex, "Exception while unsubscribing");
       }
+      stopDispatcher();
       try {
         this.client.disconnectForcibly(this.disconnectCompletionTimeout);
       } catch (MqttException ex) {
@@ -226,6 +298,16 @@ public class MqttAdapter extends AbstractMqttMessageDrivenChannelAdapter
       this.connected = false;
       this.client = null;
     }
+    stopDispatcher();
+  }
+
+  /**
+   * 停止入站分发器并等待已入队的消息处理完成, 需在关闭客户端之前调用, 保证手动确认仍可发送
+   */
+  private void stopDispatcher() {
+    if (this.dispatcher != null) {
+      this.dispatcher.stop();
+    }
   }
 
   @Override
@@ -234,7 +316,7 @@ public class MqttAdapter extends AbstractMqttMessageDrivenChannelAdapter
     try {
       super.addTopic(topic, qos);
       if (this.client != null && this.client.isConnected()) {
-        this.client.subscribe(topic, qos);
+        this.client.subscribe(toSubscription(topic), qos);
       }
     } catch (MqttException e) {
       super.removeTopic(topic);
@@ -255,10 +337,17 @@ public class MqttAdapter extends AbstractMqttMessageDrivenChannelAdapter
     this.topicLock.lock();
     try {
       super.addTopic(topic, qos);
-      if (this.client != null && this.client.isConnected()) {
+      if (this.sharedGroup != null) {
+        // Paho按订阅的主题过滤器匹配监听器, 共享订阅的过滤器无法匹配实际主题, 因此由适配器分发
+        this.sharedListeners.add(topic, messageListener);
+        if (this.client != null && this.client.isConnected()) {
+          this.client.subscribe(toSubscription(topic), qos);
+        }
+      } else if (this.client != null && this.client.isConnected()) {
         this.client.subscribe(topic, qos, messageListener);
       }
-    } catch (MqttException e) {
+    } catch (MqttException | IllegalArgumentException e) {
+      this.sharedListeners.remove(topic);
       super.removeTopic(topic);
       throw new MessagingException("Failed to subscribe to topic " + topic, e);
     } finally {
@@ -271,9 +360,10 @@ public class MqttAdapter extends AbstractMqttMessageDrivenChannelAdapter
     this.topicLock.lock();
     try {
       if (this.client != null && this.client.isConnected()) {
-        this.client.unsubscribe(topic);
+        this.client.unsubscribe(toSubscriptions(topic));
       }
       super.removeTopic(topic);
+      Arrays.stream(topic).forEach(this.sharedListeners::remove);
     } catch (MqttException e) {
       throw new MessagingException("Failed to unsubscribe from topic(s) " + Arrays.toString(topic), e);
     } finally {
@@ -302,7 +392,9 @@ public class MqttAdapter extends AbstractMqttMessageDrivenChannelAdapter
       this.client.setManualAcks(this.manualAcks);
       int[] requestedQos = getQos();
       int[] grantedQos = Arrays.copyOf(requestedQos, requestedQos.length);
-      this.client.subscribe(topics, grantedQos);
+      long subscribeStart = System.nanoTime();
+      this.client.subscribe(toSubscriptions(topics), grantedQos);
+      notifySubscribed(subscribeStart);
       warnInvalidQosForSubscription(topics, requestedQos, grantedQos);
     } catch (MqttException ex) {
       if (this.applicationEventPublisher != null) {
@@ -326,6 +418,8 @@ public class MqttAdapter extends AbstractMqttMessageDrivenChannelAdapter
     }
     if (this.client.isConnected()) {
       this.connected = true;
+      this.reconnectAttempts = 0;
+      notifyReconnected();
       String message = "Connected and subscribed to " + Arrays.toString(topics);
       logger.debug(message);
       if (this.applicationEventPublisher != null) {
@@ -334,6 +428,24 @@ public class MqttAdapter extends AbstractMqttMessageDrivenChannelAdapter
     }
   }
 
+  /**
+   * 转换为订阅的主题过滤器, 设置共享订阅组时增加$share/{group}/前缀
+   *
+   * @param topic 主题
+   * @return 订阅的主题过滤器
+   */
+  protected String toSubscription(String topic) {
+    String group = this.sharedGroup;
+    if (group == null || topic.startsWith(SHARED_SUBSCRIPTION_PREFIX)) {
+      return topic;
+    }
+    return SHARED_SUBSCRIPTION_PREFIX + group + "/" + topic;
+  }
+
+  private String[] toSubscriptions(String... topics) {
+    return Arrays.stream(topics).map(this::toSubscription).toArray(String[]::new);
+  }
+
   private void warnInvalidQosForSubscription(String[] topics, int[] requestedQos, int[] grantedQos) {
     for (int i = 0; i < requestedQos.length; i++) {
       if (grantedQos[i] != requestedQos[i]) {
@@ -363,24 +475,55 @@ public class MqttAdapter extends AbstractMqttMessageDrivenChannelAdapter
               if (!this.connected) {
                 connectAndSubscribe();
                 this.reconnectFuture = null;
+                notifyReconnectAttempt(true);
               }
             }
           } catch (MqttException ex) {
             logger.error(ex, "Exception while connecting and subscribing");
+            notifyReconnectAttempt(false);
             scheduleReconnect();
           }
-        }, new Date(System.currentTimeMillis() + this.recoveryInterval));
+        }, new Date(System.currentTimeMillis() + nextReconnectDelay()));
       } catch (Exception ex) {
         logger.error(ex, "Failed to schedule reconnect");
       }
     }
   }
 
+  private long nextReconnectDelay() {
+    MqttReconnectBackoff current = this.backoff;
+    return current == null ? this.recoveryInterval : current.delay(this.reconnectAttempts++);
+  }
+
+  private void notifyReconnectAttempt(boolean success) {
+    MqttObserver current = this.observer;
+    if (current != null) {
+      current.onReconnectAttempt(getClientId(), success);
+    }
+  }
+
+  private void notifySubscribed(long start) {
+    MqttObserver current = this.observer;
+    if (current != null) {
+      current.onSubscribed(getClientId(), System.nanoTime() - start);
+    }
+  }
+
+  private void notifyReconnected() {
+    long at = this.disconnectedAt;
+    this.disconnectedAt = 0;
+    MqttObserver current = this.observer;
+    if (at != 0 && current != null) {
+      current.onReconnected(getClientId(), System.nanoTime() - at);
+    }
+  }
+
   @Override
   public synchronized void connectionLost(Throwable cause) {
     if (isRunning()) {
       this.logger.error(() -> "Lost connection: " + cause.getMessage() + "; retrying...");
       this.connected = false;
+      this.disconnectedAt = System.nanoTime();
       if (this.client != null) {
         try {
           this.client.setCallback(null);
@@ -398,16 +541,34 @@ public class MqttAdapter extends AbstractMqttMessageDrivenChannelAdapter
   }
 
   @Override
-  public void messageArrived(String topic, MqttMessage mqttMessage) {
+  public void messageArrived(String topic, MqttMessage mqttMessage) throws Exception {
+    // 未注册共享订阅监听器时不匹配主题, 避免每条入站消息拆分主题
+    List<IMqttMessageListener> listeners = this.sharedListeners.isEmpty()
+      ? Collections.emptyList() : this.sharedListeners.match(topic);
+    if (listeners.isEmpty()) {
+      sendArrived(topic, mqttMessage);
+    }
+    for (IMqttMessageListener listener : listeners) {
+      listener.messageArrived(topic, mqttMessage);
+    }
+  }
+
+  private void sendArrived(String topic, MqttMessage mqttMessage) {
+    long start = System.nanoTime();
     AbstractIntegrationMessageBuilder<?> builder = toMessageBuilder(topic, mqttMessage);
+    notifyArrived(topic, mqttMessage.getPayload().length, start);
     if (builder != null) {
       if (this.manualAcks) {
         builder.setHeader(IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK,
           new AcknowledgmentImpl(mqttMessage.getId(), mqttMessage.getQos(), this.client));
       }
       Message<?> message = builder.build();
+      if (this.dispatcher != null) {
+        dispatch(topic, message);
+        return;
+      }
       try {
-        sendMessage(message);
+        handleArrived(message);
       } catch (RuntimeException ex) {
         logger.error(ex, () -> "Unhandled exception for " + message);
         throw ex;
@@ -415,6 +576,45 @@ public class MqttAdapter extends AbstractMqttMessageDrivenChannelAdapter
     }
   }
 
+  /**
+   * 分发消息, 被拒绝时抛出异常使Paho不确认该消息并断开连接:
+   * 断开后释放broker为该连接保留的在途消息窗口, 重连后持久会话中未确认的消息由broker重新投递
+   *
+   * @param topic   主题
+   * @param message 消息
+   */
+  private void dispatch(String topic, Message<?> message) {
+    if (!this.dispatcher.dispatch(topic, message)) {
+      throw new MessageDeliveryException(message,
+        "Inbound dispatcher rejected the message, reconnecting for redelivery");
+    }
+  }
+
+  private void handleArrived(Message<?> message) {
+    long start = System.nanoTime();
+    boolean success = false;
+    try {
+      sendMessage(message);
+      success = true;
+    } finally {
+      notifyHandled(message.getHeaders().get(MqttHeaders.RECEIVED_TOPIC, String.class), start, success);
+    }
+  }
+
+  private void notifyArrived(String topic, int bytes, long start) {
+    MqttObserver current = this.observer;
+    if (current != null) {
+      current.onMessageArrived(topic, bytes, System.nanoTime() - start);
+    }
+  }
+
+  private void notifyHandled(String topic, long start, boolean success) {
+    MqttObserver current = this.observer;
+    if (current != null) {
+      current.onMessageHandled(topic, System.nanoTime() - start, success);
+    }
+  }
+
   private AbstractIntegrationMessageBuilder<?> toMessageBuilder(String topic, MqttMessage mqttMessage) {
     AbstractIntegrationMessageBuilder<?> builder = null;
     Exception conversionError = null;
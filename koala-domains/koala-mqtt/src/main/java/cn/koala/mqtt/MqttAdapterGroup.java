@@ -0,0 +1,84 @@
+package cn.koala.mqtt;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.List;
+
+/**
+ * Mqtt入站适配器组
+ * <p>
+ * 在同一节点上运行多个入站适配器, 每个适配器拥有独立的客户端与回调线程, 配合共享订阅在多个核心上分摊入站消息;
+ * 组内适配器不注册为bean, 由适配器组负责初始化与启停
+ *
+ * @author Houtaroy
+ */
+public class MqttAdapterGroup implements SmartLifecycle, BeanFactoryAware, ApplicationEventPublisherAware,
+  InitializingBean {
+
+  private final List<MqttAdapter> adapters;
+  private BeanFactory beanFactory;
+  private ApplicationEventPublisher applicationEventPublisher;
+  private volatile boolean running;
+
+  /**
+   * 构造函数
+   *
+   * @param adapters 入站适配器列表
+   */
+  public MqttAdapterGroup(List<MqttAdapter> adapters) {
+    this.adapters = adapters;
+  }
+
+  @Override
+  public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+    this.beanFactory = beanFactory;
+  }
+
+  @Override
+  public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+    this.applicationEventPublisher = applicationEventPublisher;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    for (int i = 0; i < adapters.size(); i++) {
+      MqttAdapter adapter = adapters.get(i);
+      adapter.setBeanName(String.format("mqttAdapterGroup-%d", i));
+      adapter.setBeanFactory(beanFactory);
+      adapter.setApplicationEventPublisher(applicationEventPublisher);
+      adapter.afterPropertiesSet();
+    }
+  }
+
+  @Override
+  public void start() {
+    adapters.forEach(MqttAdapter::start);
+    running = true;
+  }
+
+  @Override
+  public void stop() {
+    adapters.forEach(MqttAdapter::stop);
+    running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * 获取入站适配器列表
+   *
+   * @return 入站适配器列表
+   */
+  public List<MqttAdapter> getAdapters() {
+    return adapters;
+  }
+}
@@ -0,0 +1,21 @@
+package cn.koala.mqtt;
+
+/**
+ * 入站分发队列已满时的背压策略
+ *
+ * @author Houtaroy
+ */
+public enum MqttBackpressure {
+  /**
+   * 阻塞Paho回调线程, 直至队列有空位
+   */
+  BLOCK,
+  /**
+   * 丢弃队列中最早的消息, 手动确认模式下被丢弃的消息会被确认
+   */
+  DROP_OLDEST,
+  /**
+   * 拒绝当前消息且不确认, 需开启手动确认; 拒绝后断开连接以释放在途消息窗口, 持久会话下由broker在重连后重新投递
+   */
+  NACK
+}
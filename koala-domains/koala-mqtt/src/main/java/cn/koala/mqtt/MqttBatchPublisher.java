@@ -0,0 +1,319 @@
+package cn.koala.mqtt;
+
+import lombok.Getter;
+import org.eclipse.paho.client.mqttv3.DisconnectedBufferOptions;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.integration.mqtt.core.MqttPahoClientFactory;
+import org.springframework.integration.mqtt.support.MqttUtils;
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mqtt批量发布者
+ * <p>
+ * 绕过消息网关与集成流程, 直接使用异步客户端发布消息, 同时在途的消息数量不超过{@link #getWindow()},
+ * 窗口已满时调用线程阻塞直至有消息发布完成; 断开期间缓存在离线缓冲中的消息不占用窗口, 缓冲的容量只受离线缓冲配置限制
+ * <p>
+ * {@link #connect()}在后台发起连接, 首次连接成功前发布的调用线程等待连接完成; 首次连接成功后由客户端在后台自动重连,
+ * 断开期间的发布立即失败, 配置离线缓冲后则缓存在本地, 重连后按顺序发送
+ *
+ * @author Houtaroy
+ */
+public class MqttBatchPublisher implements MqttPublisher {
+  public static final int DEFAULT_WINDOW = 100;
+  public static final long DEFAULT_COMPLETION_TIMEOUT = 30_000L;
+  public static final int DEFAULT_BUFFER_SIZE = 5000;
+  private static final LogAccessor LOGGER = new LogAccessor(MqttBatchPublisher.class);
+
+  private final MqttPahoClientFactory clientFactory;
+  private final String clientId;
+  @Getter
+  private final int window;
+  private final long completionTimeout;
+  private final Semaphore permits;
+  private final DisconnectedBufferOptions bufferOptions;
+  private IMqttAsyncClient client;
+  private IMqttToken connecting;
+  private volatile MqttObserver observer;
+
+  /**
+   * 构造函数
+   *
+   * @param clientFactory mqtt客户端工厂
+   * @param clientId      客户端id
+   * @param window        在途消息的最大数量
+   */
+  public MqttBatchPublisher(MqttPahoClientFactory clientFactory, String clientId, int window) {
+    this(clientFactory, clientId, window, DEFAULT_COMPLETION_TIMEOUT);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param clientFactory     mqtt客户端工厂
+   * @param clientId          客户端id
+   * @param window            在途消息的最大数量
+   * @param completionTimeout 连接超时时间(毫秒)
+   */
+  public MqttBatchPublisher(MqttPahoClientFactory clientFactory, String clientId, int window,
+                            long completionTimeout) {
+    this(clientFactory, clientId, window, completionTimeout, null);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param clientFactory     mqtt客户端工厂
+   * @param clientId          客户端id
+   * @param window            在途消息的最大数量
+   * @param completionTimeout 连接超时时间(毫秒)
+   * @param bufferOptions     离线缓冲配置, 为null时不缓冲
+   */
+  public MqttBatchPublisher(MqttPahoClientFactory clientFactory, String clientId, int window,
+                            long completionTimeout, DisconnectedBufferOptions bufferOptions) {
+    Assert.isTrue(window > 0, "在途消息的最大数量必须大于0");
+    this.clientFactory = clientFactory;
+    this.clientId = clientId;
+    this.window = window;
+    this.completionTimeout = completionTimeout;
+    this.permits = new Semaphore(window);
+    this.bufferOptions = bufferOptions;
+  }
+
+  /**
+   * 创建离线缓冲配置
+   *
+   * @param size 缓冲的最大消息数量
+   * @return 离线缓冲配置
+   */
+  public static DisconnectedBufferOptions bufferOptions(int size) {
+    DisconnectedBufferOptions result = new DisconnectedBufferOptions();
+    result.setBufferEnabled(true);
+    result.setBufferSize(size);
+    result.setDeleteOldestMessages(false);
+    result.setPersistBuffer(false);
+    return result;
+  }
+
+  /**
+   * 设置观察者, 用于采集出站消息的指标
+   *
+   * @param observer 观察者, 为null时不回调
+   */
+  public void setObserver(MqttObserver observer) {
+    this.observer = observer;
+  }
+
+  /**
+   * 获取已发布但尚未送达的消息数量
+   *
+   * @return 在途消息数量
+   */
+  public int getInFlight() {
+    return window - permits.availablePermits();
+  }
+
+  @Override
+  public CompletableFuture<Void> publish(String topic, int qos, List<byte[]> payloads) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    if (payloads.isEmpty()) {
+      result.complete(null);
+      return result;
+    }
+    IMqttActionListener listener = new BatchListener(result, topic, payloads.size());
+    try {
+      IMqttAsyncClient current = getClient();
+      for (byte[] payload : payloads) {
+        permits.acquire();
+        publish(current, topic, qos, payload, listener);
+      }
+    } catch (MqttException e) {
+      result.completeExceptionally(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  @Override
+  public void connect() {
+    try {
+      startConnect();
+    } catch (MqttException e) {
+      LOGGER.warn(e, "Exception while connecting");
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (client == null) {
+      return;
+    }
+    try {
+      if (client.isConnected()) {
+        client.disconnect().waitForCompletion(completionTimeout);
+      }
+      client.close();
+    } catch (MqttException e) {
+      LOGGER.error(e, "Exception while closing");
+    }
+    client = null;
+    connecting = null;
+  }
+
+  /**
+   * 获取异步客户端, 首次连接尚未成功时发起连接并等待完成; 首次连接成功后直接返回, 由客户端自动重连
+   *
+   * @return 异步客户端
+   * @throws MqttException 连接失败
+   */
+  protected synchronized IMqttAsyncClient getClient() throws MqttException {
+    startConnect();
+    if (!connecting.isComplete()) {
+      connecting.waitForCompletion(completionTimeout);
+    }
+    if (connecting.getException() != null) {
+      throw connecting.getException();
+    }
+    return client;
+  }
+
+  /**
+   * 创建客户端并在后台发起连接, 连接中或首次连接已成功时忽略
+   *
+   * @throws MqttException 发起连接失败
+   */
+  protected synchronized void startConnect() throws MqttException {
+    if (client == null) {
+      client = clientFactory.getAsyncClientInstance(null, clientId);
+      if (bufferOptions != null && client instanceof MqttAsyncClient) {
+        ((MqttAsyncClient) client).setBufferOpts(bufferOptions);
+      }
+    }
+    boolean failed = connecting != null && connecting.isComplete() && connecting.getException() != null;
+    if (connecting == null || failed) {
+      connecting = client.connect(connectOptions());
+    }
+  }
+
+  /**
+   * 创建连接配置, 在途窗口不小于{@link #getWindow()}, 并开启自动重连
+   * <p>
+   * {@link MqttUtils#cloneConnectOptions(MqttConnectOptions)}不复制服务器地址, 需要单独复制,
+   * 否则客户端连接到工厂创建客户端时使用的地址
+   *
+   * @return 连接配置
+   */
+  protected MqttConnectOptions connectOptions() {
+    MqttConnectOptions source = clientFactory.getConnectionOptions();
+    MqttConnectOptions result = MqttUtils.cloneConnectOptions(source);
+    if (source.getServerURIs() != null) {
+      result.setServerURIs(source.getServerURIs());
+    }
+    result.setMaxInflight(Math.max(result.getMaxInflight(), window));
+    result.setAutomaticReconnect(true);
+    return result;
+  }
+
+  private void publish(IMqttAsyncClient current, String topic, int qos, byte[] payload,
+                       IMqttActionListener listener) throws MqttException {
+    Delivery delivery = new Delivery(System.nanoTime());
+    try {
+      current.publish(topic, payload, qos, false, delivery, listener);
+    } catch (MqttException | RuntimeException e) {
+      delivery.release();
+      throw e;
+    }
+    if (bufferOptions != null && !current.isConnected()) {
+      delivery.release();
+    }
+    MqttObserver target = observer;
+    if (target != null) {
+      target.onMessagePublished(topic, payload.length);
+    }
+  }
+
+  /**
+   * 批量发布回调, 每条消息完成时释放窗口, 发布状态记录在令牌的用户上下文中
+   *
+   * @author Houtaroy
+   */
+  protected class BatchListener implements IMqttActionListener {
+    private final CompletableFuture<Void> result;
+    private final String topic;
+    private final AtomicInteger remaining;
+
+    /**
+     * 构造函数
+     *
+     * @param result 批量发布结果
+     * @param topic  主题
+     * @param count  消息数量
+     */
+    protected BatchListener(CompletableFuture<Void> result, String topic, int count) {
+      this.result = result;
+      this.topic = topic;
+      this.remaining = new AtomicInteger(count);
+    }
+
+    @Override
+    public void onSuccess(IMqttToken asyncActionToken) {
+      Delivery delivery = (Delivery) asyncActionToken.getUserContext();
+      delivery.release();
+      MqttObserver current = observer;
+      if (current != null) {
+        current.onDeliveryComplete(topic, System.nanoTime() - delivery.start);
+      }
+      if (remaining.decrementAndGet() == 0) {
+        result.complete(null);
+      }
+    }
+
+    @Override
+    public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+      ((Delivery) asyncActionToken.getUserContext()).release();
+      remaining.decrementAndGet();
+      result.completeExceptionally(exception);
+    }
+  }
+
+  /**
+   * 单条消息的发布状态, 窗口只释放一次: 消息进入离线缓冲或发布完成时释放
+   *
+   * @author Houtaroy
+   */
+  protected class Delivery {
+    private final long start;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /**
+     * 构造函数
+     *
+     * @param start 发布时间(纳秒)
+     */
+    protected Delivery(long start) {
+      this.start = start;
+    }
+
+    /**
+     * 释放窗口, 已释放时忽略
+     */
+    protected void release() {
+      if (released.compareAndSet(false, true)) {
+        permits.release();
+      }
+    }
+  }
+}
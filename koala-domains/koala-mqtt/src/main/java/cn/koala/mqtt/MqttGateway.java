@@ -30,4 +30,21 @@ public interface MqttGateway {
    * @param payload 消息
    */
   void send(@Header(MqttHeaders.TOPIC) String topic, @Header(MqttHeaders.QOS) int qos, String payload);
+
+  /**
+   * 向指定主题发送二进制消息
+   *
+   * @param topic   主题
+   * @param payload 消息
+   */
+  void send(@Header(MqttHeaders.TOPIC) String topic, byte[] payload);
+
+  /**
+   * 向指定主题发送指定QOS的二进制消息
+   *
+   * @param topic   主题
+   * @param qos     qos
+   * @param payload 消息
+   */
+  void send(@Header(MqttHeaders.TOPIC) String topic, @Header(MqttHeaders.QOS) int qos, byte[] payload);
 }
@@ -0,0 +1,240 @@
+package cn.koala.mqtt;
+
+import lombok.Getter;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.acks.SimpleAcknowledgment;
+import org.springframework.messaging.Message;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 入站消息异步分发器
+ * <p>
+ * 每个工作线程拥有独立的有界队列, 消息按主题哈希分配到固定的工作线程, 同一主题的消息按到达顺序处理,
+ * Paho回调线程只负责入队, 单个处理缓慢的消息不会阻塞连接的心跳
+ * <p>
+ * 队列已满时按{@link MqttBackpressure}处理
+ *
+ * @author Houtaroy
+ */
+public class MqttInboundDispatcher {
+  public static final int DEFAULT_WORKERS = Runtime.getRuntime().availableProcessors();
+  public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+  public static final Duration DEFAULT_SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+  private static final long POLL_TIMEOUT_MILLIS = 100L;
+  private static final LogAccessor LOGGER = new LogAccessor(MqttInboundDispatcher.class);
+
+  @Getter
+  private final MqttBackpressure backpressure;
+  private final Duration shutdownTimeout;
+  private final BlockingQueue<Message<?>>[] queues;
+  private final Thread[] threads;
+  private final ThreadFactory threadFactory = new CustomizableThreadFactory("mqtt-inbound-");
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private volatile boolean running;
+  private volatile boolean stopped;
+
+  /**
+   * 构造函数
+   *
+   * @param properties 入站异步分发配置
+   */
+  public MqttInboundDispatcher(MqttInboundProperties properties) {
+    this(properties.getWorkers(), properties.getQueueCapacity(), properties.getBackpressure(),
+      properties.getShutdownTimeout());
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param workers         工作线程数量
+   * @param queueCapacity   每个工作线程的队列容量
+   * @param backpressure    背压策略
+   * @param shutdownTimeout 停止时等待队列处理完成的超时时间
+   */
+  @SuppressWarnings("unchecked")
+  public MqttInboundDispatcher(int workers, int queueCapacity, MqttBackpressure backpressure,
+                               Duration shutdownTimeout) {
+    Assert.isTrue(workers > 0, "工作线程数量必须大于0");
+    Assert.isTrue(queueCapacity > 0, "队列容量必须大于0");
+    this.backpressure = backpressure;
+    this.shutdownTimeout = shutdownTimeout;
+    this.queues = new BlockingQueue[workers];
+    this.threads = new Thread[workers];
+    for (int i = 0; i < workers; i++) {
+      queues[i] = new ArrayBlockingQueue<>(queueCapacity);
+    }
+  }
+
+  /**
+   * 启动工作线程
+   *
+   * @param consumer 消息处理者, 在工作线程中调用
+   */
+  public synchronized void start(Consumer<Message<?>> consumer) {
+    if (running) {
+      return;
+    }
+    running = true;
+    stopped = false;
+    for (int i = 0; i < threads.length; i++) {
+      BlockingQueue<Message<?>> queue = queues[i];
+      threads[i] = threadFactory.newThread(() -> work(queue, consumer));
+      threads[i].start();
+    }
+  }
+
+  /**
+   * 停止工作线程, 等待已入队的消息处理完成, 超时后中断
+   */
+  public synchronized void stop() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    stopped = true;
+    long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+    for (Thread thread : threads) {
+      try {
+        thread.join(Math.max(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), 1L));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      thread.interrupt();
+    }
+  }
+
+  /**
+   * 分发消息
+   *
+   * @param topic   主题
+   * @param message 消息
+   * @return 是否入队, 已停止或按{@link MqttBackpressure#NACK}拒绝时为false; 启动前入队的消息在启动后处理
+   */
+  public boolean dispatch(String topic, Message<?> message) {
+    if (stopped) {
+      rejected.increment();
+      return false;
+    }
+    return enqueue(topic, message);
+  }
+
+  /**
+   * 获取所有队列中等待处理的消息数量
+   *
+   * @return 等待处理的消息数量
+   */
+  public int size() {
+    int result = 0;
+    for (BlockingQueue<Message<?>> queue : queues) {
+      result += queue.size();
+    }
+    return result;
+  }
+
+  /**
+   * 获取丢弃的消息数量
+   *
+   * @return 丢弃的消息数量
+   */
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  /**
+   * 获取拒绝的消息数量
+   *
+   * @return 拒绝的消息数量
+   */
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  /**
+   * 工作线程循环, 停止后处理完队列中剩余的消息再退出
+   *
+   * @param queue    队列
+   * @param consumer 消息处理者
+   */
+  protected void work(BlockingQueue<Message<?>> queue, Consumer<Message<?>> consumer) {
+    while (running || !queue.isEmpty()) {
+      try {
+        Message<?> message = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        if (message != null) {
+          consumer.accept(message);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        LOGGER.error(e, "入站消息处理失败");
+      }
+    }
+  }
+
+  /**
+   * 丢弃消息, 手动确认模式下确认被丢弃的消息, 避免broker重复投递
+   *
+   * @param message 消息
+   */
+  protected void drop(Message<?> message) {
+    if (message == null) {
+      return;
+    }
+    dropped.increment();
+    Object acknowledgment = message.getHeaders().get(IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK);
+    if (acknowledgment instanceof SimpleAcknowledgment) {
+      ((SimpleAcknowledgment) acknowledgment).acknowledge();
+    }
+    LOGGER.warn(() -> "入站队列已满, 丢弃最早的消息: " + message);
+  }
+
+  private boolean enqueue(String topic, Message<?> message) {
+    BlockingQueue<Message<?>> queue = queues[Math.floorMod(topic.hashCode(), queues.length)];
+    switch (backpressure) {
+      case DROP_OLDEST:
+        return offerDroppingOldest(queue, message);
+      case NACK:
+        return offerOrReject(topic, queue, message);
+      default:
+        return put(queue, message);
+    }
+  }
+
+  private boolean offerDroppingOldest(BlockingQueue<Message<?>> queue, Message<?> message) {
+    while (!queue.offer(message)) {
+      drop(queue.poll());
+    }
+    return true;
+  }
+
+  private boolean offerOrReject(String topic, BlockingQueue<Message<?>> queue, Message<?> message) {
+    if (queue.offer(message)) {
+      return true;
+    }
+    rejected.increment();
+    LOGGER.warn(() -> String.format("入站队列已满, 拒绝主题[%s]的消息", topic));
+    return false;
+  }
+
+  private boolean put(BlockingQueue<Message<?>> queue, Message<?> message) {
+    try {
+      queue.put(message);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      rejected.increment();
+      return false;
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package cn.koala.mqtt;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 入站异步分发配置
+ *
+ * @author Houtaroy
+ */
+@Data
+public class MqttInboundProperties {
+  private boolean enabled = false;
+  private int workers = MqttInboundDispatcher.DEFAULT_WORKERS;
+  private int queueCapacity = MqttInboundDispatcher.DEFAULT_QUEUE_CAPACITY;
+  private MqttBackpressure backpressure = MqttBackpressure.BLOCK;
+  private Duration shutdownTimeout = MqttInboundDispatcher.DEFAULT_SHUTDOWN_TIMEOUT;
+}
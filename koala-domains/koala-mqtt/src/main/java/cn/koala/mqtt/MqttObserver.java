@@ -0,0 +1,80 @@
+package cn.koala.mqtt;
+
+/**
+ * Mqtt观察者, 用于采集连接与消息相关的指标
+ *
+ * @author Houtaroy
+ */
+public interface MqttObserver {
+  /**
+   * 重连尝试完成
+   *
+   * @param clientId 客户端id
+   * @param success  是否成功
+   */
+  default void onReconnectAttempt(String clientId, boolean success) {
+    // 默认不处理
+  }
+
+  /**
+   * 断开后重新连接并订阅成功
+   *
+   * @param clientId          客户端id
+   * @param disconnectedNanos 断开时长(纳秒)
+   */
+  default void onReconnected(String clientId, long disconnectedNanos) {
+    // 默认不处理
+  }
+
+  /**
+   * 连接后订阅完成
+   *
+   * @param clientId 客户端id
+   * @param nanos    订阅耗时(纳秒)
+   */
+  default void onSubscribed(String clientId, long nanos) {
+    // 默认不处理
+  }
+
+  /**
+   * 入站消息到达并完成转换
+   *
+   * @param topic           接收主题
+   * @param bytes           消息体字节数
+   * @param conversionNanos 转换耗时(纳秒)
+   */
+  default void onMessageArrived(String topic, int bytes, long conversionNanos) {
+    // 默认不处理
+  }
+
+  /**
+   * 入站消息处理完成
+   *
+   * @param topic   接收主题
+   * @param nanos   处理耗时(纳秒)
+   * @param success 是否成功
+   */
+  default void onMessageHandled(String topic, long nanos, boolean success) {
+    // 默认不处理
+  }
+
+  /**
+   * 出站消息已交给客户端发布
+   *
+   * @param topic 发布主题
+   * @param bytes 消息体字节数
+   */
+  default void onMessagePublished(String topic, int bytes) {
+    // 默认不处理
+  }
+
+  /**
+   * 出站消息已送达, 即收到deliveryComplete
+   *
+   * @param topic 发布主题
+   * @param nanos 发布至送达的耗时(纳秒)
+   */
+  default void onDeliveryComplete(String topic, long nanos) {
+    // 默认不处理
+  }
+}
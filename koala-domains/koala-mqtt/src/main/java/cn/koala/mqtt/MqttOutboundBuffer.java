@@ -0,0 +1,164 @@
+package cn.koala.mqtt;
+
+import lombok.Getter;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.messaging.MessagingException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Mqtt出站持久化缓冲
+ * <p>
+ * 缓冲为空时直接发送, 发送失败或缓冲不为空时追加到{@link MqttSegmentLog}, 保证同一线程发送的消息顺序不变;
+ * 后台线程按顺序发送缓冲中的消息, 发送失败时间隔重试, 发送速率不超过{@link #getRate()}条每秒,
+ * 避免重连后集中发送积压的消息
+ *
+ * @author Houtaroy
+ */
+public class MqttOutboundBuffer implements SmartLifecycle {
+  public static final int DEFAULT_RATE = 1000;
+  public static final Duration DEFAULT_RETRY_INTERVAL = Duration.ofSeconds(1);
+  private static final LogAccessor LOGGER = new LogAccessor(MqttOutboundBuffer.class);
+
+  private final MqttSegmentLog log;
+  private final MqttSender sender;
+  @Getter
+  private final int rate;
+  private final Duration retryInterval;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition appended = lock.newCondition();
+  private volatile Thread drainer;
+
+  /**
+   * 构造函数
+   *
+   * @param log           消息日志
+   * @param sender        消息发送者
+   * @param rate          每秒发送缓冲消息的最大数量
+   * @param retryInterval 发送失败的重试间隔
+   */
+  public MqttOutboundBuffer(MqttSegmentLog log, MqttSender sender, int rate, Duration retryInterval) {
+    Assert.isTrue(rate > 0, "发送速率必须大于0");
+    this.log = log;
+    this.sender = sender;
+    this.rate = rate;
+    this.retryInterval = retryInterval;
+  }
+
+  /**
+   * 发送消息, 缓冲不为空或发送失败时追加到缓冲
+   *
+   * @param topic   主题
+   * @param qos     qos, 小于0时使用默认qos
+   * @param payload 消息
+   */
+  public void send(String topic, int qos, byte[] payload) {
+    if (!log.isEmpty() || !trySend(topic, qos, payload)) {
+      append(topic, qos, payload);
+    }
+  }
+
+  /**
+   * 获取消息日志
+   *
+   * @return 消息日志
+   */
+  public MqttSegmentLog getLog() {
+    return log;
+  }
+
+  @Override
+  public synchronized void start() {
+    if (drainer == null) {
+      drainer = new CustomizableThreadFactory("mqtt-outbound-buffer-").newThread(this::drain);
+      drainer.start();
+    }
+  }
+
+  @Override
+  public synchronized void stop() {
+    Thread current = drainer;
+    drainer = null;
+    if (current != null) {
+      current.interrupt();
+      try {
+        current.join(retryInterval.toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    log.flush();
+  }
+
+  @Override
+  public boolean isRunning() {
+    return drainer != null;
+  }
+
+  /**
+   * 按顺序发送缓冲中的消息, 直至线程被中断
+   */
+  protected void drain() {
+    long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+    long next = System.nanoTime();
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        MqttSegmentLog.Record record = log.peek();
+        if (record == null) {
+          awaitAppended();
+          continue;
+        }
+        LockSupport.parkNanos(next - System.nanoTime());
+        next = Math.max(next, System.nanoTime()) + intervalNanos;
+        sender.send(record.getTopic(), record.getQos(), record.getPayload());
+        log.remove(record);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (RuntimeException e) {
+        LOGGER.warn(e, "Failed to send buffered message, retrying");
+        LockSupport.parkNanos(retryInterval.toNanos());
+      }
+    }
+  }
+
+  private boolean trySend(String topic, int qos, byte[] payload) {
+    try {
+      sender.send(topic, qos, payload);
+      return true;
+    } catch (RuntimeException e) {
+      LOGGER.warn(e, () -> String.format("Failed to send message to %s, buffering", topic));
+      return false;
+    }
+  }
+
+  private void append(String topic, int qos, byte[] payload) {
+    lock.lock();
+    try {
+      log.append(topic, qos, payload);
+      appended.signalAll();
+    } catch (IOException e) {
+      throw new MessagingException(String.format("Failed to buffer message to %s", topic), e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void awaitAppended() throws InterruptedException {
+    lock.lock();
+    try {
+      if (log.isEmpty()) {
+        appended.await(retryInterval.toMillis(), TimeUnit.MILLISECONDS);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+}
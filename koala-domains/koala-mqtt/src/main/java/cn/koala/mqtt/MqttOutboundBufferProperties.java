@@ -0,0 +1,22 @@
+package cn.koala.mqtt;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 出站持久化缓冲配置
+ *
+ * @author Houtaroy
+ */
+@Data
+public class MqttOutboundBufferProperties {
+  private boolean enabled = false;
+  private String directory = "mqtt-buffer";
+  private int segmentSize = MqttSegmentLog.DEFAULT_SEGMENT_SIZE;
+  private int maxSegments = MqttSegmentLog.DEFAULT_MAX_SEGMENTS;
+  private Duration retention = MqttSegmentLog.DEFAULT_RETENTION;
+  private int forceInterval = MqttSegmentLog.DEFAULT_FORCE_INTERVAL;
+  private int rate = MqttOutboundBuffer.DEFAULT_RATE;
+  private Duration retryInterval = MqttOutboundBuffer.DEFAULT_RETRY_INTERVAL;
+}
@@ -0,0 +1,230 @@
+package cn.koala.mqtt;
+
+import lombok.AllArgsConstructor;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.integration.mqtt.core.MqttPahoClientFactory;
+import org.springframework.integration.mqtt.event.MqttMessageDeliveryEvent;
+import org.springframework.integration.mqtt.event.MqttMessageSentEvent;
+import org.springframework.integration.mqtt.outbound.MqttPahoMessageHandler;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 可观测的mqtt出站处理器
+ * <p>
+ * 同步模式下发布会等待送达, 发布耗时即为发布至deliveryComplete的耗时;
+ * 异步模式下在发布前记录开始时间, 按消息id关联开始时间与deliveryComplete, 发布返回与送达回调的先后顺序不影响耗时;
+ * QoS为0的消息没有确认, 发布返回即视为送达
+ * <p>
+ * 断开连接时清空在途消息, 断开前发布的消息之后到达的回调不会使在途数量小于0
+ * <p>
+ * 异步模式下需要{@link MqttMessageSentEvent}获取消息id, 因此始终开启异步事件, 未配置asyncEvents时事件不会继续发布
+ * <p>
+ * 设置{@link #setPublisher(MqttPublisher)}后, 非保留消息交给发布者发送, 如{@link MqttPublisherPool}按主题分配到多个连接,
+ * 同步模式下等待发布完成; 此时出站指标由发布者采集, 不发布出站事件, 保留消息仍经处理器自身的连接发送
+ *
+ * @author Houtaroy
+ */
+public class MqttOutboundHandler extends MqttPahoMessageHandler {
+  private final Map<Integer, Mark> marks = new ConcurrentHashMap<>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final ThreadLocal<Long> publishing = new ThreadLocal<>();
+  private final ApplicationEventPublisher eventPublisher = this::onEvent;
+  private boolean async;
+  private boolean asyncEvents;
+  private volatile MqttObserver observer;
+  private volatile MqttPublisher publisher;
+
+  /**
+   * 构造函数
+   *
+   * @param clientId      客户端id
+   * @param clientFactory mqtt客户端工厂
+   */
+  public MqttOutboundHandler(String clientId, MqttPahoClientFactory clientFactory) {
+    super(clientId, clientFactory);
+    super.setAsyncEvents(true);
+  }
+
+  @Override
+  public void setAsync(boolean async) {
+    super.setAsync(async);
+    this.async = async;
+  }
+
+  @Override
+  public void setAsyncEvents(boolean asyncEvents) {
+    this.asyncEvents = asyncEvents;
+  }
+
+  /**
+   * 设置观察者, 用于采集出站消息的指标
+   *
+   * @param observer 观察者, 为null时不回调
+   */
+  public void setObserver(MqttObserver observer) {
+    this.observer = observer;
+  }
+
+  /**
+   * 设置发布者, 设置后非保留消息交给发布者发送
+   *
+   * @param publisher 发布者, 为null时经处理器自身的连接发送
+   */
+  public void setPublisher(MqttPublisher publisher) {
+    this.publisher = publisher;
+  }
+
+  /**
+   * 获取已发布但尚未送达的消息数量
+   *
+   * @return 在途消息数量
+   */
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  @Override
+  protected void publish(String topic, Object mqttMessage, Message<?> message) {
+    MqttPublisher current = publisher;
+    MqttMessage payload = (MqttMessage) mqttMessage;
+    if (current != null && !payload.isRetained()) {
+      CompletableFuture<Void> result = current.publish(topic, payload.getQos(), payload.getPayload());
+      if (!async) {
+        await(result, message);
+      }
+      return;
+    }
+    long start = System.nanoTime();
+    inFlight.incrementAndGet();
+    publishing.set(start);
+    try {
+      super.publish(topic, mqttMessage, message);
+    } catch (RuntimeException e) {
+      release();
+      throw e;
+    } finally {
+      publishing.remove();
+    }
+    notifyPublished(topic, mqttMessage);
+    if (!async || ((MqttMessage) mqttMessage).getQos() == 0) {
+      complete(topic, System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public void deliveryComplete(IMqttDeliveryToken token) {
+    if (async && token.getMessageId() != 0) {
+      delivered(token.getMessageId(), System.nanoTime());
+    }
+    super.deliveryComplete(token);
+  }
+
+  @Override
+  public synchronized void connectionLost(Throwable cause) {
+    marks.clear();
+    inFlight.set(0);
+    super.connectionLost(cause);
+  }
+
+  @Override
+  protected ApplicationEventPublisher getApplicationEventPublisher() {
+    return eventPublisher;
+  }
+
+  /**
+   * 处理出站事件, 以发布前记录的开始时间标记发布返回的消息id, 并按配置继续发布事件
+   * <p>
+   * 发送事件在发布线程中发布, 不在发布过程中时以当前时间作为开始时间
+   *
+   * @param event 事件
+   */
+  protected void onEvent(Object event) {
+    if (event instanceof MqttMessageSentEvent && ((MqttMessageSentEvent) event).getMessageId() != 0) {
+      MqttMessageSentEvent sent = (MqttMessageSentEvent) event;
+      Long start = publishing.get();
+      sent(sent.getMessageId(), sent.getTopic(), start != null ? start : System.nanoTime());
+    }
+    ApplicationEventPublisher delegate = super.getApplicationEventPublisher();
+    boolean forward = asyncEvents || !(event instanceof MqttMessageDeliveryEvent);
+    if (delegate != null && forward) {
+      delegate.publishEvent(event);
+    }
+  }
+
+  /**
+   * 等待发布者发布完成, 超时时间为处理器的完成超时时间
+   *
+   * @param result  发布结果
+   * @param message 消息
+   */
+  private void await(CompletableFuture<Void> result, Message<?> message) {
+    try {
+      result.get(getCompletionTimeout(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MessageDeliveryException(message, "Interrupted while publishing to MQTT", e);
+    } catch (ExecutionException | TimeoutException e) {
+      throw new MessageDeliveryException(message, "Failed to publish to MQTT", e);
+    }
+  }
+
+  private void sent(int messageId, String topic, long start) {
+    Mark previous = marks.putIfAbsent(messageId, new Mark(topic, start));
+    if (previous != null) {
+      marks.remove(messageId, previous);
+      complete(topic, Math.max(previous.nanos - start, 0));
+    }
+  }
+
+  private void delivered(int messageId, long nanos) {
+    Mark previous = marks.putIfAbsent(messageId, new Mark(null, nanos));
+    if (previous != null) {
+      marks.remove(messageId, previous);
+      complete(previous.topic, nanos - previous.nanos);
+    }
+  }
+
+  private void complete(String topic, long nanos) {
+    release();
+    MqttObserver current = observer;
+    if (current != null) {
+      current.onDeliveryComplete(topic, nanos);
+    }
+  }
+
+  /**
+   * 减少在途数量, 断开连接清零后到达的回调不会使其小于0
+   */
+  private void release() {
+    inFlight.updateAndGet(count -> Math.max(count - 1, 0));
+  }
+
+  private void notifyPublished(String topic, Object mqttMessage) {
+    MqttObserver current = observer;
+    if (current != null) {
+      current.onMessagePublished(topic, ((MqttMessage) mqttMessage).getPayload().length);
+    }
+  }
+
+  /**
+   * 发布开始或送达的时间标记, 主题为null时为送达标记
+   *
+   * @author Houtaroy
+   */
+  @AllArgsConstructor
+  protected static class Mark {
+    private final String topic;
+    private final long nanos;
+  }
+}
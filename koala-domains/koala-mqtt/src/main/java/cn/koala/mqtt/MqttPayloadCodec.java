@@ -0,0 +1,26 @@
+package cn.koala.mqtt;
+
+/**
+ * Mqtt消息编解码器, 直接在对象与消息的字节数组之间转换
+ *
+ * @author Houtaroy
+ */
+public interface MqttPayloadCodec {
+  /**
+   * 将对象编码为消息
+   *
+   * @param value 对象
+   * @return 消息
+   */
+  byte[] encode(Object value);
+
+  /**
+   * 将消息解码为指定类型的对象
+   *
+   * @param payload 消息
+   * @param type    对象类型
+   * @param <T>     对象类型
+   * @return 对象
+   */
+  <T> T decode(byte[] payload, Class<T> type);
+}
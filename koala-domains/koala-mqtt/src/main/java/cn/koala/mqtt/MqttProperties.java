@@ -20,4 +20,18 @@ public class MqttProperties {
   private String defaultTopic = "mqtt-topic";
   private boolean async = false;
   private boolean asyncEvents = false;
+  private boolean manualAcks = false;
+  private boolean payloadAsBytes = false;
+  @NestedConfigurationProperty
+  private MqttInboundProperties inbound = new MqttInboundProperties();
+  private int batchWindow = MqttBatchPublisher.DEFAULT_WINDOW;
+  private int publisherPoolSize = 1;
+  private String sharedGroup;
+  private int consumers = 1;
+  private boolean routerEnabled = false;
+  private String[] metricTopics = new String[0];
+  @NestedConfigurationProperty
+  private MqttReconnectProperties reconnect;
+  @NestedConfigurationProperty
+  private MqttOutboundBufferProperties outboundBuffer = new MqttOutboundBufferProperties();
 }
@@ -0,0 +1,45 @@
+package cn.koala.mqtt;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Mqtt异步发布者
+ *
+ * @author Houtaroy
+ */
+public interface MqttPublisher extends AutoCloseable {
+  /**
+   * 向指定主题批量发布指定QOS的消息
+   *
+   * @param topic    主题
+   * @param qos      qos
+   * @param payloads 消息列表
+   * @return 全部消息发布完成时完成, 任一消息发布失败时异常完成
+   */
+  CompletableFuture<Void> publish(String topic, int qos, List<byte[]> payloads);
+
+  /**
+   * 向指定主题发布指定QOS的消息
+   *
+   * @param topic   主题
+   * @param qos     qos
+   * @param payload 消息
+   * @return 消息发布完成时完成
+   */
+  default CompletableFuture<Void> publish(String topic, int qos, byte[] payload) {
+    return publish(topic, qos, List.of(payload));
+  }
+
+  /**
+   * 在后台发起连接, 避免首次发布时在调用线程中连接, 默认不做任何操作
+   */
+  default void connect() {
+  }
+
+  /**
+   * 关闭发布者, 断开连接
+   */
+  @Override
+  void close();
+}
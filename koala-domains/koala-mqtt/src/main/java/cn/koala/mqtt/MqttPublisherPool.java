@@ -0,0 +1,109 @@
+package cn.koala.mqtt;
+
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+
+/**
+ * Mqtt发布者连接池
+ * <p>
+ * 持有多个独立连接的发布者, 主题通过一致性哈希分配到固定的发布者, 同一主题的消息经同一连接按顺序发布,
+ * 整体吞吐不再受单个连接与单个在途窗口的限制
+ * <p>
+ * 连接池承载{@link MqttTemplate}的异步与批量发送; 设置为{@link MqttOutboundHandler#setPublisher(MqttPublisher)}后,
+ * 经消息网关的发送也由连接池发送
+ *
+ * @author Houtaroy
+ */
+public class MqttPublisherPool implements MqttPublisher {
+  public static final int DEFAULT_VIRTUAL_NODES = 160;
+  private static final int FNV_OFFSET_BASIS = 0x811C9DC5;
+  private static final int FNV_PRIME = 0x01000193;
+
+  private final List<MqttPublisher> publishers;
+  private final TreeMap<Integer, MqttPublisher> ring = new TreeMap<>();
+
+  /**
+   * 构造函数
+   *
+   * @param size    发布者数量
+   * @param factory 发布者工厂, 参数为发布者序号
+   */
+  public MqttPublisherPool(int size, IntFunction<MqttPublisher> factory) {
+    this(size, factory, DEFAULT_VIRTUAL_NODES);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param size         发布者数量
+   * @param factory      发布者工厂, 参数为发布者序号
+   * @param virtualNodes 每个发布者在哈希环上的虚拟节点数量
+   */
+  public MqttPublisherPool(int size, IntFunction<MqttPublisher> factory, int virtualNodes) {
+    Assert.isTrue(size > 0, "发布者数量必须大于0");
+    Assert.isTrue(virtualNodes > 0, "虚拟节点数量必须大于0");
+    MqttPublisher[] created = new MqttPublisher[size];
+    for (int i = 0; i < size; i++) {
+      created[i] = factory.apply(i);
+      for (int j = 0; j < virtualNodes; j++) {
+        ring.put(hash(String.format("publisher-%d#%d", i, j)), created[i]);
+      }
+    }
+    this.publishers = List.of(created);
+  }
+
+  @Override
+  public CompletableFuture<Void> publish(String topic, int qos, List<byte[]> payloads) {
+    return select(topic).publish(topic, qos, payloads);
+  }
+
+  @Override
+  public void connect() {
+    publishers.forEach(MqttPublisher::connect);
+  }
+
+  @Override
+  public void close() {
+    publishers.forEach(MqttPublisher::close);
+  }
+
+  /**
+   * 获取全部发布者
+   *
+   * @return 发布者列表
+   */
+  public List<MqttPublisher> getPublishers() {
+    return publishers;
+  }
+
+  /**
+   * 选择主题对应的发布者, 即哈希环上顺时针方向的第一个虚拟节点
+   *
+   * @param topic 主题
+   * @return 发布者
+   */
+  public MqttPublisher select(String topic) {
+    Map.Entry<Integer, MqttPublisher> entry = ring.ceilingEntry(hash(topic));
+    return entry == null ? ring.firstEntry().getValue() : entry.getValue();
+  }
+
+  /**
+   * FNV-1a哈希, 分布比{@link String#hashCode()}均匀
+   *
+   * @param value 字符串
+   * @return 哈希值
+   */
+  protected static int hash(String value) {
+    int result = FNV_OFFSET_BASIS;
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      result = (result ^ Byte.toUnsignedInt(b)) * FNV_PRIME;
+    }
+    return result;
+  }
+}
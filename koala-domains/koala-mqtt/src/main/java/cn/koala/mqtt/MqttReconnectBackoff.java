@@ -0,0 +1,66 @@
+package cn.koala.mqtt;
+
+import lombok.Getter;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 重连指数退避策略
+ * <p>
+ * 第n次(从0开始)重连的间隔为min(初始间隔 * 倍数^n, 最大间隔), 再随机减少至多jitter比例,
+ * 首次重连使用较短的初始间隔快速恢复, 随机抖动避免broker重启后所有客户端同时重连
+ *
+ * @author Houtaroy
+ */
+@Getter
+public class MqttReconnectBackoff {
+  public static final Duration DEFAULT_INITIAL_INTERVAL = Duration.ofMillis(100);
+  public static final Duration DEFAULT_MAX_INTERVAL = Duration.ofSeconds(10);
+  public static final double DEFAULT_MULTIPLIER = 2.0;
+  public static final double DEFAULT_JITTER = 0.5;
+
+  private final long initialInterval;
+  private final long maxInterval;
+  private final double multiplier;
+  private final double jitter;
+
+  /**
+   * 构造函数
+   *
+   * @param initialInterval 初始间隔
+   * @param maxInterval     最大间隔
+   * @param multiplier      倍数
+   * @param jitter          随机抖动比例, 取值范围[0, 1]
+   */
+  public MqttReconnectBackoff(Duration initialInterval, Duration maxInterval, double multiplier, double jitter) {
+    Assert.isTrue(multiplier >= 1, "倍数不能小于1");
+    Assert.isTrue(jitter >= 0 && jitter <= 1, "随机抖动比例的取值范围为[0, 1]");
+    this.initialInterval = initialInterval.toMillis();
+    this.maxInterval = Math.max(maxInterval.toMillis(), this.initialInterval);
+    this.multiplier = multiplier;
+    this.jitter = jitter;
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param properties 重连配置
+   */
+  public MqttReconnectBackoff(MqttReconnectProperties properties) {
+    this(properties.getInitialInterval(), properties.getMaxInterval(), properties.getMultiplier(),
+      properties.getJitter());
+  }
+
+  /**
+   * 计算重连间隔
+   *
+   * @param attempt 重连次数, 从0开始
+   * @return 重连间隔(毫秒)
+   */
+  public long delay(int attempt) {
+    double interval = Math.min(initialInterval * Math.pow(multiplier, attempt), maxInterval);
+    return (long) (interval * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+  }
+}
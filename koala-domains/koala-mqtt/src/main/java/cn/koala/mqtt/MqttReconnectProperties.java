@@ -0,0 +1,20 @@
+package cn.koala.mqtt;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 重连配置
+ *
+ * @author Houtaroy
+ */
+@Data
+public class MqttReconnectProperties {
+  private Duration initialInterval = MqttReconnectBackoff.DEFAULT_INITIAL_INTERVAL;
+  private Duration maxInterval = MqttReconnectBackoff.DEFAULT_MAX_INTERVAL;
+  private double multiplier = MqttReconnectBackoff.DEFAULT_MULTIPLIER;
+  private double jitter = MqttReconnectBackoff.DEFAULT_JITTER;
+  private boolean bufferEnabled = false;
+  private int bufferSize = MqttBatchPublisher.DEFAULT_BUFFER_SIZE;
+}
@@ -0,0 +1,311 @@
+package cn.koala.mqtt;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 基于内存映射分段文件的消息日志
+ * <p>
+ * 消息按顺序追加到固定大小的分段文件, 当前分段写满时创建新的分段, 分段数量超过上限时删除最早的分段;
+ * 读取位置保存在偏移量文件中, 分段读取完成后删除, 进程重启后从上次的读取位置继续
+ * <p>
+ * 记录格式: 长度, 时间戳, qos, 主题长度, 主题, 消息; 长度最后写入, 长度为0表示分段中没有更多记录,
+ * 写入中途崩溃的记录不会被读取
+ * <p>
+ * 写入内存映射后由操作系统择机刷盘, 默认只保证进程崩溃后消息不丢失; 断电或操作系统崩溃时未刷盘的消息会丢失,
+ * 可通过{@link #setForceInterval(int)}每追加指定数量的消息刷盘一次, 刷盘会增加追加的耗时
+ *
+ * @author Houtaroy
+ */
+public class MqttSegmentLog {
+  public static final int DEFAULT_SEGMENT_SIZE = 16_777_216;
+  public static final int DEFAULT_MAX_SEGMENTS = 64;
+  public static final Duration DEFAULT_RETENTION = Duration.ofDays(7);
+  public static final int DEFAULT_FORCE_INTERVAL = 0;
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final String OFFSET_FILE = "offset";
+  private static final String SEGMENT_FORMAT = "%020d" + SEGMENT_SUFFIX;
+  private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Byte.BYTES + Short.BYTES;
+  private static final int MAX_TOPIC_LENGTH = 65_535;
+
+  private final Path directory;
+  @Getter
+  private final int segmentSize;
+  @Getter
+  private final int maxSegments;
+  private final long retention;
+  private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+  private final MappedByteBuffer offset;
+  private long writeSegment;
+  private int writePosition;
+  private long readSegment;
+  private int readPosition;
+  @Getter
+  private long droppedSegments;
+  @Getter
+  private long expired;
+  @Getter
+  private int forceInterval = DEFAULT_FORCE_INTERVAL;
+  private int unforced;
+
+  /**
+   * 构造函数, 打开目录中已有的分段并恢复读写位置
+   *
+   * @param directory   目录
+   * @param segmentSize 分段大小(字节)
+   * @param maxSegments 最大分段数量
+   * @param retention   消息保留时长, 为null或0时永久保留
+   * @throws IOException 读写失败
+   */
+  public MqttSegmentLog(Path directory, int segmentSize, int maxSegments, Duration retention) throws IOException {
+    Assert.isTrue(segmentSize > HEADER_SIZE, "分段大小过小");
+    Assert.isTrue(maxSegments > 1, "最大分段数量必须大于1");
+    this.directory = Files.createDirectories(directory);
+    this.segmentSize = segmentSize;
+    this.maxSegments = maxSegments;
+    this.retention = retention == null ? 0 : retention.toMillis();
+    this.offset = map(directory.resolve(OFFSET_FILE), Long.BYTES + Integer.BYTES);
+    for (Long id : listSegments()) {
+      segments.put(id, map(segmentPath(id), segmentSize));
+    }
+    if (segments.isEmpty()) {
+      segments.put(0L, map(segmentPath(0L), segmentSize));
+    }
+    recover();
+  }
+
+  /**
+   * 追加消息, 分段数量超过上限时删除最早的分段
+   *
+   * @param topic   主题
+   * @param qos     qos
+   * @param payload 消息
+   * @throws IOException 创建分段失败
+   */
+  public synchronized void append(String topic, int qos, byte[] payload) throws IOException {
+    byte[] topicBytes = topic.getBytes(StandardCharsets.UTF_8);
+    Assert.isTrue(topicBytes.length <= MAX_TOPIC_LENGTH, "主题过长");
+    int length = HEADER_SIZE + topicBytes.length + payload.length;
+    Assert.isTrue(length <= segmentSize, "消息超过分段大小");
+    if (writePosition + length > segmentSize) {
+      roll();
+    }
+    MappedByteBuffer segment = segments.get(writeSegment);
+    ByteBuffer view = segment.duplicate();
+    view.position(writePosition + Integer.BYTES);
+    view.putLong(System.currentTimeMillis()).put((byte) qos).putShort((short) topicBytes.length)
+      .put(topicBytes).put(payload);
+    segment.putInt(writePosition, length);
+    writePosition += length;
+    if (forceInterval > 0 && ++unforced >= forceInterval) {
+      segment.force();
+      unforced = 0;
+    }
+  }
+
+  /**
+   * 设置刷盘间隔, 每追加指定数量的消息将当前分段写入磁盘, 切换分段前同样刷盘
+   *
+   * @param forceInterval 刷盘间隔(消息数量), 为0时只在{@link #flush()}时刷盘
+   */
+  public synchronized void setForceInterval(int forceInterval) {
+    Assert.isTrue(forceInterval >= 0, "刷盘间隔不能小于0");
+    this.forceInterval = forceInterval;
+  }
+
+  /**
+   * 查看下一条未过期的消息, 不移动读取位置, 跳过的过期消息视为已读取
+   *
+   * @return 下一条消息, 没有消息时为null
+   */
+  public synchronized Record peek() {
+    Record result = null;
+    while (result == null && !isEmpty()) {
+      MappedByteBuffer segment = segments.get(readSegment);
+      int length = readPosition + Integer.BYTES <= segmentSize ? segment.getInt(readPosition) : 0;
+      if (length == 0) {
+        nextReadSegment();
+      } else {
+        result = read(segment, readPosition, length);
+        if (isExpired(result)) {
+          expired++;
+          advance(result);
+          result = null;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 移除已处理的消息, 即将读取位置移动到该消息之后
+   *
+   * @param record {@link #peek()}返回的消息
+   */
+  public synchronized void remove(Record record) {
+    if (record.segment == readSegment && record.position == readPosition) {
+      advance(record);
+    }
+  }
+
+  /**
+   * 是否没有待读取的消息
+   *
+   * @return 是否没有待读取的消息
+   */
+  public synchronized boolean isEmpty() {
+    return readSegment == writeSegment && readPosition == writePosition;
+  }
+
+  /**
+   * 获取分段数量
+   *
+   * @return 分段数量
+   */
+  public synchronized int getSegments() {
+    return segments.size();
+  }
+
+  /**
+   * 将所有分段与读取位置写入磁盘
+   */
+  public synchronized void flush() {
+    segments.values().forEach(MappedByteBuffer::force);
+    offset.force();
+  }
+
+  private void recover() {
+    writeSegment = segments.lastKey();
+    MappedByteBuffer segment = segments.get(writeSegment);
+    writePosition = 0;
+    while (writePosition + Integer.BYTES <= segmentSize && segment.getInt(writePosition) > 0) {
+      writePosition += segment.getInt(writePosition);
+    }
+    long savedSegment = offset.getLong(0);
+    if (segments.containsKey(savedSegment)) {
+      readSegment = savedSegment;
+      readPosition = offset.getInt(Long.BYTES);
+    } else {
+      readSegment = segments.firstKey();
+      readPosition = 0;
+    }
+  }
+
+  private void roll() throws IOException {
+    if (forceInterval > 0 && unforced > 0) {
+      segments.get(writeSegment).force();
+      unforced = 0;
+    }
+    writeSegment++;
+    writePosition = 0;
+    segments.put(writeSegment, map(segmentPath(writeSegment), segmentSize));
+    while (segments.size() > maxSegments) {
+      long oldest = segments.firstKey();
+      if (oldest == readSegment) {
+        nextReadSegment();
+      } else {
+        delete(oldest);
+      }
+      droppedSegments++;
+    }
+  }
+
+  private void nextReadSegment() {
+    if (readSegment == writeSegment) {
+      return;
+    }
+    delete(readSegment);
+    readSegment = segments.firstKey();
+    readPosition = 0;
+    saveOffset();
+  }
+
+  private void advance(Record record) {
+    readPosition += record.length;
+    saveOffset();
+  }
+
+  private void saveOffset() {
+    offset.putInt(Long.BYTES, readPosition);
+    offset.putLong(0, readSegment);
+  }
+
+  private boolean isExpired(Record record) {
+    return retention > 0 && record.timestamp + retention < System.currentTimeMillis();
+  }
+
+  private Record read(MappedByteBuffer segment, int position, int length) {
+    ByteBuffer view = segment.duplicate();
+    view.position(position + Integer.BYTES);
+    long timestamp = view.getLong();
+    int qos = view.get();
+    byte[] topic = new byte[Short.toUnsignedInt(view.getShort())];
+    view.get(topic);
+    byte[] payload = new byte[length - HEADER_SIZE - topic.length];
+    view.get(payload);
+    return new Record(new String(topic, StandardCharsets.UTF_8), qos, payload, timestamp, readSegment, position,
+      length);
+  }
+
+  private void delete(long id) {
+    segments.remove(id);
+    try {
+      Files.deleteIfExists(segmentPath(id));
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("删除分段[%s]失败", segmentPath(id)), e);
+    }
+  }
+
+  private List<Long> listSegments() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.map(file -> file.getFileName().toString())
+        .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+        .map(name -> Long.valueOf(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+        .sorted()
+        .collect(Collectors.toList());
+    }
+  }
+
+  private Path segmentPath(long id) {
+    return directory.resolve(String.format(SEGMENT_FORMAT, id));
+  }
+
+  private static MappedByteBuffer map(Path path, int size) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+      StandardOpenOption.WRITE)) {
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+  }
+
+  /**
+   * 消息日志中的消息
+   *
+   * @author Houtaroy
+   */
+  @Getter
+  @AllArgsConstructor
+  public static class Record {
+    private final String topic;
+    private final int qos;
+    private final byte[] payload;
+    private final long timestamp;
+    private final long segment;
+    private final int position;
+    private final int length;
+  }
+}
@@ -0,0 +1,18 @@
+package cn.koala.mqtt;
+
+/**
+ * Mqtt消息发送者
+ *
+ * @author Houtaroy
+ */
+@FunctionalInterface
+public interface MqttSender {
+  /**
+   * 向指定主题发送指定QOS的消息, 发送失败时抛出异常
+   *
+   * @param topic   主题
+   * @param qos     qos, 小于0时使用默认qos
+   * @param payload 消息
+   */
+  void send(String topic, int qos, byte[] payload);
+}
@@ -1,16 +1,28 @@
 package cn.koala.mqtt;
 
 import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
+import org.springframework.messaging.Message;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
 /**
  * @author Houtaroy
  */
 public class MqttTemplate {
+  private static final int DEFAULT_QOS = -1;
 
-  private final MqttAdapter adapter;
+  private final List<MqttAdapter> adapters = new ArrayList<>();
   private final MqttGateway gateway;
+  private final MqttPublisher publisher;
+  private final MqttPayloadCodec codec;
+  private volatile MqttOutboundBuffer outboundBuffer;
 
   /**
    * 构造方法
@@ -19,8 +31,58 @@ public class MqttTemplate {
    * @param gateway Mqtt消息网关
    */
   public MqttTemplate(MqttAdapter adapter, MqttGateway gateway) {
-    this.adapter = adapter;
+    this(adapter, gateway, null);
+  }
+
+  /**
+   * 构造方法
+   *
+   * @param adapter   Mqtt入站适配器
+   * @param gateway   Mqtt消息网关
+   * @param publisher Mqtt异步发布者, 为null时不支持异步与批量发送
+   */
+  public MqttTemplate(MqttAdapter adapter, MqttGateway gateway, MqttPublisher publisher) {
+    this(adapter, gateway, publisher, null);
+  }
+
+  /**
+   * 构造方法
+   *
+   * @param adapter   Mqtt入站适配器
+   * @param gateway   Mqtt消息网关
+   * @param publisher Mqtt异步发布者, 为null时不支持异步与批量发送
+   * @param codec     Mqtt消息编解码器, 为null时不支持对象编解码
+   */
+  public MqttTemplate(MqttAdapter adapter, MqttGateway gateway, MqttPublisher publisher,
+                      MqttPayloadCodec codec) {
+    this(adapter, gateway, publisher, codec, List.of());
+  }
+
+  /**
+   * 构造方法
+   *
+   * @param adapter   Mqtt入站适配器
+   * @param gateway   Mqtt消息网关
+   * @param publisher Mqtt异步发布者, 为null时不支持异步与批量发送
+   * @param codec     Mqtt消息编解码器, 为null时不支持对象编解码
+   * @param members   同组的其它入站适配器, 增加或移除监听主题时同步处理
+   */
+  public MqttTemplate(MqttAdapter adapter, MqttGateway gateway, MqttPublisher publisher,
+                      MqttPayloadCodec codec, List<MqttAdapter> members) {
+    this.adapters.add(adapter);
+    this.adapters.addAll(members);
     this.gateway = gateway;
+    this.publisher = publisher;
+    this.codec = codec;
+  }
+
+  /**
+   * 设置出站持久化缓冲, 设置后指定主题发送的消息在发送失败时缓冲到本地磁盘, 恢复后按顺序重新发送
+   *
+   * @param outboundBuffer 出站持久化缓冲, 为null时不缓冲
+   */
+  public void setOutboundBuffer(MqttOutboundBuffer outboundBuffer) {
+    this.outboundBuffer = outboundBuffer;
   }
 
   /**
@@ -40,7 +102,7 @@ public class MqttTemplate {
    */
   public void addTopic(String topic, int qos) {
     Assert.isTrue(StringUtils.hasLength(topic), "主题不能为空");
-    adapter.addTopic(topic, qos);
+    adapters.forEach(adapter -> adapter.addTopic(topic, qos));
   }
 
   /**
@@ -62,7 +124,7 @@ public class MqttTemplate {
    */
   public void addTopic(String topic, int qos, IMqttMessageListener listener) {
     Assert.isTrue(StringUtils.hasLength(topic), "主题不能为空");
-    adapter.addTopic(topic, qos, listener);
+    adapters.forEach(adapter -> adapter.addTopic(topic, qos, listener));
   }
 
   /**
@@ -71,7 +133,7 @@ public class MqttTemplate {
    * @param topics 监听主题数组
    */
   public void addTopics(String... topics) {
-    adapter.addTopic(topics);
+    adapters.forEach(adapter -> adapter.addTopic(topics));
   }
 
   /**
@@ -81,7 +143,7 @@ public class MqttTemplate {
    * @param qos    qos数组
    */
   public void addTopics(String[] topics, int[] qos) {
-    adapter.addTopics(topics, qos);
+    adapters.forEach(adapter -> adapter.addTopics(topics, qos));
   }
 
   /**
@@ -90,7 +152,7 @@ public class MqttTemplate {
    * @param topic 监听主题
    */
   public void removeTopic(String topic) {
-    adapter.removeTopic(topic);
+    adapters.forEach(adapter -> adapter.removeTopic(topic));
   }
 
   /**
@@ -99,7 +161,7 @@ public class MqttTemplate {
    * @param topics 监听主题数组
    */
   public void removeTopics(String... topics) {
-    adapter.removeTopic(topics);
+    adapters.forEach(adapter -> adapter.removeTopic(topics));
   }
 
   /**
@@ -118,7 +180,9 @@ public class MqttTemplate {
    * @param message 消息
    */
   public void send(String topic, String message) {
-    gateway.send(topic, message);
+    if (!buffered(topic, DEFAULT_QOS, () -> message.getBytes(StandardCharsets.UTF_8))) {
+      gateway.send(topic, message);
+    }
   }
 
   /**
@@ -129,6 +193,141 @@ public class MqttTemplate {
    * @param message 消息
    */
   public void send(String topic, int qos, String message) {
-    gateway.send(topic, qos, message);
+    if (!buffered(topic, qos, () -> message.getBytes(StandardCharsets.UTF_8))) {
+      gateway.send(topic, qos, message);
+    }
+  }
+
+  /**
+   * 向指定主题发送二进制消息
+   *
+   * @param topic   主题
+   * @param payload 消息
+   */
+  public void send(String topic, byte[] payload) {
+    if (!buffered(topic, DEFAULT_QOS, () -> payload)) {
+      gateway.send(topic, payload);
+    }
+  }
+
+  /**
+   * 向指定主题发送指定QOS的二进制消息
+   *
+   * @param topic   主题
+   * @param qos     qos
+   * @param payload 消息
+   */
+  public void send(String topic, int qos, byte[] payload) {
+    if (!buffered(topic, qos, () -> payload)) {
+      gateway.send(topic, qos, payload);
+    }
+  }
+
+  /**
+   * 向指定主题发送指定QOS的二进制消息, 发送缓冲区中剩余的字节, 不改变缓冲区的位置
+   *
+   * @param topic   主题
+   * @param qos     qos
+   * @param payload 消息
+   */
+  public void send(String topic, int qos, ByteBuffer payload) {
+    send(topic, qos, toBytes(payload));
+  }
+
+  /**
+   * 使用编解码器将对象编码后, 向指定主题发送指定QOS的消息
+   *
+   * @param topic 主题
+   * @param qos   qos
+   * @param value 对象
+   */
+  public void convertAndSend(String topic, int qos, Object value) {
+    Assert.state(codec != null, "未配置Mqtt消息编解码器");
+    send(topic, qos, codec.encode(value));
+  }
+
+  /**
+   * 使用编解码器将入站消息解码为指定类型的对象, 二进制消息直接解码, 无需转换为字符串
+   *
+   * @param message 入站消息
+   * @param type    对象类型
+   * @param <T>     对象类型
+   * @return 对象
+   */
+  public <T> T convert(Message<?> message, Class<T> type) {
+    Assert.state(codec != null, "未配置Mqtt消息编解码器");
+    Object payload = message.getPayload();
+    byte[] bytes = payload instanceof byte[]
+      ? (byte[]) payload : payload.toString().getBytes(StandardCharsets.UTF_8);
+    return codec.decode(bytes, type);
+  }
+
+  /**
+   * 向指定主题批量发送指定QOS的消息, 不经过消息网关
+   *
+   * @param topic    主题
+   * @param qos      qos
+   * @param payloads 消息列表
+   * @return 全部消息发送完成时完成, 任一消息发送失败时异常完成
+   */
+  public CompletableFuture<Void> sendBatch(String topic, int qos, List<byte[]> payloads) {
+    Assert.isTrue(StringUtils.hasLength(topic), "主题不能为空");
+    Assert.state(publisher != null, "未配置Mqtt异步发布者");
+    return publisher.publish(topic, qos, payloads);
+  }
+
+  /**
+   * 向指定主题异步发送指定QOS的二进制消息, 不经过消息网关
+   *
+   * @param topic   主题
+   * @param qos     qos
+   * @param payload 消息
+   * @return 消息发送完成时完成
+   */
+  public CompletableFuture<Void> sendAsync(String topic, int qos, byte[] payload) {
+    Assert.isTrue(StringUtils.hasLength(topic), "主题不能为空");
+    Assert.state(publisher != null, "未配置Mqtt异步发布者");
+    return publisher.publish(topic, qos, payload);
+  }
+
+  /**
+   * 创建通过消息网关发送的消息发送者, qos小于0时使用默认qos
+   *
+   * @param gateway Mqtt消息网关
+   * @return 消息发送者
+   */
+  public static MqttSender sender(MqttGateway gateway) {
+    return (topic, qos, payload) -> {
+      if (qos < 0) {
+        gateway.send(topic, payload);
+      } else {
+        gateway.send(topic, qos, payload);
+      }
+    };
+  }
+
+  private boolean buffered(String topic, int qos, Supplier<byte[]> payload) {
+    MqttOutboundBuffer current = outboundBuffer;
+    if (current == null) {
+      return false;
+    }
+    current.send(topic, qos, payload.get());
+    return true;
+  }
+
+  /**
+   * 获取缓冲区中剩余的字节, 缓冲区恰好包装整个数组时直接返回该数组
+   *
+   * @param buffer 缓冲区
+   * @return 字节数组
+   */
+  protected static byte[] toBytes(ByteBuffer buffer) {
+    if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+      && buffer.remaining() == buffer.array().length) {
+      return buffer.array();
+    }
+    byte[] result = new byte[buffer.remaining()];
+    buffer.duplicate().get(result);
+    return result;
   }
 }
@@ -0,0 +1,109 @@
+package cn.koala.mqtt;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Mqtt主题路由器
+ * <p>
+ * 订阅入站通道后, 按消息的接收主题在{@link MqttTopicTrie}中匹配路由, 将消息交给所有匹配路由的处理器;
+ * 路由可指定独立的线程池, 处理缓慢的路由不会影响其它路由, 未指定线程池时在当前线程处理
+ *
+ * @author Houtaroy
+ */
+public class MqttTopicRouter implements MessageHandler {
+  private static final LogAccessor LOGGER = new LogAccessor(MqttTopicRouter.class);
+
+  private final MqttTopicTrie<Route> routes = new MqttTopicTrie<>();
+  private volatile MessageHandler defaultHandler;
+
+  /**
+   * 增加路由, 在当前线程处理消息
+   *
+   * @param filter  主题过滤器
+   * @param handler 消息处理器
+   */
+  public void route(String filter, MessageHandler handler) {
+    route(filter, handler, null);
+  }
+
+  /**
+   * 增加路由
+   *
+   * @param filter   主题过滤器
+   * @param handler  消息处理器
+   * @param executor 线程池, 为null时在当前线程处理
+   */
+  public void route(String filter, MessageHandler handler, Executor executor) {
+    routes.add(filter, new Route(handler, executor));
+  }
+
+  /**
+   * 移除主题过滤器的全部路由
+   *
+   * @param filter 主题过滤器
+   */
+  public void remove(String filter) {
+    routes.remove(filter);
+  }
+
+  /**
+   * 设置默认处理器, 处理没有匹配任何路由的消息
+   *
+   * @param defaultHandler 默认处理器, 为null时忽略没有匹配路由的消息
+   */
+  public void setDefaultHandler(MessageHandler defaultHandler) {
+    this.defaultHandler = defaultHandler;
+  }
+
+  @Override
+  public void handleMessage(Message<?> message) {
+    String topic = message.getHeaders().get(MqttHeaders.RECEIVED_TOPIC, String.class);
+    List<Route> matched = topic == null ? List.of() : routes.match(topic);
+    if (!matched.isEmpty()) {
+      matched.forEach(route -> route.dispatch(message));
+    } else if (defaultHandler != null) {
+      defaultHandler.handleMessage(message);
+    } else {
+      LOGGER.debug(() -> "No route for topic " + topic);
+    }
+  }
+
+  /**
+   * 路由
+   *
+   * @author Houtaroy
+   */
+  @Getter
+  @AllArgsConstructor
+  public static class Route {
+    private final MessageHandler handler;
+    private final Executor executor;
+
+    /**
+     * 分发消息, 指定线程池时异步处理
+     *
+     * @param message 消息
+     */
+    public void dispatch(Message<?> message) {
+      if (executor == null) {
+        handler.handleMessage(message);
+      } else {
+        executor.execute(() -> {
+          try {
+            handler.handleMessage(message);
+          } catch (RuntimeException e) {
+            LOGGER.error(e, () -> "Unhandled exception for " + message);
+          }
+        });
+      }
+    }
+  }
+}
@@ -0,0 +1,197 @@
+package cn.koala.mqtt;
+
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 主题过滤器字典树
+ * <p>
+ * 按主题层级存储主题过滤器, 支持单层通配符+与多层通配符#, 匹配耗时与主题层级数量成正比, 与过滤器数量无关;
+ * 以$开头的主题不匹配首层的通配符
+ * <p>
+ * 修改操作互斥执行, 移除时同时移除不再有值的节点, 节点数量不随订阅的增减无限增长; 匹配不加锁
+ *
+ * @param <T> 过滤器对应的值类型
+ * @author Houtaroy
+ */
+public class MqttTopicTrie<T> {
+  private static final char SEPARATOR = '/';
+  private static final String SINGLE_LEVEL = "+";
+  private static final String MULTI_LEVEL = "#";
+  private static final char SYSTEM_PREFIX = '$';
+
+  private final Node<T> root = new Node<>();
+
+  /**
+   * 增加主题过滤器
+   *
+   * @param filter 主题过滤器
+   * @param value  值
+   */
+  public synchronized void add(String filter, T value) {
+    Assert.hasLength(filter, "主题过滤器不能为空");
+    List<String> levels = split(filter);
+    validate(levels);
+    Node<T> node = root;
+    for (String level : levels) {
+      node = node.children.computeIfAbsent(level, key -> new Node<>());
+    }
+    node.values.add(value);
+  }
+
+  /**
+   * 移除主题过滤器的全部值, 并移除不再有值的节点
+   *
+   * @param filter 主题过滤器
+   * @return 是否存在该主题过滤器
+   */
+  public synchronized boolean remove(String filter) {
+    List<Node<T>> path = path(filter);
+    if (path.isEmpty()) {
+      return false;
+    }
+    Node<T> node = path.get(path.size() - 1);
+    boolean result = !node.values.isEmpty();
+    node.values.clear();
+    prune(filter, path);
+    return result;
+  }
+
+  /**
+   * 移除主题过滤器的指定值, 并移除不再有值的节点
+   *
+   * @param filter 主题过滤器
+   * @param value  值
+   * @return 是否存在该值
+   */
+  public synchronized boolean remove(String filter, T value) {
+    List<Node<T>> path = path(filter);
+    if (path.isEmpty()) {
+      return false;
+    }
+    boolean result = path.get(path.size() - 1).values.remove(value);
+    prune(filter, path);
+    return result;
+  }
+
+  /**
+   * 匹配主题
+   *
+   * @param topic 主题
+   * @return 所有匹配的主题过滤器的值
+   */
+  public List<T> match(String topic) {
+    List<T> result = new ArrayList<>();
+    List<String> levels = split(topic);
+    match(root, levels, 0, !topic.isEmpty() && topic.charAt(0) == SYSTEM_PREFIX, result);
+    return result;
+  }
+
+  /**
+   * 是否没有任何值
+   *
+   * @return 是否没有任何值
+   */
+  public boolean isEmpty() {
+    return root.isEmpty();
+  }
+
+  private void match(Node<T> node, List<String> levels, int depth, boolean system, List<T> result) {
+    boolean wildcard = depth > 0 || !system;
+    Node<T> multi = wildcard ? node.children.get(MULTI_LEVEL) : null;
+    if (multi != null) {
+      result.addAll(multi.values);
+    }
+    if (depth == levels.size()) {
+      result.addAll(node.values);
+    } else {
+      Node<T> exact = node.children.get(levels.get(depth));
+      if (exact != null) {
+        match(exact, levels, depth + 1, system, result);
+      }
+      Node<T> single = wildcard ? node.children.get(SINGLE_LEVEL) : null;
+      if (single != null) {
+        match(single, levels, depth + 1, system, result);
+      }
+    }
+  }
+
+  /**
+   * 查找主题过滤器经过的节点
+   *
+   * @param filter 主题过滤器
+   * @return 从根节点开始的节点, 过滤器不存在时为空
+   */
+  private List<Node<T>> path(String filter) {
+    List<Node<T>> result = new ArrayList<>();
+    Node<T> node = root;
+    for (String level : split(filter)) {
+      result.add(node);
+      node = node.children.get(level);
+      if (node == null) {
+        return Collections.emptyList();
+      }
+    }
+    result.add(node);
+    return result;
+  }
+
+  /**
+   * 自下而上移除没有值也没有子节点的节点, 根节点除外
+   *
+   * @param filter 主题过滤器
+   * @param path   主题过滤器经过的节点
+   */
+  private void prune(String filter, List<Node<T>> path) {
+    List<String> levels = split(filter);
+    for (int depth = path.size() - 1; depth > 0 && path.get(depth).isEmpty(); depth--) {
+      path.get(depth - 1).children.remove(levels.get(depth - 1), path.get(depth));
+    }
+  }
+
+  /**
+   * 校验主题过滤器层级: 通配符必须独占一个层级, 多层通配符只能位于最后一个层级
+   *
+   * @param levels 主题过滤器层级
+   */
+  private static void validate(List<String> levels) {
+    for (int i = 0; i < levels.size(); i++) {
+      String level = levels.get(i);
+      boolean wildcard = level.contains(SINGLE_LEVEL) || level.contains(MULTI_LEVEL);
+      Assert.isTrue(!wildcard || SINGLE_LEVEL.equals(level) || MULTI_LEVEL.equals(level), "通配符必须独占一个层级");
+      Assert.isTrue(!MULTI_LEVEL.equals(level) || i == levels.size() - 1, "多层通配符只能位于主题过滤器末尾");
+    }
+  }
+
+  private static List<String> split(String topic) {
+    List<String> result = new ArrayList<>();
+    int start = 0;
+    for (int i = topic.indexOf(SEPARATOR); i >= 0; i = topic.indexOf(SEPARATOR, start)) {
+      result.add(topic.substring(start, i));
+      start = i + 1;
+    }
+    result.add(topic.substring(start));
+    return result;
+  }
+
+  /**
+   * 字典树节点
+   *
+   * @param <T> 值类型
+   * @author Houtaroy
+   */
+  static class Node<T> {
+    private final Map<String, Node<T>> children = new ConcurrentHashMap<>();
+    private final List<T> values = new CopyOnWriteArrayList<>();
+
+    boolean isEmpty() {
+      return values.isEmpty() && children.isEmpty();
+    }
+  }
+}
@@ -0,0 +1,402 @@
+package cn.koala.mqtt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 测试用内嵌mqtt代理
+ * <p>
+ * 在当前JVM中实现MQTT 3.1.1的最小子集: 连接, 订阅与取消订阅(支持通配符与$share共享订阅), QoS 0/1/2的发布与心跳;
+ * 不保存会话与保留消息, 不校验用户名密码, 用于在没有外部代理的环境中测试与压测
+ *
+ * @author Houtaroy
+ */
+public class EmbeddedMqttBroker implements AutoCloseable {
+  private static final int CONNECT = 1;
+  private static final int CONNACK = 2;
+  private static final int PUBLISH = 3;
+  private static final int PUBACK = 4;
+  private static final int PUBREC = 5;
+  private static final int PUBREL = 6;
+  private static final int PUBCOMP = 7;
+  private static final int SUBSCRIBE = 8;
+  private static final int SUBACK = 9;
+  private static final int UNSUBSCRIBE = 10;
+  private static final int UNSUBACK = 11;
+  private static final int PINGREQ = 12;
+  private static final int PINGRESP = 13;
+  private static final int DISCONNECT = 14;
+  private static final int TYPE_SHIFT = 4;
+  private static final int QOS_MASK = 0x03;
+  private static final int PUBREL_FLAGS = 0x02;
+  private static final int CONNACK_LENGTH = 2;
+  private static final int LENGTH_MASK = 0x7F;
+  private static final int LENGTH_CONTINUATION = 0x80;
+  private static final int LENGTH_SHIFT = 7;
+  private static final int MAX_PACKET_ID = 0xFFFF;
+  private static final int BACKLOG = 128;
+  private static final String SHARED_PREFIX = "$share/";
+
+  private final ServerSocket server;
+  private final MqttTopicTrie<Subscription> subscriptions = new MqttTopicTrie<>();
+  private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+  private final AtomicInteger sharedIndex = new AtomicInteger();
+  private final LongAdder received = new LongAdder();
+  private final LongAdder delivered = new LongAdder();
+  private volatile boolean running = true;
+
+  /**
+   * 构造函数, 监听本地回环地址的随机端口
+   *
+   * @throws IOException 监听失败
+   */
+  public EmbeddedMqttBroker() throws IOException {
+    this.server = new ServerSocket(0, BACKLOG, InetAddress.getLoopbackAddress());
+    Thread acceptor = new Thread(this::accept, "embedded-mqtt-broker");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  /**
+   * 获取代理地址
+   *
+   * @return 代理地址
+   */
+  public String getUri() {
+    return String.format("tcp://%s:%d", server.getInetAddress().getHostAddress(), server.getLocalPort());
+  }
+
+  /**
+   * 断开全部客户端连接, 用于模拟网络中断
+   */
+  public void disconnectAll() {
+    new ArrayList<>(sessions.values()).forEach(Session::close);
+  }
+
+  /**
+   * 获取当前连接数量
+   *
+   * @return 连接数量
+   */
+  public int getConnections() {
+    return sessions.size();
+  }
+
+  /**
+   * 获取收到的发布消息数量
+   *
+   * @return 收到的发布消息数量
+   */
+  public long getReceived() {
+    return received.sum();
+  }
+
+  /**
+   * 获取投递给订阅者的消息数量
+   *
+   * @return 投递的消息数量
+   */
+  public long getDelivered() {
+    return delivered.sum();
+  }
+
+  @Override
+  public void close() throws IOException {
+    running = false;
+    server.close();
+    disconnectAll();
+  }
+
+  private void accept() {
+    while (running) {
+      try {
+        Socket socket = server.accept();
+        socket.setTcpNoDelay(true);
+        Thread thread = new Thread(new Session(socket), "embedded-mqtt-session");
+        thread.setDaemon(true);
+        thread.start();
+      } catch (IOException e) {
+        // 代理关闭时退出
+      }
+    }
+  }
+
+  /**
+   * 将消息投递给匹配的订阅, 共享订阅组内轮流选择一个订阅
+   *
+   * @param topic   主题
+   * @param qos     发布的服务质量
+   * @param payload 消息体
+   */
+  protected void forward(String topic, int qos, byte[] payload) {
+    Map<String, List<Subscription>> groups = new LinkedHashMap<>();
+    for (Subscription subscription : subscriptions.match(topic)) {
+      if (subscription.group == null) {
+        subscription.session.send(topic, Math.min(qos, subscription.qos), payload);
+      } else {
+        groups.computeIfAbsent(subscription.group, key -> new ArrayList<>()).add(subscription);
+      }
+    }
+    for (List<Subscription> members : groups.values()) {
+      Subscription selected = members.get(Math.floorMod(sharedIndex.getAndIncrement(), members.size()));
+      selected.session.send(topic, Math.min(qos, selected.qos), payload);
+    }
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeString(ByteArrayOutputStream out, String value) {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeShort(out, bytes.length);
+    out.writeBytes(bytes);
+  }
+
+  private static void writeShort(ByteArrayOutputStream out, int value) {
+    out.write(value >>> Byte.SIZE);
+    out.write(value);
+  }
+
+  /**
+   * 订阅
+   *
+   * @author Houtaroy
+   */
+  protected static class Subscription {
+    private final Session session;
+    private final String filter;
+    private final String topicFilter;
+    private final String group;
+    private final int qos;
+
+    /**
+     * 构造函数, 解析共享订阅的组名与主题过滤器
+     *
+     * @param session 客户端会话
+     * @param filter  订阅的主题过滤器
+     * @param qos     服务质量
+     */
+    protected Subscription(Session session, String filter, int qos) {
+      this.session = session;
+      this.filter = filter;
+      this.qos = qos;
+      int separator = filter.indexOf('/', SHARED_PREFIX.length());
+      boolean shared = filter.startsWith(SHARED_PREFIX) && separator > 0;
+      this.group = shared ? filter.substring(SHARED_PREFIX.length(), separator) : null;
+      this.topicFilter = shared ? filter.substring(separator + 1) : filter;
+    }
+  }
+
+  /**
+   * 客户端会话, 每个连接一个线程读取报文
+   *
+   * @author Houtaroy
+   */
+  protected class Session implements Runnable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final OutputStream out;
+    private final List<Subscription> owned = new CopyOnWriteArrayList<>();
+    private final AtomicInteger packetId = new AtomicInteger();
+    private String clientId;
+
+    /**
+     * 构造函数
+     *
+     * @param socket 客户端连接
+     * @throws IOException 获取输入输出流失败
+     */
+    protected Session(Socket socket) throws IOException {
+      this.socket = socket;
+      this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    @Override
+    public void run() {
+      try {
+        int header = in.read();
+        while (header >= 0) {
+          byte[] body = new byte[readLength()];
+          in.readFully(body);
+          handle(header, ByteBuffer.wrap(body));
+          header = in.read();
+        }
+      } catch (IOException e) {
+        // 连接断开
+      } finally {
+        close();
+      }
+    }
+
+    /**
+     * 向客户端发送发布报文
+     *
+     * @param topic   主题
+     * @param qos     服务质量
+     * @param payload 消息体
+     */
+    protected void send(String topic, int qos, byte[] payload) {
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+      writeString(body, topic);
+      if (qos > 0) {
+        writeShort(body, packetId.updateAndGet(id -> id % MAX_PACKET_ID + 1));
+      }
+      body.writeBytes(payload);
+      write(PUBLISH << TYPE_SHIFT | qos << 1, body.toByteArray());
+      delivered.increment();
+    }
+
+    /**
+     * 关闭连接并移除订阅
+     */
+    protected void close() {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // 忽略关闭异常
+      }
+      owned.forEach(subscription -> subscriptions.remove(subscription.topicFilter, subscription));
+      owned.clear();
+      if (clientId != null) {
+        sessions.remove(clientId, this);
+      }
+    }
+
+    private void handle(int header, ByteBuffer body) {
+      switch (header >>> TYPE_SHIFT) {
+        case CONNECT:
+          connect(body);
+          break;
+        case PUBLISH:
+          publish(header, body);
+          break;
+        case PUBREC:
+          write(PUBREL << TYPE_SHIFT | PUBREL_FLAGS, body.array());
+          break;
+        case PUBREL:
+          write(PUBCOMP << TYPE_SHIFT, body.array());
+          break;
+        case SUBSCRIBE:
+          subscribe(body);
+          break;
+        case UNSUBSCRIBE:
+          unsubscribe(body);
+          break;
+        case PINGREQ:
+          write(PINGRESP << TYPE_SHIFT, new byte[0]);
+          break;
+        case PUBACK:
+        case PUBCOMP:
+          break;
+        case DISCONNECT:
+        default:
+          close();
+          break;
+      }
+    }
+
+    private void connect(ByteBuffer body) {
+      readString(body);
+      body.get();
+      body.get();
+      body.getShort();
+      clientId = readString(body);
+      Session previous = sessions.put(clientId, this);
+      if (previous != null) {
+        previous.close();
+      }
+      write(CONNACK << TYPE_SHIFT, new byte[CONNACK_LENGTH]);
+    }
+
+    private void publish(int header, ByteBuffer body) {
+      int qos = header >>> 1 & QOS_MASK;
+      String topic = readString(body);
+      int id = qos > 0 ? Short.toUnsignedInt(body.getShort()) : 0;
+      byte[] payload = new byte[body.remaining()];
+      body.get(payload);
+      received.increment();
+      forward(topic, qos, payload);
+      if (qos > 0) {
+        ByteArrayOutputStream ack = new ByteArrayOutputStream();
+        writeShort(ack, id);
+        write((qos == 1 ? PUBACK : PUBREC) << TYPE_SHIFT, ack.toByteArray());
+      }
+    }
+
+    private void subscribe(ByteBuffer body) {
+      ByteArrayOutputStream ack = new ByteArrayOutputStream();
+      writeShort(ack, Short.toUnsignedInt(body.getShort()));
+      while (body.hasRemaining()) {
+        Subscription subscription = new Subscription(this, readString(body), body.get() & QOS_MASK);
+        subscriptions.add(subscription.topicFilter, subscription);
+        owned.add(subscription);
+        ack.write(subscription.qos);
+      }
+      write(SUBACK << TYPE_SHIFT, ack.toByteArray());
+    }
+
+    private void unsubscribe(ByteBuffer body) {
+      ByteArrayOutputStream ack = new ByteArrayOutputStream();
+      writeShort(ack, Short.toUnsignedInt(body.getShort()));
+      while (body.hasRemaining()) {
+        String filter = readString(body);
+        for (Subscription subscription : owned) {
+          if (subscription.filter.equals(filter)) {
+            subscriptions.remove(subscription.topicFilter, subscription);
+            owned.remove(subscription);
+          }
+        }
+      }
+      write(UNSUBACK << TYPE_SHIFT, ack.toByteArray());
+    }
+
+    private synchronized void write(int header, byte[] body) {
+      try {
+        out.write(header);
+        int length = body.length;
+        do {
+          int digit = length & LENGTH_MASK;
+          length >>>= LENGTH_SHIFT;
+          out.write(length > 0 ? digit | LENGTH_CONTINUATION : digit);
+        } while (length > 0);
+        out.write(body);
+        out.flush();
+      } catch (IOException e) {
+        close();
+      }
+    }
+
+    private int readLength() throws IOException {
+      int result = 0;
+      int shift = 0;
+      int digit;
+      do {
+        digit = in.readUnsignedByte();
+        result |= (digit & LENGTH_MASK) << shift;
+        shift += LENGTH_SHIFT;
+      } while ((digit & LENGTH_CONTINUATION) != 0);
+      return result;
+    }
+  }
+}
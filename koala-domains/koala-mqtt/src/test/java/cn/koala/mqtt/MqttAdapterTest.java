@@ -0,0 +1,115 @@
+package cn.koala.mqtt;
+
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.mqtt.core.DefaultMqttPahoClientFactory;
+import org.springframework.integration.mqtt.support.DefaultPahoMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mqtt入站适配器单元测试
+ *
+ * @author Houtaroy
+ */
+public class MqttAdapterTest {
+  private static final int MESSAGES = 3;
+  private static final long TIMEOUT_SECONDS = 10L;
+
+  /**
+   * 共享订阅的主题过滤器与监听器分发
+   *
+   * @throws Exception 异常
+   */
+  @Test
+  void shared() throws Exception {
+    MqttAdapter adapter = new MqttAdapter("tcp://127.0.0.1:1883", "test", "a");
+    Assertions.assertEquals(adapter.toSubscription("a/+"), "a/+");
+    adapter.setSharedGroup("koala");
+    Assertions.assertEquals(adapter.toSubscription("a/+"), "$share/koala/a/+");
+    Assertions.assertEquals(adapter.toSubscription("$share/other/a"), "$share/other/a");
+    List<String> received = new ArrayList<>();
+    adapter.addTopic("sensor/#", 1, (topic, message) -> received.add(topic));
+    adapter.messageArrived("sensor/1/temperature", new MqttMessage());
+    Assertions.assertEquals(received, List.of("sensor/1/temperature"));
+  }
+
+  /**
+   * 入站分发器拒绝消息时不确认并断开连接, 随后重连
+   *
+   * @throws Exception 异常
+   */
+  @Test
+  void nack() throws Exception {
+    ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    scheduler.initialize();
+    CountDownLatch handling = new CountDownLatch(1);
+    CountDownLatch released = new CountDownLatch(1);
+    CountDownLatch subscribed = new CountDownLatch(1);
+    CountDownLatch reconnected = new CountDownLatch(1);
+    try (EmbeddedMqttBroker broker = new EmbeddedMqttBroker()) {
+      DefaultMqttPahoClientFactory factory = new DefaultMqttPahoClientFactory();
+      MqttConnectOptions options = new MqttConnectOptions();
+      options.setServerURIs(new String[]{broker.getUri()});
+      factory.setConnectionOptions(options);
+      DirectChannel channel = new DirectChannel();
+      channel.subscribe(message -> {
+        handling.countDown();
+        await(released);
+      });
+      MqttAdapter adapter = new MqttAdapter("nack-adapter", factory, "nack/#");
+      adapter.setManualAcks(true);
+      adapter.setConverter(new DefaultPahoMessageConverter());
+      adapter.setOutputChannel(channel);
+      adapter.setTaskScheduler(scheduler);
+      adapter.setBeanFactory(new DefaultListableBeanFactory());
+      adapter.setBackoff(new MqttReconnectBackoff(Duration.ofMillis(10), Duration.ofSeconds(1),
+        MqttReconnectBackoff.DEFAULT_MULTIPLIER, MqttReconnectBackoff.DEFAULT_JITTER));
+      adapter.setDispatcher(new MqttInboundDispatcher(1, 1, MqttBackpressure.NACK, Duration.ofSeconds(1)));
+      adapter.setObserver(new MqttObserver() {
+        @Override
+        public void onSubscribed(String clientId, long nanos) {
+          subscribed.countDown();
+        }
+
+        @Override
+        public void onReconnected(String clientId, long disconnectedNanos) {
+          reconnected.countDown();
+        }
+      });
+      adapter.afterPropertiesSet();
+      MqttBatchPublisher publisher = new MqttBatchPublisher(factory, "nack-publisher", MESSAGES);
+      adapter.start();
+      try {
+        Assertions.assertTrue(subscribed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        for (int i = 0; i < MESSAGES; i++) {
+          publisher.publish("nack/1", 1, new byte[]{(byte) i}).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        Assertions.assertTrue(handling.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        Assertions.assertTrue(reconnected.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      } finally {
+        released.countDown();
+        adapter.stop();
+        publisher.close();
+        scheduler.shutdown();
+      }
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      Assertions.assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
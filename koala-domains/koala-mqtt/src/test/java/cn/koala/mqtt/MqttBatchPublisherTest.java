@@ -0,0 +1,168 @@
+package cn.koala.mqtt;
+
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.integration.mqtt.core.DefaultMqttPahoClientFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Mqtt批量发布者单元测试
+ *
+ * @author Houtaroy
+ */
+public class MqttBatchPublisherTest {
+  private static final int WINDOW = 8;
+  private static final int MESSAGES = 200;
+  private static final long TIMEOUT_SECONDS = 10;
+  private static final long COMPLETION_TIMEOUT = 1000;
+  private static final long POLL_MILLIS = 10;
+
+  /**
+   * 批量发送经独立的异步客户端发布到服务器地址, 消息数量超过在途窗口时全部送达, 完成后窗口全部释放
+   *
+   * @throws Exception 异常
+   */
+  @Test
+  void sendBatch() throws Exception {
+    try (EmbeddedMqttBroker broker = new EmbeddedMqttBroker()) {
+      MqttBatchPublisher publisher = new MqttBatchPublisher(factory(broker.getUri()), "batch-publisher", WINDOW);
+      MqttTemplate template = new MqttTemplate(null, null, publisher);
+      try {
+        publisher.connect();
+        template.sendBatch("batch/1", 1, payloads()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Assertions.assertEquals(broker.getReceived(), MESSAGES);
+        Assertions.assertEquals(publisher.getInFlight(), 0);
+        template.sendAsync("batch/2", 0, new byte[0]).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Assertions.assertEquals(broker.getConnections(), 1);
+      } finally {
+        publisher.close();
+      }
+    }
+  }
+
+  /**
+   * 首次连接成功后由客户端在后台重连, 重连后批量发送继续送达
+   *
+   * @throws Exception 异常
+   */
+  @Test
+  void reconnect() throws Exception {
+    try (EmbeddedMqttBroker broker = new EmbeddedMqttBroker()) {
+      MqttBatchPublisher publisher = new MqttBatchPublisher(factory(broker.getUri()), "batch-publisher", WINDOW);
+      try {
+        publisher.publish("batch/1", 1, payloads()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        broker.disconnectAll();
+        awaitDisconnected(publisher);
+        awaitReconnect(publisher);
+        publisher.publish("batch/1", 1, payloads()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Assertions.assertEquals(broker.getReceived(), MESSAGES * 2 + 1);
+      } finally {
+        publisher.close();
+      }
+    }
+  }
+
+  /**
+   * 断开期间消息进入离线缓冲, 不占用在途窗口, 缓冲的消息数量可超过窗口
+   *
+   * @throws Exception 异常
+   */
+  @Test
+  void buffer() throws Exception {
+    EmbeddedMqttBroker broker = new EmbeddedMqttBroker();
+    MqttBatchPublisher publisher = new MqttBatchPublisher(factory(broker.getUri()), "batch-publisher", WINDOW,
+      COMPLETION_TIMEOUT, MqttBatchPublisher.bufferOptions(MESSAGES));
+    try {
+      publisher.publish("batch/1", 1, payloads()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      broker.close();
+      awaitDisconnected(publisher);
+      CompletableFuture<Void> buffered = CompletableFuture.supplyAsync(() -> publisher.publish("batch/1", 1, payloads()))
+        .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      Assertions.assertFalse(buffered.isDone());
+      Assertions.assertEquals(publisher.getInFlight(), 0);
+    } finally {
+      publisher.close();
+    }
+  }
+
+  /**
+   * 连接失败时批量发送异常完成, 不占用在途窗口
+   *
+   * @throws IOException 代理启动失败
+   */
+  @Test
+  void connectFailure() throws IOException {
+    String uri;
+    try (EmbeddedMqttBroker broker = new EmbeddedMqttBroker()) {
+      uri = broker.getUri();
+    }
+    MqttBatchPublisher publisher = new MqttBatchPublisher(factory(uri), "batch-publisher", WINDOW,
+      COMPLETION_TIMEOUT);
+    try {
+      publisher.connect();
+      CompletableFuture<Void> result = publisher.publish("batch/1", 1, payloads());
+      Assertions.assertThrows(ExecutionException.class, () -> result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+      Assertions.assertEquals(publisher.getInFlight(), 0);
+    } finally {
+      publisher.close();
+    }
+  }
+
+  private static DefaultMqttPahoClientFactory factory(String uri) {
+    DefaultMqttPahoClientFactory result = new DefaultMqttPahoClientFactory();
+    MqttConnectOptions options = new MqttConnectOptions();
+    options.setServerURIs(new String[]{uri});
+    result.setConnectionOptions(options);
+    return result;
+  }
+
+  private static List<byte[]> payloads() {
+    List<byte[]> result = new ArrayList<>(MESSAGES);
+    for (int i = 0; i < MESSAGES; i++) {
+      result.add(String.valueOf(i).getBytes(StandardCharsets.UTF_8));
+    }
+    return result;
+  }
+
+  /**
+   * 重复发送一条消息直至送达, 断开期间的发送失败
+   *
+   * @param publisher 发布者
+   * @throws Exception 等待被中断或重连超时
+   */
+  private static void awaitReconnect(MqttBatchPublisher publisher) throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+    while (!publisher.publish("batch/ping", 1, new byte[0]).handle((result, e) -> e == null)
+      .get(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+      if (System.nanoTime() > deadline) {
+        throw new TimeoutException("重连超时");
+      }
+      Thread.sleep(POLL_MILLIS);
+    }
+  }
+
+  /**
+   * 等待客户端发现连接断开
+   *
+   * @param publisher 发布者
+   * @throws Exception 等待被中断或超时
+   */
+  private static void awaitDisconnected(MqttBatchPublisher publisher) throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+    while (publisher.getClient().isConnected()) {
+      if (System.nanoTime() > deadline) {
+        throw new TimeoutException("断开超时");
+      }
+      Thread.sleep(POLL_MILLIS);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package cn.koala.mqtt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 入站消息异步分发器单元测试
+ *
+ * @author Houtaroy
+ */
+public class MqttInboundDispatcherTest {
+
+  /**
+   * 同一主题的消息按到达顺序处理
+   *
+   * @throws InterruptedException 中断异常
+   */
+  @Test
+  void ordered() throws InterruptedException {
+    Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+    CountDownLatch latch = new CountDownLatch(300);
+    MqttInboundDispatcher dispatcher = new MqttInboundDispatcher(4, 8, MqttBackpressure.BLOCK, Duration.ofSeconds(1));
+    dispatcher.start(message -> {
+      String topic = (String) message.getHeaders().get("topic");
+      received.computeIfAbsent(topic, key -> new CopyOnWriteArrayList<>()).add((Integer) message.getPayload());
+      latch.countDown();
+    });
+    for (int i = 0; i < 100; i++) {
+      for (String topic : List.of("a", "b", "c")) {
+        Assertions.assertTrue(dispatcher.dispatch(topic, message(topic, i)));
+      }
+    }
+    Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+    dispatcher.stop();
+    received.values().forEach(values -> {
+      for (int i = 0; i < values.size(); i++) {
+        Assertions.assertEquals(values.get(i), i);
+      }
+    });
+  }
+
+  /**
+   * 队列已满时丢弃最早的消息或拒绝当前消息, 停止后拒绝全部消息
+   */
+  @Test
+  void backpressure() {
+    MqttInboundDispatcher dropping = new MqttInboundDispatcher(1, 2, MqttBackpressure.DROP_OLDEST, Duration.ZERO);
+    for (int i = 0; i < 5; i++) {
+      Assertions.assertTrue(dropping.dispatch("a", message("a", i)));
+    }
+    Assertions.assertEquals(dropping.size(), 2);
+    Assertions.assertEquals(dropping.getDropped(), 3);
+    MqttInboundDispatcher rejecting = new MqttInboundDispatcher(1, 2, MqttBackpressure.NACK, Duration.ofSeconds(1));
+    Assertions.assertTrue(rejecting.dispatch("a", message("a", 0)));
+    Assertions.assertTrue(rejecting.dispatch("a", message("a", 1)));
+    Assertions.assertFalse(rejecting.dispatch("a", message("a", 2)));
+    Assertions.assertEquals(rejecting.getRejected(), 1);
+    rejecting.start(message -> {
+    });
+    rejecting.stop();
+    Assertions.assertFalse(rejecting.dispatch("a", message("a", 3)));
+    Assertions.assertEquals(rejecting.size(), 0);
+  }
+
+  private static Message<Integer> message(String topic, int payload) {
+    return MessageBuilder.withPayload(payload).setHeader("topic", topic).build();
+  }
+}
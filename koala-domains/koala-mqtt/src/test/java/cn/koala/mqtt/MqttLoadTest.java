@@ -0,0 +1,250 @@
+package cn.koala.mqtt;
+
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.mqtt.core.DefaultMqttPahoClientFactory;
+import org.springframework.integration.mqtt.support.DefaultPahoMessageConverter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Mqtt压测
+ * <p>
+ * 基于{@link EmbeddedMqttBroker}, 以指定速率通过MqttTemplate发布消息, 由MqttAdapter接收, 统计吞吐量与发布至接收的延迟;
+ * 预热后进入稳定阶段, 稳定阶段结束后断开全部连接, 统计重连耗时, 并在重连后再次压测
+ * <p>
+ * 耗时较长, 默认不执行, 通过系统属性koala.mqtt.load=true开启并调整参数, 例如:
+ * <pre>
+ * mvn -pl koala-domains/koala-mqtt test -Dtest=MqttLoadTest -Dkoala.mqtt.load=true -Dkoala.mqtt.load.rate=20000
+ * </pre>
+ *
+ * @author Houtaroy
+ */
+@EnabledIfSystemProperty(named = "koala.mqtt.load", matches = "true")
+public class MqttLoadTest {
+  private static final LogAccessor LOGGER = new LogAccessor(MqttLoadTest.class);
+  private static final int DEFAULT_RATE = 2000;
+  private static final int DEFAULT_MESSAGES = 4000;
+  private static final int DEFAULT_WARMUP = 1000;
+  private static final int DEFAULT_PAYLOAD_SIZE = 64;
+  private static final int DEFAULT_QOS = 1;
+  private static final long TIMEOUT_SECONDS = 30L;
+  private static final double PERCENTILE_50 = 0.5;
+  private static final double PERCENTILE_99 = 0.99;
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+  private static final String TOPIC = "load/test";
+
+  private final int rate = Integer.getInteger("koala.mqtt.load.rate", DEFAULT_RATE);
+  private final int messages = Integer.getInteger("koala.mqtt.load.messages", DEFAULT_MESSAGES);
+  private final int warmup = Integer.getInteger("koala.mqtt.load.warmup", DEFAULT_WARMUP);
+  private final int payloadSize = Math.max(Integer.getInteger("koala.mqtt.load.payload-size", DEFAULT_PAYLOAD_SIZE),
+    Long.BYTES);
+  private final int qos = Integer.getInteger("koala.mqtt.load.qos", DEFAULT_QOS);
+
+  /**
+   * 稳定压测与断线重连后的压测
+   *
+   * @throws Exception 异常
+   */
+  @Test
+  void load() throws Exception {
+    ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    scheduler.initialize();
+    Receiver receiver = new Receiver();
+    Observer observer = new Observer();
+    try (EmbeddedMqttBroker broker = new EmbeddedMqttBroker()) {
+      DefaultMqttPahoClientFactory factory = new DefaultMqttPahoClientFactory();
+      MqttConnectOptions options = new MqttConnectOptions();
+      options.setServerURIs(new String[]{broker.getUri()});
+      factory.setConnectionOptions(options);
+      MqttAdapter adapter = createAdapter(factory, scheduler, receiver, observer);
+      MqttBatchPublisher publisher = new MqttBatchPublisher(factory, "load-publisher",
+        MqttBatchPublisher.DEFAULT_WINDOW, MqttBatchPublisher.DEFAULT_COMPLETION_TIMEOUT,
+        MqttBatchPublisher.bufferOptions(MqttBatchPublisher.DEFAULT_BUFFER_SIZE));
+      MqttTemplate template = new MqttTemplate(adapter, null, publisher);
+      adapter.start();
+      try {
+        Assertions.assertTrue(observer.subscribed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "订阅超时");
+        run(template, receiver, warmup);
+        Report steady = run(template, receiver, messages);
+        print("稳定", steady);
+        Assertions.assertEquals(messages, steady.received);
+
+        broker.disconnectAll();
+        Assertions.assertTrue(observer.reconnected.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "重连超时");
+        LOGGER.info(() -> String.format("重连: 尝试%d次, 断开%.2fms", observer.attempts.get(),
+          observer.disconnectedNanos.get() / NANOS_PER_MILLI));
+        Report recovered = run(template, receiver, messages);
+        print("重连后", recovered);
+        Assertions.assertEquals(messages, recovered.received);
+      } finally {
+        adapter.stop();
+        publisher.close();
+      }
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  private MqttAdapter createAdapter(DefaultMqttPahoClientFactory factory, ThreadPoolTaskScheduler scheduler,
+                                    Receiver receiver, Observer observer) {
+    DirectChannel channel = new DirectChannel();
+    channel.subscribe(receiver);
+    MqttAdapter result = new MqttAdapter("load-adapter", factory, TOPIC);
+    DefaultPahoMessageConverter converter = new DefaultPahoMessageConverter();
+    converter.setPayloadAsBytes(true);
+    result.setConverter(converter);
+    result.setQos(qos);
+    result.setOutputChannel(channel);
+    result.setTaskScheduler(scheduler);
+    result.setBeanFactory(new DefaultListableBeanFactory());
+    result.setBackoff(new MqttReconnectBackoff(Duration.ofMillis(10), Duration.ofSeconds(1),
+      MqttReconnectBackoff.DEFAULT_MULTIPLIER, MqttReconnectBackoff.DEFAULT_JITTER));
+    result.setObserver(observer);
+    result.afterPropertiesSet();
+    return result;
+  }
+
+  private Report run(MqttTemplate template, Receiver receiver, int count) throws Exception {
+    receiver.reset(count);
+    List<CompletableFuture<Void>> futures = new ArrayList<>(count);
+    long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+    long start = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      long delay = start + i * interval - System.nanoTime();
+      if (delay > 0) {
+        LockSupport.parkNanos(delay);
+      }
+      byte[] payload = ByteBuffer.allocate(payloadSize).putLong(System.nanoTime()).array();
+      futures.add(template.sendAsync(TOPIC, qos, payload));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    receiver.await(TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS));
+    return receiver.report(System.nanoTime() - start);
+  }
+
+  private void print(String phase, Report report) {
+    LOGGER.info(() -> String.format("%s: 目标速率%d/s, 接收%d/%d, 吞吐量%.0f/s, p50 %.2fms, p99 %.2fms", phase, rate,
+      report.received, messages, report.throughput, report.p50 / NANOS_PER_MILLI, report.p99 / NANOS_PER_MILLI));
+  }
+
+  /**
+   * 压测结果
+   *
+   * @author Houtaroy
+   */
+  protected static class Report {
+    private int received;
+    private double throughput;
+    private long p50;
+    private long p99;
+  }
+
+  /**
+   * 接收消息并记录发布至接收的延迟
+   *
+   * @author Houtaroy
+   */
+  protected static class Receiver implements MessageHandler {
+    private final AtomicInteger count = new AtomicInteger();
+    private volatile long[] latencies = new long[0];
+
+    @Override
+    public void handleMessage(Message<?> message) {
+      long latency = System.nanoTime() - ByteBuffer.wrap((byte[]) message.getPayload()).getLong();
+      int index = count.getAndIncrement();
+      if (index < latencies.length) {
+        latencies[index] = latency;
+      }
+    }
+
+    /**
+     * 重置接收状态
+     *
+     * @param expected 预期接收的消息数量
+     */
+    protected void reset(int expected) {
+      latencies = new long[expected];
+      count.set(0);
+    }
+
+    /**
+     * 等待接收全部消息或超时
+     *
+     * @param timeoutNanos 超时时间(纳秒)
+     */
+    protected void await(long timeoutNanos) {
+      long deadline = System.nanoTime() + timeoutNanos;
+      while (count.get() < latencies.length && System.nanoTime() < deadline) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+      }
+    }
+
+    /**
+     * 统计压测结果
+     *
+     * @param elapsedNanos 压测耗时(纳秒)
+     * @return 压测结果
+     */
+    protected Report report(long elapsedNanos) {
+      Report result = new Report();
+      result.received = Math.min(count.get(), latencies.length);
+      long[] sorted = Arrays.copyOf(latencies, result.received);
+      Arrays.sort(sorted);
+      result.throughput = result.received * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+      result.p50 = percentile(sorted, PERCENTILE_50);
+      result.p99 = percentile(sorted, PERCENTILE_99);
+      return result;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+      return sorted.length == 0 ? 0 : sorted[(int) Math.ceil(percentile * sorted.length) - 1];
+    }
+  }
+
+  /**
+   * 记录订阅与重连
+   *
+   * @author Houtaroy
+   */
+  protected static class Observer implements MqttObserver {
+    private final CountDownLatch subscribed = new CountDownLatch(1);
+    private final CountDownLatch reconnected = new CountDownLatch(1);
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final AtomicLong disconnectedNanos = new AtomicLong();
+
+    @Override
+    public void onReconnectAttempt(String clientId, boolean success) {
+      attempts.incrementAndGet();
+    }
+
+    @Override
+    public void onReconnected(String clientId, long disconnectedNanos) {
+      this.disconnectedNanos.set(disconnectedNanos);
+      reconnected.countDown();
+    }
+
+    @Override
+    public void onSubscribed(String clientId, long nanos) {
+      subscribed.countDown();
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package cn.koala.mqtt;
+
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttDeliveryToken;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.integration.mqtt.core.DefaultMqttPahoClientFactory;
+import org.springframework.integration.mqtt.event.MqttMessageSentEvent;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mqtt出站处理器单元测试
+ *
+ * @author Houtaroy
+ */
+public class MqttOutboundHandlerTest {
+  private static final int MESSAGES = 10;
+  private static final long TIMEOUT_SECONDS = 10L;
+
+  /**
+   * 异步模式下发布返回与deliveryComplete按消息id关联, 与先后顺序无关
+   */
+  @Test
+  void delivery() {
+    List<String> delivered = new ArrayList<>();
+    MqttOutboundHandler handler = new MqttOutboundHandler("test", new DefaultMqttPahoClientFactory());
+    handler.setAsync(true);
+    handler.setObserver(new MqttObserver() {
+      @Override
+      public void onDeliveryComplete(String topic, long nanos) {
+        Assertions.assertTrue(nanos >= 0);
+        delivered.add(topic);
+      }
+    });
+    handler.onEvent(sent(1, "a"));
+    Assertions.assertTrue(delivered.isEmpty());
+    handler.deliveryComplete(token(1));
+    handler.deliveryComplete(token(2));
+    handler.onEvent(sent(2, "b"));
+    handler.deliveryComplete(token(0));
+    Assertions.assertEquals(List.of("a", "b"), delivered);
+    Assertions.assertEquals(handler.getInFlight(), 0);
+  }
+
+  /**
+   * 异步模式下送达耗时从发布前开始计算, 送达后在途数量归零
+   *
+   * @throws Exception 异常
+   */
+  @Test
+  void latency() throws Exception {
+    List<Long> latencies = new CopyOnWriteArrayList<>();
+    CountDownLatch delivered = new CountDownLatch(MESSAGES);
+    try (EmbeddedMqttBroker broker = new EmbeddedMqttBroker()) {
+      DefaultMqttPahoClientFactory factory = new DefaultMqttPahoClientFactory();
+      MqttConnectOptions options = new MqttConnectOptions();
+      options.setServerURIs(new String[]{broker.getUri()});
+      factory.setConnectionOptions(options);
+      MqttOutboundHandler handler = new MqttOutboundHandler("latency", factory);
+      handler.setAsync(true);
+      handler.setDefaultQos(1);
+      handler.setBeanFactory(new DefaultListableBeanFactory());
+      handler.setObserver(new MqttObserver() {
+        @Override
+        public void onDeliveryComplete(String topic, long nanos) {
+          latencies.add(nanos);
+          delivered.countDown();
+        }
+      });
+      handler.afterPropertiesSet();
+      handler.start();
+      try {
+        for (int i = 0; i < MESSAGES; i++) {
+          handler.handleMessage(MessageBuilder.withPayload("latency").setHeader(MqttHeaders.TOPIC, "a").build());
+        }
+        Assertions.assertTrue(delivered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        latencies.forEach(nanos -> Assertions.assertTrue(nanos > 0));
+        Assertions.assertEquals(handler.getInFlight(), 0);
+      } finally {
+        handler.stop();
+      }
+    }
+  }
+
+  /**
+   * 设置发布者连接池后, 同步发送的消息按主题经连接池的多个连接发送, 处理器自身不建立连接
+   *
+   * @throws Exception 异常
+   */
+  @Test
+  void pool() throws Exception {
+    try (EmbeddedMqttBroker broker = new EmbeddedMqttBroker()) {
+      DefaultMqttPahoClientFactory factory = new DefaultMqttPahoClientFactory();
+      MqttConnectOptions options = new MqttConnectOptions();
+      options.setServerURIs(new String[]{broker.getUri()});
+      factory.setConnectionOptions(options);
+      MqttPublisherPool pool = new MqttPublisherPool(2, index -> new MqttBatchPublisher(factory, "pool-" + index, 8));
+      MqttOutboundHandler handler = new MqttOutboundHandler("pool", factory);
+      handler.setDefaultQos(1);
+      handler.setPublisher(pool);
+      handler.setBeanFactory(new DefaultListableBeanFactory());
+      handler.afterPropertiesSet();
+      handler.start();
+      try {
+        pool.connect();
+        for (int i = 0; i < MESSAGES; i++) {
+          handler.handleMessage(MessageBuilder.withPayload("pool").setHeader(MqttHeaders.TOPIC, "pool/" + i).build());
+        }
+        Assertions.assertEquals(broker.getReceived(), MESSAGES);
+        Assertions.assertEquals(broker.getConnections(), 2);
+      } finally {
+        handler.stop();
+        pool.close();
+      }
+    }
+  }
+
+  private static MqttMessageSentEvent sent(int messageId, String topic) {
+    return new MqttMessageSentEvent(topic, MessageBuilder.withPayload(topic).build(), topic, messageId, "test", 0);
+  }
+
+  private static MqttDeliveryToken token(int messageId) {
+    MqttDeliveryToken result = new MqttDeliveryToken("test");
+    result.internalTok.setMessageID(messageId);
+    return result;
+  }
+}
@@ -0,0 +1,62 @@
+package cn.koala.mqtt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Mqtt发布者连接池单元测试
+ *
+ * @author Houtaroy
+ */
+public class MqttPublisherPoolTest {
+
+  /**
+   * 同一主题固定分配到同一发布者, 且主题在发布者之间分布均匀
+   */
+  @Test
+  void select() {
+    List<List<String>> published = new ArrayList<>();
+    MqttPublisherPool pool = new MqttPublisherPool(4, index -> {
+      List<String> topics = new ArrayList<>();
+      published.add(topics);
+      return new RecordingPublisher(topics);
+    });
+    Map<String, MqttPublisher> selected = new HashMap<>();
+    for (int i = 0; i < 4000; i++) {
+      String topic = "sensor/" + i;
+      selected.put(topic, pool.select(topic));
+      pool.publish(topic, 0, new byte[0]).join();
+    }
+    selected.forEach((topic, publisher) -> Assertions.assertSame(pool.select(topic), publisher));
+    published.forEach(topics -> Assertions.assertTrue(topics.size() > 600, () -> "分布不均匀: " + topics.size()));
+  }
+
+  /**
+   * 记录主题的发布者
+   *
+   * @author Houtaroy
+   */
+  static class RecordingPublisher implements MqttPublisher {
+    private final List<String> topics;
+
+    RecordingPublisher(List<String> topics) {
+      this.topics = topics;
+    }
+
+    @Override
+    public CompletableFuture<Void> publish(String topic, int qos, List<byte[]> payloads) {
+      topics.add(topic);
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package cn.koala.mqtt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+/**
+ * 重连指数退避策略单元测试
+ *
+ * @author Houtaroy
+ */
+public class MqttReconnectBackoffTest {
+
+  /**
+   * 间隔按倍数增长至最大间隔, 抖动只减少间隔
+   */
+  @Test
+  void delay() {
+    MqttReconnectBackoff backoff = new MqttReconnectBackoff(Duration.ofMillis(100), Duration.ofSeconds(1), 2, 0.5);
+    for (int i = 0; i < 100; i++) {
+      long first = backoff.delay(0);
+      Assertions.assertTrue(first >= 50 && first <= 100, () -> "首次间隔: " + first);
+      long third = backoff.delay(2);
+      Assertions.assertTrue(third >= 200 && third <= 400, () -> "第三次间隔: " + third);
+      long last = backoff.delay(30);
+      Assertions.assertTrue(last >= 500 && last <= 1000, () -> "最大间隔: " + last);
+    }
+    MqttReconnectBackoff fixed = new MqttReconnectBackoff(Duration.ofSeconds(1), Duration.ofSeconds(1), 1, 0);
+    Assertions.assertEquals(fixed.delay(5), 1000);
+  }
+}
@@ -0,0 +1,114 @@
+package cn.koala.mqtt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 内存映射分段消息日志单元测试
+ *
+ * @author Houtaroy
+ */
+public class MqttSegmentLogTest {
+
+  /**
+   * 按顺序读取, 每条消息刷盘, 重新打开后从上次的读取位置继续
+   *
+   * @param directory 临时目录
+   * @throws IOException IO异常
+   */
+  @Test
+  void recover(@TempDir Path directory) throws IOException {
+    MqttSegmentLog log = new MqttSegmentLog(directory, 64, 16, null);
+    log.setForceInterval(1);
+    for (int i = 0; i < 10; i++) {
+      log.append("topic/" + i, 1, bytes(i));
+    }
+    Assertions.assertTrue(log.getSegments() > 1);
+    for (int i = 0; i < 4; i++) {
+      MqttSegmentLog.Record record = log.peek();
+      Assertions.assertEquals(record.getTopic(), "topic/" + i);
+      log.remove(record);
+    }
+    MqttSegmentLog reopened = new MqttSegmentLog(directory, 64, 16, null);
+    List<String> payloads = new ArrayList<>();
+    for (MqttSegmentLog.Record record = reopened.peek(); record != null; record = reopened.peek()) {
+      Assertions.assertEquals(record.getQos(), 1);
+      payloads.add(new String(record.getPayload(), StandardCharsets.UTF_8));
+      reopened.remove(record);
+    }
+    Assertions.assertEquals(payloads, List.of("4", "5", "6", "7", "8", "9"));
+    Assertions.assertTrue(reopened.isEmpty());
+    Assertions.assertEquals(reopened.getSegments(), 1);
+  }
+
+  /**
+   * 超过容量时删除最早的分段, 过期消息不再读取
+   *
+   * @param directory 临时目录
+   * @throws IOException IO异常
+   */
+  @Test
+  void capacity(@TempDir Path directory) throws IOException {
+    MqttSegmentLog log = new MqttSegmentLog(directory, 64, 2, null);
+    for (int i = 0; i < 10; i++) {
+      log.append("t", 0, bytes(i));
+    }
+    Assertions.assertEquals(log.getSegments(), 2);
+    Assertions.assertTrue(log.getDroppedSegments() > 0);
+    Assertions.assertEquals(new String(log.peek().getPayload(), StandardCharsets.UTF_8), "6");
+    MqttSegmentLog expiring = new MqttSegmentLog(directory.resolve("expiring"), 64, 2, Duration.ofMillis(1));
+    expiring.append("t", 0, bytes(0));
+    long start = System.currentTimeMillis();
+    while (System.currentTimeMillis() - start < 5) {
+      Thread.onSpinWait();
+    }
+    Assertions.assertNull(expiring.peek());
+    Assertions.assertEquals(expiring.getExpired(), 1);
+  }
+
+  /**
+   * 发送失败时缓冲, 恢复后按顺序重新发送
+   *
+   * @param directory 临时目录
+   * @throws Exception 异常
+   */
+  @Test
+  void buffer(@TempDir Path directory) throws Exception {
+    AtomicBoolean available = new AtomicBoolean(false);
+    List<String> sent = new CopyOnWriteArrayList<>();
+    MqttOutboundBuffer buffer = new MqttOutboundBuffer(
+      new MqttSegmentLog(directory, 1024, 4, null), (topic, qos, payload) -> {
+        if (!available.get()) {
+          throw new IllegalStateException("disconnected");
+        }
+        sent.add(new String(payload, StandardCharsets.UTF_8));
+      }, 1000, Duration.ofMillis(10));
+    buffer.start();
+    for (int i = 0; i < 5; i++) {
+      buffer.send("t", 1, bytes(i));
+    }
+    Assertions.assertTrue(sent.isEmpty());
+    available.set(true);
+    buffer.send("t", 1, bytes(5));
+    long start = System.currentTimeMillis();
+    while (sent.size() < 6 && System.currentTimeMillis() - start < 5000) {
+      Thread.sleep(10);
+    }
+    buffer.stop();
+    Assertions.assertEquals(sent, List.of("0", "1", "2", "3", "4", "5"));
+  }
+
+  private static byte[] bytes(int value) {
+    return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,44 @@
+package cn.koala.mqtt;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MqttTemplate单元测试
+ *
+ * @author Houtaroy
+ */
+public class MqttTemplateTest {
+
+  /**
+   * 包装整个数组的缓冲区不复制, 其余缓冲区复制剩余字节且不改变位置
+   */
+  @Test
+  void toBytes() {
+    byte[] bytes = {1, 2, 3, 4};
+    Assertions.assertSame(MqttTemplate.toBytes(ByteBuffer.wrap(bytes)), bytes);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, 2);
+    Assertions.assertArrayEquals(MqttTemplate.toBytes(buffer), new byte[]{2, 3});
+    Assertions.assertEquals(buffer.position(), 1);
+  }
+
+  /**
+   * 二进制与字符串消息直接解码为对象
+   */
+  @Test
+  void convert() {
+    MqttTemplate template = new MqttTemplate(null, null, null, new JacksonMqttPayloadCodec(new ObjectMapper()));
+    String json = "{\"values\":[1,2]}";
+    Map<?, ?> expected = Map.of("values", List.of(1, 2));
+    Assertions.assertEquals(template.convert(MessageBuilder.withPayload(json).build(), Map.class), expected);
+    byte[] payload = json.getBytes(StandardCharsets.UTF_8);
+    Assertions.assertEquals(template.convert(MessageBuilder.withPayload(payload).build(), Map.class), expected);
+  }
+}
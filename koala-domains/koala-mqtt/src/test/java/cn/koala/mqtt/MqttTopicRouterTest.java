@@ -0,0 +1,88 @@
+package cn.koala.mqtt;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mqtt主题路由器单元测试
+ *
+ * @author Houtaroy
+ */
+public class MqttTopicRouterTest {
+
+  /**
+   * 通配符匹配
+   */
+  @Test
+  void match() {
+    MqttTopicTrie<String> trie = new MqttTopicTrie<>();
+    List.of("a/b/c", "a/+/c", "a/#", "#", "+/+", "a/b", "$SYS/#").forEach(filter -> trie.add(filter, filter));
+    Assertions.assertEquals(sorted(trie.match("a/b/c")), List.of("#", "a/#", "a/+/c", "a/b/c"));
+    Assertions.assertEquals(sorted(trie.match("a/b")), List.of("#", "+/+", "a/#", "a/b"));
+    Assertions.assertEquals(sorted(trie.match("a")), List.of("#", "a/#"));
+    Assertions.assertEquals(sorted(trie.match("$SYS/broker")), List.of("$SYS/#"));
+    Assertions.assertTrue(trie.remove("#"));
+    Assertions.assertEquals(sorted(trie.match("x/y")), List.of("+/+"));
+  }
+
+  /**
+   * 通配符必须独占一个层级, 多层通配符只能位于末尾
+   */
+  @Test
+  void validate() {
+    MqttTopicTrie<String> trie = new MqttTopicTrie<>();
+    List.of("a/b#", "a+/b", "a/#/b", "#/a", "a/+b").forEach(filter ->
+      Assertions.assertThrows(IllegalArgumentException.class, () -> trie.add(filter, filter)));
+    Assertions.assertTrue(trie.isEmpty());
+    List.of("+", "#", "+/+/#", "a//b", "/+").forEach(filter -> trie.add(filter, filter));
+    Assertions.assertFalse(trie.isEmpty());
+  }
+
+  /**
+   * 移除后不再有值的节点被移除, 仍有值或子节点的节点保留
+   */
+  @Test
+  void prune() {
+    MqttTopicTrie<String> trie = new MqttTopicTrie<>();
+    for (int i = 0; i < 100; i++) {
+      trie.add("device/" + i + "/+/status", "status");
+      trie.add("device/" + i, "device");
+    }
+    Assertions.assertFalse(trie.remove("device/x/+/status"));
+    Assertions.assertFalse(trie.remove("device/0", "status"));
+    for (int i = 0; i < 100; i++) {
+      Assertions.assertTrue(trie.remove("device/" + i + "/+/status", "status"));
+      Assertions.assertEquals(trie.match("device/" + i), List.of("device"));
+      Assertions.assertTrue(trie.remove("device/" + i));
+    }
+    Assertions.assertTrue(trie.isEmpty());
+    Assertions.assertTrue(trie.match("device/0/a/status").isEmpty());
+  }
+
+  /**
+   * 消息交给所有匹配路由的处理器, 没有匹配的路由时交给默认处理器
+   */
+  @Test
+  void route() {
+    List<String> handled = new ArrayList<>();
+    MqttTopicRouter router = new MqttTopicRouter();
+    router.route("sensor/+/temperature", message -> handled.add("temperature"));
+    router.route("sensor/#", message -> handled.add("sensor"), Runnable::run);
+    router.setDefaultHandler(message -> handled.add("default"));
+    router.handleMessage(MessageBuilder.withPayload("1")
+      .setHeader(MqttHeaders.RECEIVED_TOPIC, "sensor/1/temperature").build());
+    router.handleMessage(MessageBuilder.withPayload("2").setHeader(MqttHeaders.RECEIVED_TOPIC, "device/1").build());
+    Assertions.assertEquals(sorted(handled), List.of("default", "sensor", "temperature"));
+  }
+
+  private static List<String> sorted(List<String> values) {
+    List<String> result = new ArrayList<>(values);
+    result.sort(null);
+    return result;
+  }
+}
@@ -1,23 +1,110 @@
 package cn.koala.sensitiveword;
 
+import lombok.AllArgsConstructor;
 import toolgood.words.StringSearchEx2;
 
 /**
  * 抽象敏感词过滤器实现
+ * <p>
+ * 子类在{@link #init()}中设置{@link #matcher}; 仍设置已废弃的{@link #instance}的子类在未设置匹配器时继续可用
  *
  * @author Houtaroy
  */
 public abstract class AbstractSensitiveWordFilter implements SensitiveWordFilter {
 
-  protected StringSearchEx2 instance;
+  protected volatile SensitiveWordMatcher matcher;
+  /**
+   * ToolGood敏感词搜索实例
+   *
+   * @deprecated 过滤器已改为基于{@link SensitiveWordMatcher}匹配, 请设置{@link #matcher};
+   * 只设置此字段时首次使用需读取其敏感词并编译匹配器
+   */
+  @Deprecated
+  protected volatile StringSearchEx2 instance;
+  private volatile Legacy legacy;
 
   @Override
   public String doFilter(String content, char replacement) {
-    return instance == null ? content : instance.Replace(content, replacement);
+    SensitiveWordMatcher current = current();
+    return current == null ? content : current.replace(content, replacement);
+  }
+
+  @Override
+  public boolean containsAny(CharSequence content) {
+    SensitiveWordMatcher current = current();
+    return current != null && current.containsAny(content);
+  }
+
+  @Override
+  public int find(CharSequence content, int[] ranges) {
+    SensitiveWordMatcher current = current();
+    return current == null ? 0 : current.find(content, ranges);
+  }
+
+  @Override
+  public boolean mask(char[] chars, int offset, int length, char replacement) {
+    SensitiveWordMatcher current = current();
+    return current != null && current.mask(chars, offset, length, replacement) > 0;
+  }
+
+  @Override
+  public boolean mask(StringBuilder content, char replacement) {
+    SensitiveWordMatcher current = current();
+    return current != null && current.mask(content, replacement) > 0;
+  }
+
+  /**
+   * 获取ToolGood敏感词搜索实例
+   *
+   * @return ToolGood敏感词搜索实例, 未设置时为null
+   * @deprecated 过滤器已改为基于{@link SensitiveWordMatcher}匹配, 请使用{@link #getMatcher()}
+   */
+  @Deprecated
+  protected StringSearchEx2 getInstance() {
+    return instance;
+  }
+
+  /**
+   * 获取当前敏感词匹配器, 延迟编译匹配器的子类在此编译
+   *
+   * @return 敏感词匹配器, 未初始化时为null
+   */
+  public SensitiveWordMatcher getMatcher() {
+    return matcher;
   }
 
   /**
    * 初始化
    */
   protected abstract void init();
+
+  /**
+   * 获取当前匹配器, 只设置了{@link #instance}时按其敏感词编译匹配器, 并缓存到instance被重新赋值为止
+   *
+   * @return 敏感词匹配器, 未初始化时为null
+   */
+  private SensitiveWordMatcher current() {
+    SensitiveWordMatcher current = getMatcher();
+    StringSearchEx2 search = instance;
+    if (current != null || search == null) {
+      return current;
+    }
+    Legacy cached = legacy;
+    if (cached == null || cached.search != search) {
+      cached = new Legacy(search, DefaultSensitiveWordMatcher.compile(KeywordsStringSearch.keywords(search)));
+      legacy = cached;
+    }
+    return cached.matcher;
+  }
+
+  /**
+   * 由已废弃的ToolGood搜索实例编译的匹配器
+   *
+   * @author Houtaroy
+   */
+  @AllArgsConstructor
+  private static class Legacy {
+    private final StringSearchEx2 search;
+    private final SensitiveWordMatcher matcher;
+  }
 }
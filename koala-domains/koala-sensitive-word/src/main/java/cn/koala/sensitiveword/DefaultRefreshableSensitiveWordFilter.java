@@ -1,15 +1,22 @@
 package cn.koala.sensitiveword;
 
-import toolgood.words.StringSearchEx2;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * 默认可刷新敏感词库的敏感词过滤器
+ * <p>
+ * 存储库支持增量查询时, 刷新只应用变更的敏感词, 不重新加载全部敏感词;
+ * {@link #refreshed()}以同样的方式构建新的过滤器, 当前过滤器保持不变
+ * <p>
+ * 匹配器在首次使用时编译, 合并到过滤链匹配器的过滤器不编译自身的匹配器
  *
  * @author Houtaroy
  */
 public class DefaultRefreshableSensitiveWordFilter extends AbstractSensitiveWordFilter
-  implements RefreshableSensitiveWordFilter {
+  implements RefreshableSensitiveWordFilter, SensitiveWordSource {
   protected final SensitiveWordRepository repository;
+  protected long version;
 
   /**
    * 构造函数
@@ -18,18 +25,104 @@ public class DefaultRefreshableSensitiveWordFilter extends AbstractSensitiveWord
    */
   public DefaultRefreshableSensitiveWordFilter(SensitiveWordRepository repository) {
     this.repository = repository;
-    this.init();
+  }
+
+  /**
+   * 构造函数, 使用已构建的匹配器
+   *
+   * @param repository 敏感词存储库类
+   * @param matcher    敏感词匹配器
+   * @param version    匹配器对应的词库版本
+   */
+  protected DefaultRefreshableSensitiveWordFilter(SensitiveWordRepository repository, SensitiveWordMatcher matcher,
+                                                  long version) {
+    this.repository = repository;
+    this.matcher = matcher;
+    this.version = version;
+  }
+
+  @Override
+  public synchronized SensitiveWordFilter refreshed() {
+    Optional<SensitiveWordChanges> changes = matcher instanceof DefaultSensitiveWordMatcher
+      ? repository.findChangedSince(version) : Optional.empty();
+    if (changes.isEmpty()) {
+      return new DefaultRefreshableSensitiveWordFilter(repository);
+    }
+    SensitiveWordChanges current = changes.get();
+    return new DefaultRefreshableSensitiveWordFilter(repository, createMatcher(current), current.getVersion());
+  }
+
+  @Override
+  public synchronized void refresh() {
+    Optional<SensitiveWordChanges> changes = matcher instanceof DefaultSensitiveWordMatcher
+      ? repository.findChangedSince(version) : Optional.empty();
+    if (changes.isPresent()) {
+      apply(changes.get());
+    } else {
+      init();
+    }
+  }
+
+  @Override
+  public List<String> getSensitiveWords() {
+    return repository.findAll();
+  }
+
+  @Override
+  public long getLatestVersion() {
+    return repository.findLatestVersion();
   }
 
   @Override
-  public void refresh() {
-    init();
+  public Optional<SensitiveWordChanges> getChangedSince(long version) {
+    return repository.findChangedSince(version);
   }
 
   @Override
-  protected void init() {
-    StringSearchEx2 result = new StringSearchEx2();
-    result.SetKeywords(repository.findAll());
-    instance = result;
+  public SensitiveWordMatcher getMatcher() {
+    SensitiveWordMatcher current = matcher;
+    return current != null ? current : compile();
+  }
+
+  @Override
+  protected synchronized void init() {
+    long latest = repository.findLatestVersion();
+    matcher = DefaultSensitiveWordMatcher.compile(repository.findAll());
+    version = latest;
+  }
+
+  /**
+   * 未编译时编译匹配器
+   *
+   * @return 敏感词匹配器
+   */
+  protected synchronized SensitiveWordMatcher compile() {
+    if (matcher == null) {
+      init();
+    }
+    return matcher;
+  }
+
+  /**
+   * 应用敏感词变更
+   *
+   * @param changes 敏感词变更
+   */
+  protected void apply(SensitiveWordChanges changes) {
+    matcher = createMatcher(changes);
+    version = changes.getVersion();
+  }
+
+  /**
+   * 在当前匹配器的基础上应用敏感词变更, 当前匹配器保持不变
+   *
+   * @param changes 敏感词变更
+   * @return 新的敏感词匹配器, 没有变更时为当前匹配器
+   */
+  protected SensitiveWordMatcher createMatcher(SensitiveWordChanges changes) {
+    if (changes.getAdded().isEmpty() && changes.getRemoved().isEmpty()) {
+      return matcher;
+    }
+    return ((DefaultSensitiveWordMatcher) matcher).apply(changes.getAdded(), changes.getRemoved());
   }
 }
@@ -1,32 +1,216 @@
 package cn.koala.sensitiveword;
 
-import lombok.RequiredArgsConstructor;
-
+import java.io.Reader;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 默认可刷新敏感词的敏感词过滤链
+ * <p>
+ * 合并模式下, 所有可合并的{@link SensitiveWordSource}的敏感词在刷新时编译为同一个匹配器, 过滤时只需扫描一次文本,
+ * 其余过滤器(包括内存映射的词库)在匹配器之后依次执行; 合并的过滤器不编译自身的匹配器. 所有合并的来源都支持增量查询时,
+ * 刷新将各来源的变更应用到合并后的匹配器, 并记录同时存在于多个来源的敏感词, 只有所有来源都删除后才从匹配器中删除;
+ * 否则重新读取全部来源并编译
+ * <p>
+ * 刷新时由{@link RefreshableSensitiveWordFilter#refreshed()}创建新的过滤器实例并构建新的{@link SensitiveWordSnapshot},
+ * 构建完成后原子替换, 期间过滤请求继续使用旧快照及其过滤器且无需加锁;
+ * 刷新进行中收到的刷新请求会合并为当前刷新结束后的一次刷新, 请求返回的结果在包含该请求的刷新完成后才完成
+ * <p>
+ * 配置{@link SensitiveWordCache}后, 短文本的过滤结果按快照版本缓存, 刷新后缓存随即失效;
+ * 配置{@link ParallelSensitiveWordReplacer}后, 超长文本拆分为片段并行扫描
  *
  * @author Houtaroy
  */
-@RequiredArgsConstructor
 public class DefaultRefreshableSensitiveWordFilterChain implements RefreshableSensitiveWordFilterChain {
-  protected final List<SensitiveWordFilter> filters;
+  private static final int ADDED = 1;
+  private static final int REMOVED = -1;
+
+  protected volatile List<SensitiveWordFilter> filters;
+  protected final boolean merged;
+  protected final SensitiveWordCache cache;
+  protected final ParallelSensitiveWordReplacer replacer;
+  protected volatile SensitiveWordObserver observer;
+  protected final AtomicReference<SensitiveWordSnapshot> snapshot = new AtomicReference<>();
+  private final Object refreshLock = new Object();
+  private final Map<SensitiveWordFilter, Long> versions = new IdentityHashMap<>();
+  private final Map<String, Integer> duplicates = new HashMap<>();
+  private CompletableFuture<Void> pendingRefresh;
+  private boolean refreshing;
+
+  /**
+   * 构造函数
+   *
+   * @param filters 敏感词过滤器列表
+   */
+  public DefaultRefreshableSensitiveWordFilterChain(List<SensitiveWordFilter> filters) {
+    this(filters, false);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param filters 敏感词过滤器列表
+   * @param merged  是否合并敏感词来源为同一个匹配器
+   */
+  public DefaultRefreshableSensitiveWordFilterChain(List<SensitiveWordFilter> filters, boolean merged) {
+    this(filters, merged, null);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param filters 敏感词过滤器列表
+   * @param merged  是否合并敏感词来源为同一个匹配器
+   * @param cache   过滤结果缓存, 为null时不缓存
+   */
+  public DefaultRefreshableSensitiveWordFilterChain(List<SensitiveWordFilter> filters, boolean merged,
+                                                    SensitiveWordCache cache) {
+    this(filters, merged, cache, null);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param filters  敏感词过滤器列表
+   * @param merged   是否合并敏感词来源为同一个匹配器
+   * @param cache    过滤结果缓存, 为null时不缓存
+   * @param replacer 并行替换器, 为null时不并行替换
+   */
+  public DefaultRefreshableSensitiveWordFilterChain(List<SensitiveWordFilter> filters, boolean merged,
+                                                    SensitiveWordCache cache, ParallelSensitiveWordReplacer replacer) {
+    this.filters = filters;
+    this.merged = merged;
+    this.cache = cache;
+    this.replacer = replacer;
+    this.snapshot.set(createSnapshot(0L, filters, System.nanoTime()));
+  }
 
   @Override
   public String doFilter(String content, char replacement) {
-    String result = content;
-    for (SensitiveWordFilter filter : filters) {
-      result = filter.doFilter(result, replacement);
+    SensitiveWordSnapshot current = snapshot.get();
+    if (cache == null || !cache.accept(content)) {
+      return current.doFilter(content, replacement, observer);
+    }
+    String result = cache.get(current.getGeneration(), content, replacement);
+    if (result == null) {
+      result = current.doFilter(content, replacement, observer);
+      cache.put(current.getGeneration(), content, replacement, result);
+    }
+    return result;
+  }
+
+  @Override
+  public boolean containsAny(CharSequence content) {
+    return snapshot.get().containsAny(content);
+  }
+
+  @Override
+  public int find(CharSequence content, int[] ranges) {
+    return snapshot.get().find(content, ranges);
+  }
+
+  @Override
+  public boolean mask(char[] chars, int offset, int length, char replacement) {
+    return snapshot.get().mask(chars, offset, length, replacement);
+  }
+
+  @Override
+  public boolean mask(StringBuilder content, char replacement) {
+    return snapshot.get().mask(content, replacement);
+  }
+
+  /**
+   * 创建敏感词过滤Writer, 写入的文本依次经过过滤链中的匹配器后写入下游
+   *
+   * @param out         下游Writer
+   * @param replacement 替换字符
+   * @return 敏感词过滤Writer
+   */
+  public Writer filter(Writer out, char replacement) {
+    SensitiveWordSnapshot current = snapshot.get();
+    Writer result = out;
+    for (int i = current.getFilters().size() - 1; i >= 0; i--) {
+      result = new SensitiveWordWriter(result, getStreamingMatcher(current.getFilters().get(i)), replacement);
+    }
+    return current.getMatcher() == null ? result : new SensitiveWordWriter(result, current.getMatcher(), replacement);
+  }
+
+  /**
+   * 创建敏感词过滤Reader, 读取的文本已依次经过过滤链中的匹配器
+   *
+   * @param in          上游Reader
+   * @param replacement 替换字符
+   * @return 敏感词过滤Reader
+   */
+  public Reader filter(Reader in, char replacement) {
+    SensitiveWordSnapshot current = snapshot.get();
+    Reader result = current.getMatcher() == null ? in : new SensitiveWordReader(in, current.getMatcher(), replacement);
+    for (SensitiveWordFilter filter : current.getFilters()) {
+      result = new SensitiveWordReader(result, getStreamingMatcher(filter), replacement);
     }
     return result;
   }
 
   @Override
   public void refresh() {
-    synchronized (this) {
-      filters.forEach(this::refreshFilter);
+    try {
+      refreshAsync(Runnable::run).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * 使用指定线程池异步刷新, 刷新完成前过滤请求继续使用旧快照
+   * <p>
+   * 刷新进行中时请求合并到下一次刷新, 返回的结果在下一次刷新完成后完成
+   *
+   * @param executor 线程池
+   * @return 包含本次请求的刷新结果
+   */
+  public CompletableFuture<Void> refreshAsync(Executor executor) {
+    CompletableFuture<Void> result;
+    boolean start;
+    synchronized (refreshLock) {
+      if (pendingRefresh == null) {
+        pendingRefresh = new CompletableFuture<>();
+      }
+      result = pendingRefresh;
+      start = !refreshing;
+      refreshing = true;
+    }
+    if (start) {
+      try {
+        executor.execute(this::drainRefreshes);
+      } catch (RejectedExecutionException e) {
+        synchronized (refreshLock) {
+          refreshing = false;
+          pendingRefresh = null;
+        }
+        result.completeExceptionally(e);
+      }
     }
+    return result;
   }
 
   @Override
@@ -35,13 +219,244 @@ public class DefaultRefreshableSensitiveWordFilterChain implements RefreshableSe
   }
 
   /**
-   * 刷新敏感词过滤器
+   * 获取过滤结果缓存
+   *
+   * @return 过滤结果缓存, 未配置时为null
+   */
+  public SensitiveWordCache getCache() {
+    return cache;
+  }
+
+  /**
+   * 设置敏感词过滤观察者, 用于采集每个过滤器的过滤与刷新指标
+   *
+   * @param observer 敏感词过滤观察者, 为null时不回调
+   */
+  public void setObserver(SensitiveWordObserver observer) {
+    this.observer = observer;
+  }
+
+  /**
+   * 获取当前快照
+   *
+   * @return 当前快照
+   */
+  public SensitiveWordSnapshot getSnapshot() {
+    return snapshot.get();
+  }
+
+  /**
+   * 依次执行等待中的刷新, 直至没有新的刷新请求
+   */
+  protected void drainRefreshes() {
+    while (true) {
+      CompletableFuture<Void> current;
+      synchronized (refreshLock) {
+        current = pendingRefresh;
+        pendingRefresh = null;
+        if (current == null) {
+          refreshing = false;
+          return;
+        }
+      }
+      try {
+        applyRefresh();
+        current.complete(null);
+      } catch (RuntimeException | Error e) {
+        current.completeExceptionally(e);
+      }
+    }
+  }
+
+  /**
+   * 创建新的过滤器实例并构建新快照, 原子替换后使缓存失效
+   */
+  protected void applyRefresh() {
+    long start = System.nanoTime();
+    List<SensitiveWordFilter> refreshed = new ArrayList<>(filters.size());
+    for (SensitiveWordFilter filter : filters) {
+      refreshed.add(isMerged(filter) ? filter : refreshFilter(filter));
+    }
+    long generation = snapshot.get().getGeneration() + 1;
+    SensitiveWordSnapshot next = merged ? applyChanges(generation, refreshed, start) : null;
+    if (next == null) {
+      next = createSnapshot(generation, refreshed, start);
+    }
+    filters = refreshed;
+    snapshot.set(next);
+    if (cache != null) {
+      cache.invalidate(next.getGeneration());
+    }
+  }
+
+  /**
+   * 创建刷新后的敏感词过滤器, 不可刷新的过滤器原样返回
+   *
+   * @param filter 敏感词过滤器
+   * @return 刷新后的敏感词过滤器
+   */
+  protected SensitiveWordFilter refreshFilter(SensitiveWordFilter filter) {
+    if (!(filter instanceof RefreshableSensitiveWordFilter)) {
+      return filter;
+    }
+    long start = System.nanoTime();
+    SensitiveWordFilter result = ((RefreshableSensitiveWordFilter) filter).refreshed();
+    notifyRefresh(filter.getName(), start);
+    return result;
+  }
+
+  /**
+   * 回调观察者刷新完成
+   *
+   * @param name  过滤器名称
+   * @param start 开始时间(纳秒)
+   */
+  protected void notifyRefresh(String name, long start) {
+    SensitiveWordObserver current = observer;
+    if (current != null) {
+      current.onRefresh(name, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * 获取过滤器的敏感词匹配器, 用于流式过滤
+   *
+   * @param filter 敏感词过滤器
+   * @return 敏感词匹配器
+   */
+  protected SensitiveWordMatcher getStreamingMatcher(SensitiveWordFilter filter) {
+    SensitiveWordMatcher result = filter instanceof AbstractSensitiveWordFilter
+      ? ((AbstractSensitiveWordFilter) filter).getMatcher() : null;
+    if (result == null) {
+      throw new UnsupportedOperationException(String.format("敏感词过滤器[%s]不支持流式过滤", filter.getClass().getName()));
+    }
+    return result;
+  }
+
+  /**
+   * 过滤器是否合并到过滤链的匹配器
+   *
+   * @param filter 敏感词过滤器
+   * @return 合并模式下可合并的敏感词来源为true
+   */
+  protected boolean isMerged(SensitiveWordFilter filter) {
+    return merged && filter instanceof SensitiveWordSource && ((SensitiveWordSource) filter).isMergeable();
+  }
+
+  /**
+   * 构建快照, 合并模式下读取敏感词来源的敏感词并编译为同一个匹配器, 同时记录各来源的版本与重复的敏感词
+   *
+   * @param generation 快照版本
+   * @param filters    敏感词过滤器列表
+   * @param start      开始时间(纳秒), 用于计算刷新耗时
+   * @return 快照
+   */
+  protected SensitiveWordSnapshot createSnapshot(long generation, List<SensitiveWordFilter> filters, long start) {
+    if (!merged) {
+      filters.forEach(this::prepare);
+      return new SensitiveWordSnapshot(null, List.copyOf(filters), generation,
+        Duration.ofNanos(System.nanoTime() - start), replacer);
+    }
+    versions.clear();
+    duplicates.clear();
+    Set<String> words = new HashSet<>();
+    List<SensitiveWordFilter> others = new ArrayList<>();
+    for (SensitiveWordFilter filter : filters) {
+      if (isMerged(filter)) {
+        SensitiveWordSource source = (SensitiveWordSource) filter;
+        versions.put(filter, source.getLatestVersion());
+        source.getSensitiveWords().stream().filter(word -> !words.add(word))
+          .forEach(word -> duplicates.merge(word, 1, Integer::sum));
+      } else {
+        prepare(filter);
+        others.add(filter);
+      }
+    }
+    long compileStart = System.nanoTime();
+    SensitiveWordMatcher matcher = DefaultSensitiveWordMatcher.compile(words);
+    notifyRefresh(SensitiveWordSnapshot.MERGED, compileStart);
+    return new SensitiveWordSnapshot(matcher, others, generation, Duration.ofNanos(System.nanoTime() - start),
+      replacer);
+  }
+
+  /**
+   * 合并模式下将各敏感词来源的增量变更应用到合并后的匹配器
+   *
+   * @param generation 快照版本
+   * @param filters    敏感词过滤器列表
+   * @param start      开始时间(纳秒), 用于计算刷新耗时
+   * @return 快照, 存在不支持增量查询的来源时为null
+   */
+  protected SensitiveWordSnapshot applyChanges(long generation, List<SensitiveWordFilter> filters, long start) {
+    SensitiveWordMatcher current = snapshot.get().getMatcher();
+    if (!(current instanceof DefaultSensitiveWordMatcher)) {
+      return null;
+    }
+    Map<SensitiveWordFilter, SensitiveWordChanges> changes = new IdentityHashMap<>();
+    List<SensitiveWordFilter> others = new ArrayList<>();
+    for (SensitiveWordFilter filter : filters) {
+      Long version = versions.get(filter);
+      Optional<SensitiveWordChanges> found = version == null || !isMerged(filter) ? Optional.empty()
+        : ((SensitiveWordSource) filter).getChangedSince(version);
+      if (found.isPresent()) {
+        changes.put(filter, found.get());
+      } else if (isMerged(filter)) {
+        return null;
+      } else {
+        prepare(filter);
+        others.add(filter);
+      }
+    }
+    long compileStart = System.nanoTime();
+    SensitiveWordMatcher matcher = apply((DefaultSensitiveWordMatcher) current, changes.values());
+    changes.forEach((filter, change) -> versions.put(filter, change.getVersion()));
+    notifyRefresh(SensitiveWordSnapshot.MERGED, compileStart);
+    return new SensitiveWordSnapshot(matcher, others, generation, Duration.ofNanos(System.nanoTime() - start),
+      replacer);
+  }
+
+  /**
+   * 按敏感词在所有来源中的出现次数应用变更, 只在首次出现时新增, 全部来源删除后才删除
+   *
+   * @param matcher 合并后的匹配器
+   * @param changes 各来源的敏感词变更
+   * @return 新的匹配器, 没有变更时为当前匹配器
+   */
+  private DefaultSensitiveWordMatcher apply(DefaultSensitiveWordMatcher matcher,
+                                            Collection<SensitiveWordChanges> changes) {
+    Map<String, Integer> delta = new HashMap<>(changes.stream()
+      .mapToInt(change -> change.getAdded().size() + change.getRemoved().size()).sum());
+    for (SensitiveWordChanges change : changes) {
+      change.getAdded().forEach(word -> delta.merge(word, ADDED, Integer::sum));
+      change.getRemoved().forEach(word -> delta.merge(word, REMOVED, Integer::sum));
+    }
+    List<String> added = new ArrayList<>();
+    List<String> removed = new ArrayList<>();
+    delta.forEach((word, change) -> {
+      boolean present = matcher.contains(word);
+      int count = (present ? 1 + duplicates.getOrDefault(word, 0) : 0) + change;
+      if (count > 1) {
+        duplicates.put(word, count - 1);
+      } else {
+        duplicates.remove(word);
+      }
+      if (present && count <= 0) {
+        removed.add(word);
+      } else if (!present && count > 0) {
+        added.add(word);
+      }
+    });
+    return added.isEmpty() && removed.isEmpty() ? matcher : matcher.apply(added, removed);
+  }
+
+  /**
+   * 编译独立执行的过滤器的匹配器, 避免首个过滤请求承担编译耗时
    *
    * @param filter 敏感词过滤器
    */
-  protected void refreshFilter(SensitiveWordFilter filter) {
-    if (filter instanceof RefreshableSensitiveWordFilter) {
-      ((RefreshableSensitiveWordFilter) filter).refresh();
+  private void prepare(SensitiveWordFilter filter) {
+    if (filter instanceof AbstractSensitiveWordFilter) {
+      ((AbstractSensitiveWordFilter) filter).getMatcher();
     }
   }
 }
@@ -0,0 +1,522 @@
+package cn.koala.sensitiveword;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 默认敏感词匹配器
+ * <p>
+ * 基于Aho-Corasick自动机实现, 状态转移以数组存储, 构建完成后不可变, 可在多线程间共享
+ *
+ * @author Houtaroy
+ */
+public class DefaultSensitiveWordMatcher implements SensitiveWordMatcher {
+  protected static final int NONE = -1;
+  private static final int ALPHABET_SIZE = Character.MAX_VALUE + 1;
+  private static final int LINEAR_SEARCH_THRESHOLD = 8;
+  private static final int COMPACTION_RATIO = 4;
+
+  protected final int[] rootTransitions;
+  protected final int[] edgeOffsets;
+  protected final char[] edgeChars;
+  protected final int[] edgeTargets;
+  protected final int[] failures;
+  protected final int[] wordLengths;
+  protected final int[] matchLengths;
+  protected final int maxWordLength;
+
+  /**
+   * 构造函数
+   *
+   * @param edgeOffsets 每个状态的转移边起始下标, 长度为状态数+1
+   * @param edgeChars   转移边字符, 同一状态内按字符升序排列
+   * @param edgeTargets 转移边目标状态
+   * @param wordLengths 以状态结尾的敏感词长度, 非敏感词结尾为0
+   */
+  protected DefaultSensitiveWordMatcher(int[] edgeOffsets, char[] edgeChars, int[] edgeTargets, int[] wordLengths) {
+    this.edgeOffsets = edgeOffsets;
+    this.edgeChars = edgeChars;
+    this.edgeTargets = edgeTargets;
+    this.wordLengths = wordLengths;
+    this.rootTransitions = new int[ALPHABET_SIZE];
+    this.failures = new int[wordLengths.length];
+    this.matchLengths = new int[wordLengths.length];
+    this.maxWordLength = Arrays.stream(wordLengths).max().orElse(0);
+    for (int i = edgeOffsets[ROOT]; i < edgeOffsets[ROOT + 1]; i++) {
+      rootTransitions[edgeChars[i]] = edgeTargets[i];
+    }
+    computeMatchLengths(true);
+  }
+
+  /**
+   * 构造函数, 复用已有匹配器的状态转移, 只替换敏感词结尾
+   *
+   * @param source      已有匹配器
+   * @param wordLengths 以状态结尾的敏感词长度, 非敏感词结尾为0
+   */
+  protected DefaultSensitiveWordMatcher(DefaultSensitiveWordMatcher source, int[] wordLengths) {
+    this.edgeOffsets = source.edgeOffsets;
+    this.edgeChars = source.edgeChars;
+    this.edgeTargets = source.edgeTargets;
+    this.rootTransitions = source.rootTransitions;
+    this.failures = source.failures;
+    this.wordLengths = wordLengths;
+    this.matchLengths = new int[wordLengths.length];
+    this.maxWordLength = Arrays.stream(wordLengths).max().orElse(0);
+    computeMatchLengths(false);
+  }
+
+  /**
+   * 编译敏感词为匹配器
+   *
+   * @param words 敏感词集合
+   * @return 敏感词匹配器
+   */
+  public static DefaultSensitiveWordMatcher compile(Collection<String> words) {
+    TrieBuilder builder = new TrieBuilder();
+    words.forEach(builder::add);
+    return builder.build();
+  }
+
+  @Override
+  public int next(int state, char c) {
+    int current = state;
+    while (current != ROOT) {
+      int target = transition(current, c);
+      if (target != NONE) {
+        return target;
+      }
+      current = failures[current];
+    }
+    return rootTransitions[c];
+  }
+
+  @Override
+  public int matchLength(int state) {
+    return matchLengths[state];
+  }
+
+  @Override
+  public int maxWordLength() {
+    return maxWordLength;
+  }
+
+  /**
+   * 在当前匹配器的基础上应用敏感词变更, 生成新的匹配器, 当前匹配器保持不变
+   * <p>
+   * 不重新构建字典树: 删除敏感词和沿已有路径新增敏感词时复用全部状态转移, 只重新计算匹配长度;
+   * 需要新增状态时将新转移边有序合并进已有转移表, 再线性重算失败链接;
+   * 删除敏感词后不再通向任何敏感词的状态超过状态数量的1/4时回收这些状态, 见{@link #compact()}
+   *
+   * @param added   新增敏感词
+   * @param removed 删除敏感词
+   * @return 新的敏感词匹配器
+   */
+  public DefaultSensitiveWordMatcher apply(Collection<String> added, Collection<String> removed) {
+    int count = size();
+    int[] lengths = Arrays.copyOf(wordLengths, count);
+    for (String word : removed) {
+      int state = find(word);
+      if (state != NONE) {
+        lengths[state] = 0;
+      }
+    }
+    EdgeMap edges = new EdgeMap();
+    for (String word : added) {
+      if (word == null || word.isEmpty()) {
+        continue;
+      }
+      int state = ROOT;
+      for (int i = 0; i < word.length(); i++) {
+        int target = state < size() ? transition(state, word.charAt(i)) : NONE;
+        if (target == NONE) {
+          long key = EdgeMap.key(state, word.charAt(i));
+          target = edges.get(key);
+          if (target == NONE) {
+            target = count++;
+            edges.put(key, target);
+          }
+        }
+        state = target;
+      }
+      if (state >= lengths.length) {
+        lengths = Arrays.copyOf(lengths, Math.max(count, lengths.length << 1));
+      }
+      lengths[state] = word.length();
+    }
+    DefaultSensitiveWordMatcher result = edges.isEmpty() ? new DefaultSensitiveWordMatcher(this, lengths)
+      : merge(edges, Arrays.copyOf(lengths, count));
+    return removed.isEmpty() ? result : result.compact();
+  }
+
+  /**
+   * 回收不再通向任何敏感词的状态, 生成新的匹配器, 当前匹配器保持不变
+   * <p>
+   * 删除敏感词只清除结尾状态的敏感词长度, 其路径上的状态仍保留在转移表中; 无用状态不超过状态数量的1/4时返回当前匹配器,
+   * 否则按原有顺序重新编号保留的状态并复制其转移边, 再线性重算失败链接, 不重新构建字典树
+   *
+   * @return 回收后的敏感词匹配器
+   */
+  public DefaultSensitiveWordMatcher compact() {
+    int count = size();
+    boolean[] live = liveStates();
+    int[] ids = new int[count];
+    int kept = 0;
+    for (int state = 0; state < count; state++) {
+      ids[state] = live[state] ? kept++ : NONE;
+    }
+    if ((count - kept) * COMPACTION_RATIO <= count) {
+      return this;
+    }
+    int[] offsets = new int[kept + 1];
+    char[] chars = new char[kept - 1];
+    int[] targets = new int[kept - 1];
+    int[] lengths = new int[kept];
+    int position = 0;
+    for (int state = 0; state < count; state++) {
+      if (ids[state] == NONE) {
+        continue;
+      }
+      offsets[ids[state]] = position;
+      lengths[ids[state]] = wordLengths[state];
+      for (int i = edgeOffsets[state]; i < edgeOffsets[state + 1]; i++) {
+        if (ids[edgeTargets[i]] != NONE) {
+          chars[position] = edgeChars[i];
+          targets[position++] = ids[edgeTargets[i]];
+        }
+      }
+    }
+    offsets[kept] = position;
+    return new DefaultSensitiveWordMatcher(offsets, chars, targets, lengths);
+  }
+
+  /**
+   * 是否包含敏感词
+   *
+   * @param word 敏感词
+   * @return 是否包含该敏感词
+   */
+  public boolean contains(String word) {
+    return find(word) != NONE;
+  }
+
+  /**
+   * 获取状态数量
+   *
+   * @return 状态数量
+   */
+  public int size() {
+    return matchLengths.length;
+  }
+
+  /**
+   * 查找状态的直接转移, 不经过失败链接
+   *
+   * @param state 状态
+   * @param c     字符
+   * @return 目标状态, 无转移时为{@link #NONE}
+   */
+  protected int transition(int state, char c) {
+    int from = edgeOffsets[state];
+    int to = edgeOffsets[state + 1];
+    if (to - from <= LINEAR_SEARCH_THRESHOLD) {
+      for (int i = from; i < to; i++) {
+        if (edgeChars[i] == c) {
+          return edgeTargets[i];
+        }
+      }
+      return NONE;
+    }
+    int index = Arrays.binarySearch(edgeChars, from, to, c);
+    return index < 0 ? NONE : edgeTargets[index];
+  }
+
+  /**
+   * 查找敏感词的结尾状态
+   *
+   * @param word 敏感词
+   * @return 结尾状态, 不是敏感词时为{@link #NONE}
+   */
+  protected int find(String word) {
+    if (word == null || word.isEmpty()) {
+      return NONE;
+    }
+    int state = ROOT;
+    for (int i = 0; i < word.length() && state != NONE; i++) {
+      state = transition(state, word.charAt(i));
+    }
+    return state != NONE && wordLengths[state] == word.length() ? state : NONE;
+  }
+
+  /**
+   * 标记仍通向敏感词的状态, 即自身或后代状态是敏感词结尾的状态, 根状态始终保留
+   *
+   * @return 每个状态是否保留
+   */
+  private boolean[] liveStates() {
+    int count = size();
+    int[] order = new int[count];
+    order[0] = ROOT;
+    int tail = 1;
+    for (int head = 0; head < tail; head++) {
+      for (int i = edgeOffsets[order[head]]; i < edgeOffsets[order[head] + 1]; i++) {
+        order[tail++] = edgeTargets[i];
+      }
+    }
+    boolean[] result = new boolean[count];
+    for (int i = tail - 1; i > 0; i--) {
+      int state = order[i];
+      result[state] = wordLengths[state] > 0;
+      for (int j = edgeOffsets[state]; j < edgeOffsets[state + 1] && !result[state]; j++) {
+        result[state] = result[edgeTargets[j]];
+      }
+    }
+    result[ROOT] = true;
+    return result;
+  }
+
+  /**
+   * 将新增的转移边按(状态, 字符)有序合并进已有转移表, 构建新的匹配器
+   *
+   * @param edges   新增转移边
+   * @param lengths 合并后以状态结尾的敏感词长度
+   * @return 新的敏感词匹配器
+   */
+  private DefaultSensitiveWordMatcher merge(EdgeMap edges, int[] lengths) {
+    long[] keys = edges.keys();
+    Arrays.sort(keys);
+    int count = lengths.length;
+    int[] offsets = new int[count + 1];
+    char[] chars = new char[edgeChars.length + keys.length];
+    int[] targets = new int[chars.length];
+    int position = 0;
+    int k = 0;
+    for (int state = 0; state < count; state++) {
+      offsets[state] = position;
+      int from = state < size() ? edgeOffsets[state] : 0;
+      int to = state < size() ? edgeOffsets[state + 1] : 0;
+      boolean hasAdded = k < keys.length && EdgeMap.state(keys[k]) == state;
+      while (from < to || hasAdded) {
+        boolean original = !hasAdded || from < to && edgeChars[from] < (char) keys[k];
+        if (original) {
+          chars[position] = edgeChars[from];
+          targets[position++] = edgeTargets[from++];
+        } else {
+          chars[position] = (char) keys[k];
+          targets[position++] = edges.get(keys[k++]);
+          hasAdded = k < keys.length && EdgeMap.state(keys[k]) == state;
+        }
+      }
+    }
+    offsets[count] = position;
+    return new DefaultSensitiveWordMatcher(offsets, chars, targets, lengths);
+  }
+
+  /**
+   * 按广度优先顺序计算匹配长度, 即合并失败链接上的敏感词长度
+   *
+   * @param withFailures 是否同时计算失败链接
+   */
+  private void computeMatchLengths(boolean withFailures) {
+    int[] queue = new int[wordLengths.length];
+    int head = 0;
+    int tail = 0;
+    for (int i = edgeOffsets[ROOT]; i < edgeOffsets[ROOT + 1]; i++) {
+      int target = edgeTargets[i];
+      matchLengths[target] = wordLengths[target];
+      queue[tail++] = target;
+    }
+    while (head < tail) {
+      int state = queue[head++];
+      for (int i = edgeOffsets[state]; i < edgeOffsets[state + 1]; i++) {
+        int target = edgeTargets[i];
+        if (withFailures) {
+          failures[target] = next(failures[state], edgeChars[i]);
+        }
+        matchLengths[target] = Math.max(wordLengths[target], matchLengths[failures[target]]);
+        queue[tail++] = target;
+      }
+    }
+  }
+
+  /**
+   * 字典树构建器
+   */
+  static class TrieBuilder {
+    private final EdgeMap edges = new EdgeMap();
+    private int[] lengths = new int[LINEAR_SEARCH_THRESHOLD];
+    private int size = 1;
+
+    /**
+     * 添加敏感词
+     *
+     * @param word 敏感词
+     */
+    void add(String word) {
+      if (word == null || word.isEmpty()) {
+        return;
+      }
+      int state = ROOT;
+      for (int i = 0; i < word.length(); i++) {
+        long key = EdgeMap.key(state, word.charAt(i));
+        int target = edges.get(key);
+        if (target == NONE) {
+          target = size++;
+          edges.put(key, target);
+        }
+        state = target;
+      }
+      if (state >= lengths.length) {
+        lengths = Arrays.copyOf(lengths, Math.max(size, lengths.length << 1));
+      }
+      lengths[state] = word.length();
+    }
+
+    /**
+     * 构建匹配器
+     *
+     * @return 敏感词匹配器
+     */
+    DefaultSensitiveWordMatcher build() {
+      long[] keys = edges.keys();
+      Arrays.sort(keys);
+      int[] offsets = new int[size + 1];
+      char[] chars = new char[keys.length];
+      int[] targets = new int[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        offsets[EdgeMap.state(keys[i]) + 1]++;
+        chars[i] = (char) keys[i];
+        targets[i] = edges.get(keys[i]);
+      }
+      for (int i = 0; i < size; i++) {
+        offsets[i + 1] += offsets[i];
+      }
+      return new DefaultSensitiveWordMatcher(offsets, chars, targets, Arrays.copyOf(lengths, size));
+    }
+  }
+
+  /**
+   * 转移边哈希表, 键为(状态, 字符), 值为目标状态
+   * <p>
+   * 使用开放寻址避免构建大词库时产生大量装箱对象
+   */
+  static class EdgeMap {
+    private static final int CHAR_BITS = 16;
+    private static final long EMPTY = -1L;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final int HASH_SHIFT = 32;
+
+    private long[] keys = newKeys(INITIAL_CAPACITY);
+    private int[] values = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * 生成键
+     *
+     * @param state 状态
+     * @param c     字符
+     * @return 键
+     */
+    static long key(int state, char c) {
+      return ((long) state << CHAR_BITS) | c;
+    }
+
+    /**
+     * 获取键中的状态
+     *
+     * @param key 键
+     * @return 状态
+     */
+    static int state(long key) {
+      return (int) (key >>> CHAR_BITS);
+    }
+
+    /**
+     * 是否为空
+     *
+     * @return 是否为空
+     */
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    /**
+     * 获取目标状态
+     *
+     * @param key 键
+     * @return 目标状态, 不存在时为{@link #NONE}
+     */
+    int get(long key) {
+      int mask = keys.length - 1;
+      for (int i = index(key, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          return values[i];
+        }
+      }
+      return NONE;
+    }
+
+    /**
+     * 存入目标状态
+     *
+     * @param key   键
+     * @param value 目标状态
+     */
+    void put(long key, int value) {
+      if ((size + 1) << 1 > keys.length) {
+        resize();
+      }
+      int mask = keys.length - 1;
+      int i = index(key, mask);
+      while (keys[i] != EMPTY && keys[i] != key) {
+        i = (i + 1) & mask;
+      }
+      if (keys[i] == EMPTY) {
+        size++;
+      }
+      keys[i] = key;
+      values[i] = value;
+    }
+
+    /**
+     * 获取全部键
+     *
+     * @return 键数组
+     */
+    long[] keys() {
+      long[] result = new long[size];
+      int count = 0;
+      for (long key : keys) {
+        if (key != EMPTY) {
+          result[count++] = key;
+        }
+      }
+      return result;
+    }
+
+    private void resize() {
+      long[] oldKeys = keys;
+      int[] oldValues = values;
+      keys = newKeys(oldKeys.length << 1);
+      values = new int[oldKeys.length << 1];
+      size = 0;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != EMPTY) {
+          put(oldKeys[i], oldValues[i]);
+        }
+      }
+    }
+
+    private static long[] newKeys(int capacity) {
+      long[] result = new long[capacity];
+      Arrays.fill(result, EMPTY);
+      return result;
+    }
+
+    private static int index(long key, int mask) {
+      long hash = key * HASH_MULTIPLIER;
+      return (int) (hash ^ (hash >>> HASH_SHIFT)) & mask;
+    }
+  }
+}
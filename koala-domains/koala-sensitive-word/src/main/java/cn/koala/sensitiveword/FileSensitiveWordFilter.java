@@ -1,16 +1,25 @@
 package cn.koala.sensitiveword;
 
 import lombok.extern.slf4j.Slf4j;
-import toolgood.words.StringSearchEx2;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * 文件敏感词过滤器
+ * <p>
+ * 文件为{@link SensitiveWordDictionaryApplication}编译的词库文件时, 以内存映射方式加载, 不占用堆内存,
+ * 合并模式下也不合并到过滤链的匹配器, 避免将词库解码到堆内存; 否则按ToolGood.Words的词库文件读取,
+ * 匹配器在首次使用时编译, 合并到过滤链匹配器时不编译
  *
  * @author Houtaroy
  */
 @Slf4j
-public class FileSensitiveWordFilter extends AbstractSensitiveWordFilter {
+public class FileSensitiveWordFilter extends AbstractSensitiveWordFilter implements SensitiveWordSource {
   private final String location;
+  private final String name;
+  private List<String> words = Collections.emptyList();
 
   /**
    * 文件敏感词过滤器构造函数
@@ -18,18 +27,70 @@ public class FileSensitiveWordFilter extends AbstractSensitiveWordFilter {
    * @param location 文件全路径名
    */
   public FileSensitiveWordFilter(String location) {
+    this(location, location);
+  }
+
+  /**
+   * 文件敏感词过滤器构造函数
+   *
+   * @param location 文件全路径名
+   * @param name     过滤器名称, 如资源定位
+   */
+  public FileSensitiveWordFilter(String location, String name) {
     this.location = location;
+    this.name = name;
     init();
   }
 
+  @Override
+  public String getName() {
+    return name;
+  }
+
   @Override
   public void init() {
-    StringSearchEx2 result = new StringSearchEx2();
     try {
+      Path path = Path.of(location);
+      if (MappedSensitiveWordMatcher.isDictionary(path)) {
+        words = Collections.emptyList();
+        matcher = MappedSensitiveWordMatcher.load(path);
+        return;
+      }
+      KeywordsStringSearch result = new KeywordsStringSearch();
       result.Load(location);
-      instance = result;
+      words = result.getKeywords();
+      matcher = null;
     } catch (Exception e) {
       LOGGER.error("读取敏感词库资源[{}]失败", location, e);
     }
   }
+
+  @Override
+  public SensitiveWordMatcher getMatcher() {
+    SensitiveWordMatcher current = matcher;
+    return current != null ? current : compile();
+  }
+
+  @Override
+  public boolean isMergeable() {
+    return !(matcher instanceof MappedSensitiveWordMatcher);
+  }
+
+  @Override
+  public List<String> getSensitiveWords() {
+    SensitiveWordMatcher current = matcher;
+    return current instanceof MappedSensitiveWordMatcher ? ((MappedSensitiveWordMatcher) current).getWords() : words;
+  }
+
+  /**
+   * 未编译时编译匹配器
+   *
+   * @return 敏感词匹配器
+   */
+  protected synchronized SensitiveWordMatcher compile() {
+    if (matcher == null) {
+      matcher = DefaultSensitiveWordMatcher.compile(words);
+    }
+    return matcher;
+  }
 }
@@ -0,0 +1,54 @@
+package cn.koala.sensitiveword;
+
+import toolgood.words.StringSearchEx2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 可读取敏感词的StringSearchEx2
+ * <p>
+ * 用于从已编译的词库文件中还原敏感词列表
+ *
+ * @author Houtaroy
+ */
+class KeywordsStringSearch extends StringSearchEx2 {
+  /**
+   * 获取敏感词列表
+   *
+   * @return 敏感词列表
+   */
+  List<String> getKeywords() {
+    return _keywords == null ? Collections.emptyList() : Arrays.asList(_keywords);
+  }
+
+  /**
+   * 读取任意StringSearchEx2的敏感词列表, 非本类实例经临时词库文件还原
+   *
+   * @param search StringSearchEx2
+   * @return 敏感词列表
+   */
+  static List<String> keywords(StringSearchEx2 search) {
+    if (search instanceof KeywordsStringSearch) {
+      return ((KeywordsStringSearch) search).getKeywords();
+    }
+    try {
+      Path file = Files.createTempFile("sensitive-word", ".dat");
+      try {
+        search.Save(file.toString());
+        KeywordsStringSearch result = new KeywordsStringSearch();
+        result.Load(file.toString());
+        return result.getKeywords();
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,254 @@
+package cn.koala.sensitiveword;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 内存映射敏感词匹配器
+ * <p>
+ * 读取{@link #write(DefaultSensitiveWordMatcher, Path)}预编译的词库文件, 以只读方式映射到内存, 状态转移不占用堆内存,
+ * 加载时无需编译, 同一主机上的多个JVM共享词库文件的页缓存
+ * <p>
+ * 词库文件格式(小端序): 魔数, 版本, 状态数, 转移边数, 最长敏感词长度, 根状态转移表, 转移边起始下标, 转移边目标状态,
+ * 失败链接, 敏感词长度, 匹配长度, 转移边字符
+ *
+ * @author Houtaroy
+ */
+public class MappedSensitiveWordMatcher implements SensitiveWordMatcher {
+  public static final int MAGIC = 0x4B535744;
+  public static final int VERSION = 1;
+  private static final int HEADER_INTS = 5;
+  private static final int STATE_SECTIONS = 3;
+  private static final int ALPHABET_SIZE = Character.MAX_VALUE + 1;
+  private static final int LINEAR_SEARCH_THRESHOLD = 8;
+  private static final int NONE = -1;
+
+  private final IntBuffer rootTransitions;
+  private final IntBuffer edgeOffsets;
+  private final IntBuffer edgeTargets;
+  private final IntBuffer failures;
+  private final IntBuffer wordLengths;
+  private final IntBuffer matchLengths;
+  private final CharBuffer edgeChars;
+  private final int size;
+  private final int maxWordLength;
+
+  /**
+   * 构造函数
+   *
+   * @param buffer 词库文件内容, 位置为0
+   * @throws IOException 词库文件格式错误
+   */
+  protected MappedSensitiveWordMatcher(ByteBuffer buffer) throws IOException {
+    IntBuffer header = header(buffer);
+    this.size = header.get();
+    int edges = header.get();
+    this.maxWordLength = header.get();
+    int position = HEADER_INTS;
+    this.rootTransitions = slice(buffer, position, ALPHABET_SIZE);
+    position += ALPHABET_SIZE;
+    this.edgeOffsets = slice(buffer, position, size + 1);
+    position += size + 1;
+    this.edgeTargets = slice(buffer, position, edges);
+    position += edges;
+    this.failures = slice(buffer, position, size);
+    position += size;
+    this.wordLengths = slice(buffer, position, size);
+    position += size;
+    this.matchLengths = slice(buffer, position, size);
+    position += size;
+    this.edgeChars = buffer.slice(position * Integer.BYTES, edges * Character.BYTES)
+      .order(ByteOrder.LITTLE_ENDIAN).asCharBuffer();
+  }
+
+  /**
+   * 以只读方式映射词库文件
+   *
+   * @param path 词库文件
+   * @return 内存映射敏感词匹配器
+   * @throws IOException 读取失败或格式错误
+   */
+  public static MappedSensitiveWordMatcher load(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new MappedSensitiveWordMatcher(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException(String.format("敏感词库文件[%s]不完整", path), e);
+    }
+  }
+
+  /**
+   * 是否为预编译的词库文件
+   *
+   * @param path 文件
+   * @return 是否为预编译的词库文件
+   * @throws IOException 读取失败
+   */
+  public static boolean isDictionary(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      return channel.read(magic, 0) == Integer.BYTES && magic.getInt(0) == MAGIC;
+    }
+  }
+
+  /**
+   * 将匹配器写入词库文件, 先写入临时文件并刷盘再替换, 已映射旧文件的进程不受影响, 断电后不会留下不完整的词库文件
+   *
+   * @param matcher 敏感词匹配器
+   * @param path    词库文件
+   * @throws IOException 写入失败
+   */
+  public static void write(DefaultSensitiveWordMatcher matcher, Path path) throws IOException {
+    int size = matcher.size();
+    int edges = matcher.edgeChars.length;
+    long length = ((long) HEADER_INTS + ALPHABET_SIZE + size + 1 + edges + (long) size * STATE_SECTIONS)
+      * Integer.BYTES + (long) edges * Character.BYTES;
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+      StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+      ByteBuffer buffer = mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+      IntBuffer ints = buffer.asIntBuffer();
+      ints.put(MAGIC).put(VERSION).put(size).put(edges).put(matcher.maxWordLength);
+      ints.put(matcher.rootTransitions).put(matcher.edgeOffsets).put(matcher.edgeTargets).put(matcher.failures)
+        .put(matcher.wordLengths).put(matcher.matchLengths);
+      buffer.position(ints.position() * Integer.BYTES);
+      buffer.asCharBuffer().put(matcher.edgeChars);
+      mapped.force();
+      channel.force(true);
+    }
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  @Override
+  public int next(int state, char c) {
+    int current = state;
+    while (current != ROOT) {
+      int target = transition(current, c);
+      if (target != NONE) {
+        return target;
+      }
+      current = failures.get(current);
+    }
+    return rootTransitions.get(c);
+  }
+
+  @Override
+  public int matchLength(int state) {
+    return matchLengths.get(state);
+  }
+
+  @Override
+  public int maxWordLength() {
+    return maxWordLength;
+  }
+
+  /**
+   * 获取状态数量
+   *
+   * @return 状态数量
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * 按字典树深度优先顺序还原敏感词列表, 用于合并模式
+   *
+   * @return 敏感词列表
+   */
+  public List<String> getWords() {
+    List<String> result = new ArrayList<>();
+    if (maxWordLength == 0) {
+      return result;
+    }
+    int[] states = new int[maxWordLength + 1];
+    int[] edges = new int[maxWordLength + 1];
+    char[] chars = new char[maxWordLength];
+    int depth = 0;
+    edges[0] = edgeOffsets.get(ROOT);
+    while (depth >= 0) {
+      if (edges[depth] == edgeOffsets.get(states[depth] + 1)) {
+        depth--;
+        continue;
+      }
+      int edge = edges[depth]++;
+      int target = edgeTargets.get(edge);
+      chars[depth] = edgeChars.get(edge);
+      if (wordLengths.get(target) > 0) {
+        result.add(new String(chars, 0, depth + 1));
+      }
+      if (depth + 1 < maxWordLength) {
+        depth++;
+        states[depth] = target;
+        edges[depth] = edgeOffsets.get(target);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 查找状态的直接转移, 不经过失败链接
+   *
+   * @param state 状态
+   * @param c     字符
+   * @return 目标状态, 无转移时为{@link #NONE}
+   */
+  protected int transition(int state, char c) {
+    int from = edgeOffsets.get(state);
+    int to = edgeOffsets.get(state + 1);
+    int index = to - from <= LINEAR_SEARCH_THRESHOLD ? linearSearch(from, to, c) : binarySearch(from, to, c);
+    return index == NONE ? NONE : edgeTargets.get(index);
+  }
+
+  private int linearSearch(int from, int to, char c) {
+    for (int i = from; i < to; i++) {
+      if (edgeChars.get(i) == c) {
+        return i;
+      }
+    }
+    return NONE;
+  }
+
+  private int binarySearch(int from, int to, char c) {
+    int low = from;
+    int high = to - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      char value = edgeChars.get(middle);
+      if (value < c) {
+        low = middle + 1;
+      } else if (value > c) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return NONE;
+  }
+
+  private static IntBuffer header(ByteBuffer buffer) throws IOException {
+    if (buffer.capacity() < HEADER_INTS * Integer.BYTES) {
+      throw new IOException("敏感词库文件不完整");
+    }
+    IntBuffer result = slice(buffer, 0, HEADER_INTS);
+    if (result.get() != MAGIC || result.get() != VERSION) {
+      throw new IOException("不支持的敏感词库文件格式");
+    }
+    return result;
+  }
+
+  private static IntBuffer slice(ByteBuffer buffer, int position, int length) {
+    return buffer.slice(position * Integer.BYTES, length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+  }
+}
@@ -0,0 +1,198 @@
+package cn.koala.sensitiveword;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 并行敏感词替换器
+ * <p>
+ * 文本长度达到{@link #getThreshold()}时, 将文本拆分为若干片段在{@link ForkJoinPool}中并行扫描,
+ * 每个片段向前重叠(最长敏感词长度-1)个字符, 保证跨越片段边界的敏感词同样被匹配, 合并各片段的敏感词区间后统一替换,
+ * 结果与{@link SensitiveWordMatcher#replace(String, char)}一致
+ *
+ * @author Houtaroy
+ */
+@Getter
+public class ParallelSensitiveWordReplacer {
+  public static final int DEFAULT_THRESHOLD = 1_048_576;
+  public static final int DEFAULT_SEGMENT_SIZE = 65_536;
+
+  private final int threshold;
+  private final int segmentSize;
+  private final ForkJoinPool pool;
+
+  /**
+   * 构造函数, 使用公共线程池
+   *
+   * @param threshold   并行替换的文本长度阈值
+   * @param segmentSize 片段长度
+   */
+  public ParallelSensitiveWordReplacer(int threshold, int segmentSize) {
+    this(threshold, segmentSize, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param threshold   并行替换的文本长度阈值
+   * @param segmentSize 片段长度
+   * @param pool        线程池
+   */
+  public ParallelSensitiveWordReplacer(int threshold, int segmentSize, ForkJoinPool pool) {
+    this.threshold = threshold;
+    this.segmentSize = Math.max(segmentSize, 1);
+    this.pool = pool;
+  }
+
+  /**
+   * 使用指定字符替换文本中的敏感词, 文本长度未达到阈值时直接使用匹配器替换
+   *
+   * @param matcher     敏感词匹配器
+   * @param content     文本
+   * @param replacement 替换字符
+   * @return 替换后的文本, 无敏感词时返回原文本
+   */
+  public String replace(SensitiveWordMatcher matcher, String content, char replacement) {
+    return replace(matcher, content, replacement, null);
+  }
+
+  /**
+   * 使用指定字符替换文本中的敏感词, 并累计命中次数与替换字符数
+   *
+   * @param matcher     敏感词匹配器
+   * @param content     文本
+   * @param replacement 替换字符
+   * @param statistics  敏感词过滤统计, 为null时不统计
+   * @return 替换后的文本, 无敏感词时返回原文本
+   */
+  public String replace(SensitiveWordMatcher matcher, String content, char replacement,
+                        SensitiveWordStatistics statistics) {
+    if (content == null || content.length() < threshold) {
+      return matcher.replace(content, replacement, statistics);
+    }
+    Ranges ranges = pool.invoke(new ScanTask(matcher, content, 0, content.length(), segmentSize));
+    char[] result = ranges.count == 0 ? null : content.toCharArray();
+    int replaced = 0;
+    for (int i = 0; i < ranges.count; i++) {
+      Arrays.fill(result, ranges.values[i << 1], ranges.values[(i << 1) + 1], replacement);
+      replaced += ranges.values[(i << 1) + 1] - ranges.values[i << 1];
+    }
+    if (statistics != null) {
+      statistics.record(ranges.matches, replaced);
+    }
+    return result == null ? content : new String(result);
+  }
+
+  /**
+   * 片段扫描任务, 片段超过指定长度时拆分为两个子任务
+   *
+   * @author Houtaroy
+   */
+  protected static class ScanTask extends RecursiveTask<Ranges> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient SensitiveWordMatcher matcher;
+    private final String content;
+    private final int from;
+    private final int to;
+    private final int segmentSize;
+
+    /**
+     * 构造函数
+     *
+     * @param matcher     敏感词匹配器
+     * @param content     文本
+     * @param from        片段起始下标
+     * @param to          片段结束下标
+     * @param segmentSize 片段长度
+     */
+    protected ScanTask(SensitiveWordMatcher matcher, String content, int from, int to, int segmentSize) {
+      this.matcher = matcher;
+      this.content = content;
+      this.from = from;
+      this.to = to;
+      this.segmentSize = segmentSize;
+    }
+
+    @Override
+    protected Ranges compute() {
+      if (to - from <= segmentSize) {
+        return scan();
+      }
+      int middle = (from + to) >>> 1;
+      ScanTask left = new ScanTask(matcher, content, from, middle, segmentSize);
+      left.fork();
+      Ranges right = new ScanTask(matcher, content, middle, to, segmentSize).compute();
+      return left.join().addAll(right);
+    }
+
+    /**
+     * 扫描片段, 从片段起始下标前(最长敏感词长度-1)个字符开始匹配, 只记录结束位置在片段内的敏感词
+     *
+     * @return 敏感词区间
+     */
+    protected Ranges scan() {
+      Ranges result = new Ranges();
+      int state = SensitiveWordMatcher.ROOT;
+      for (int i = Math.max(from - matcher.maxWordLength() + 1, 0); i < to; i++) {
+        state = matcher.next(state, content.charAt(i));
+        int length = matcher.matchLength(state);
+        if (length > 0 && i >= from) {
+          result.add(i - length + 1, i + 1);
+          result.matches++;
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * 按起始下标有序的敏感词区间, 相交或相邻的区间合并为同一区间, 同时记录合并前的命中次数
+   *
+   * @author Houtaroy
+   */
+  protected static class Ranges {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] values = new int[INITIAL_CAPACITY];
+    private int count;
+    private int matches;
+
+    /**
+     * 增加区间, 区间结束下标不小于已有区间
+     *
+     * @param start 起始下标
+     * @param end   结束下标
+     */
+    protected void add(int start, int end) {
+      int merged = start;
+      while (count > 0 && merged <= values[(count << 1) - 1]) {
+        merged = Math.min(merged, values[(count - 1) << 1]);
+        count--;
+      }
+      if (count << 1 == values.length) {
+        values = Arrays.copyOf(values, values.length << 1);
+      }
+      values[count << 1] = merged;
+      values[(count << 1) + 1] = end;
+      count++;
+    }
+
+    /**
+     * 追加之后片段的全部区间
+     *
+     * @param other 之后片段的区间
+     * @return 当前区间
+     */
+    protected Ranges addAll(Ranges other) {
+      matches += other.matches;
+      for (int i = 0; i < other.count; i++) {
+        add(other.values[i << 1], other.values[(i << 1) + 1]);
+      }
+      return this;
+    }
+  }
+}
@@ -10,4 +10,14 @@ public interface RefreshableSensitiveWordFilter extends SensitiveWordFilter {
    * 刷新敏感词库
    */
   void refresh();
+
+  /**
+   * 创建刷新词库后的过滤器, 供过滤链构建新快照; 默认原地刷新并返回自身, 实现类应返回新实例且保持当前实例不变
+   *
+   * @return 刷新后的过滤器
+   */
+  default SensitiveWordFilter refreshed() {
+    refresh();
+    return this;
+  }
 }
@@ -0,0 +1,318 @@
+package cn.koala.sensitiveword;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 敏感词过滤结果缓存
+ * <p>
+ * 以(文本, 替换字符)为键缓存过滤结果, 只缓存长度不超过{@link #getMaxContentLength()}的文本,
+ * 条目的权重为文本与过滤结果的长度之和, 总权重超过{@link #getMaxWeight()}时淘汰最久未被访问的条目直至不超过上限
+ * <p>
+ * 缓存绑定过滤链快照版本, 读写时版本不一致视为未命中, 快照更新后旧版本的结果不会再被读取或写入
+ * <p>
+ * 条目按键的哈希分布到多个分段, 每个分段独立加锁并按访问顺序淘汰, 并发读取不再竞争同一把锁;
+ * 分段数量按总权重确定, 保证每个分段至少可容纳{@link #MIN_SEGMENT_ENTRIES}个最长文本的条目, 最多{@link #MAX_SEGMENTS}个,
+ * 每个分段的权重上限为总权重上限除以分段数量, 淘汰顺序为分段内的最近最少使用
+ *
+ * @author Houtaroy
+ */
+public class SensitiveWordCache {
+  public static final long DEFAULT_MAX_WEIGHT = 1_048_576L;
+  public static final int DEFAULT_MAX_CONTENT_LENGTH = 256;
+  public static final int MAX_SEGMENTS = 16;
+  public static final int MIN_SEGMENT_ENTRIES = 64;
+
+  @Getter
+  private final long maxWeight;
+  @Getter
+  private final int maxContentLength;
+  private final int segments;
+  private final AtomicReference<Store> store;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * 构造函数
+   */
+  public SensitiveWordCache() {
+    this(DEFAULT_MAX_WEIGHT, DEFAULT_MAX_CONTENT_LENGTH);
+  }
+
+  /**
+   * 构造函数
+   *
+   * @param maxWeight        缓存条目的最大总权重
+   * @param maxContentLength 可缓存文本的最大长度
+   */
+  public SensitiveWordCache(long maxWeight, int maxContentLength) {
+    this.maxWeight = maxWeight;
+    this.maxContentLength = maxContentLength;
+    this.segments = segments(maxWeight, maxContentLength);
+    this.store = new AtomicReference<>(new Store(0L, segments));
+  }
+
+  /**
+   * 文本是否可缓存
+   *
+   * @param content 文本
+   * @return 是否可缓存
+   */
+  public boolean accept(String content) {
+    return content != null && content.length() <= maxContentLength;
+  }
+
+  /**
+   * 查询过滤结果
+   *
+   * @param generation  快照版本
+   * @param content     文本
+   * @param replacement 替换字符
+   * @return 过滤结果, 未命中时为null
+   */
+  public String get(long generation, String content, char replacement) {
+    Store current = current(generation);
+    String result = current == null ? null : current.get(new Key(content, replacement));
+    if (result == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return result;
+  }
+
+  /**
+   * 写入过滤结果, 快照版本已过期时忽略
+   *
+   * @param generation  快照版本
+   * @param content     文本
+   * @param replacement 替换字符
+   * @param result      过滤结果
+   */
+  public void put(long generation, String content, char replacement, String result) {
+    Store current = current(generation);
+    if (current != null) {
+      evictions.add(current.put(new Key(content, replacement), result, maxWeight));
+    }
+  }
+
+  /**
+   * 使指定版本之前的缓存失效
+   *
+   * @param generation 快照版本
+   */
+  public void invalidate(long generation) {
+    current(generation);
+  }
+
+  /**
+   * 获取分段数量
+   *
+   * @return 分段数量
+   */
+  public int getSegments() {
+    return segments;
+  }
+
+  /**
+   * 获取缓存条目数量
+   *
+   * @return 缓存条目数量
+   */
+  public int size() {
+    return store.get().size();
+  }
+
+  /**
+   * 获取缓存条目的总权重
+   *
+   * @return 缓存条目的总权重
+   */
+  public long weight() {
+    return store.get().weight();
+  }
+
+  /**
+   * 获取命中次数
+   *
+   * @return 命中次数
+   */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /**
+   * 获取未命中次数
+   *
+   * @return 未命中次数
+   */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * 获取淘汰次数
+   *
+   * @return 淘汰次数
+   */
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * 获取指定版本的缓存存储, 版本更新时替换为新的存储
+   *
+   * @param generation 快照版本
+   * @return 缓存存储, 版本已过期时为null
+   */
+  protected Store current(long generation) {
+    Store result = store.get();
+    while (result.generation < generation) {
+      Store renewed = new Store(generation, segments);
+      result = store.compareAndSet(result, renewed) ? renewed : store.get();
+    }
+    return result.generation == generation ? result : null;
+  }
+
+  /**
+   * 计算分段数量: 不超过{@link #MAX_SEGMENTS}的2的幂, 每个分段至少可容纳{@link #MIN_SEGMENT_ENTRIES}个最长文本的条目,
+   * 最长文本的条目权重按文本与过滤结果等长计算
+   *
+   * @param maxWeight        缓存条目的最大总权重
+   * @param maxContentLength 可缓存文本的最大长度
+   * @return 分段数量
+   */
+  protected static int segments(long maxWeight, int maxContentLength) {
+    long entryWeight = (long) Math.max(maxContentLength, 1) << 1;
+    long count = Math.min(maxWeight / (entryWeight * MIN_SEGMENT_ENTRIES), MAX_SEGMENTS);
+    return count <= 1 ? 1 : Integer.highestOneBit((int) count);
+  }
+
+  /**
+   * 缓存键
+   *
+   * @author Houtaroy
+   */
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  protected static class Key {
+    private final String content;
+    private final char replacement;
+  }
+
+  /**
+   * 单个快照版本的缓存存储, 条目按键的哈希分布到各分段
+   *
+   * @author Houtaroy
+   */
+  protected static class Store {
+    private final long generation;
+    private final Segment[] segments;
+
+    Store(long generation, int segments) {
+      this.generation = generation;
+      this.segments = new Segment[segments];
+      for (int i = 0; i < segments; i++) {
+        this.segments[i] = new Segment();
+      }
+    }
+
+    String get(Key key) {
+      return segment(key).get(key);
+    }
+
+    /**
+     * 写入条目, 分段的总权重超过分段上限时淘汰分段内最久未被访问的条目
+     *
+     * @param key       键
+     * @param value     过滤结果
+     * @param maxWeight 最大总权重
+     * @return 淘汰的条目数量
+     */
+    int put(Key key, String value, long maxWeight) {
+      return segment(key).put(key, value, maxWeight / segments.length);
+    }
+
+    int size() {
+      int result = 0;
+      for (Segment segment : segments) {
+        result += segment.size();
+      }
+      return result;
+    }
+
+    long weight() {
+      long result = 0;
+      for (Segment segment : segments) {
+        result += segment.weight();
+      }
+      return result;
+    }
+
+    private Segment segment(Key key) {
+      int hash = key.hashCode();
+      return segments[(hash ^ (hash >>> Short.SIZE)) & (segments.length - 1)];
+    }
+  }
+
+  /**
+   * 缓存分段, 按访问顺序排列条目
+   *
+   * @author Houtaroy
+   */
+  protected static class Segment {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final Map<Key, String> entries = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+    private long weight;
+
+    synchronized String get(Key key) {
+      return entries.get(key);
+    }
+
+    /**
+     * 写入条目, 总权重超过上限时淘汰最久未被访问的条目
+     *
+     * @param key       键
+     * @param value     过滤结果
+     * @param maxWeight 最大总权重
+     * @return 淘汰的条目数量
+     */
+    synchronized int put(Key key, String value, long maxWeight) {
+      if (entries.putIfAbsent(key, value) != null) {
+        return 0;
+      }
+      weight += weigh(key, value);
+      int result = 0;
+      Iterator<Map.Entry<Key, String>> iterator = entries.entrySet().iterator();
+      while (weight > maxWeight && iterator.hasNext()) {
+        Map.Entry<Key, String> eldest = iterator.next();
+        weight -= weigh(eldest.getKey(), eldest.getValue());
+        iterator.remove();
+        result++;
+      }
+      return result;
+    }
+
+    synchronized int size() {
+      return entries.size();
+    }
+
+    synchronized long weight() {
+      return weight;
+    }
+
+    private static int weigh(Key key, String value) {
+      return key.content.length() + value.length();
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package cn.koala.sensitiveword;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 敏感词变更
+ *
+ * @author Houtaroy
+ */
+@Getter
+@AllArgsConstructor
+public class SensitiveWordChanges {
+  private final long version;
+  private final List<String> added;
+  private final List<String> removed;
+}
@@ -0,0 +1,63 @@
+package cn.koala.sensitiveword;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 敏感词库编译工具
+ * <p>
+ * 将敏感词编译为{@link MappedSensitiveWordMatcher}使用的词库文件, 源文件为.txt时按行读取敏感词(UTF-8),
+ * 否则按ToolGood.Words的词库文件读取:
+ * <pre>
+ * java -cp koala-sensitive-word.jar:toolgood-words.jar cn.koala.sensitiveword.SensitiveWordDictionaryApplication \
+ *   sensitive-words.txt sensitive-words.dic
+ * </pre>
+ *
+ * @author Houtaroy
+ */
+@Slf4j
+public class SensitiveWordDictionaryApplication {
+  private static final String TEXT_SUFFIX = ".txt";
+  private static final int ARGUMENT_COUNT = 2;
+
+  /**
+   * 编译敏感词库
+   *
+   * @param args 源文件与目标文件
+   * @throws Exception 读取或写入失败
+   */
+  public static void main(String[] args) throws Exception {
+    if (args.length != ARGUMENT_COUNT) {
+      throw new IllegalArgumentException("用法: SensitiveWordDictionaryApplication <源文件> <词库文件>");
+    }
+    long start = System.nanoTime();
+    List<String> words = read(args[0]);
+    DefaultSensitiveWordMatcher matcher = DefaultSensitiveWordMatcher.compile(words);
+    MappedSensitiveWordMatcher.write(matcher, Path.of(args[1]));
+    LOGGER.info("编译敏感词库[{}]完成, 敏感词{}个, 状态{}个, 耗时{}ms", args[1], words.size(), matcher.size(),
+      Duration.ofNanos(System.nanoTime() - start).toMillis());
+  }
+
+  /**
+   * 读取敏感词
+   *
+   * @param location 源文件
+   * @return 敏感词列表
+   * @throws Exception 读取失败
+   */
+  protected static List<String> read(String location) throws Exception {
+    if (location.endsWith(TEXT_SUFFIX)) {
+      return Files.readAllLines(Path.of(location), StandardCharsets.UTF_8).stream()
+        .map(String::trim).filter(word -> !word.isEmpty()).collect(Collectors.toList());
+    }
+    KeywordsStringSearch result = new KeywordsStringSearch();
+    result.Load(location);
+    return result.getKeywords();
+  }
+}
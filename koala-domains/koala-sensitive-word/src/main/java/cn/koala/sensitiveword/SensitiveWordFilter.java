@@ -2,12 +2,24 @@ package cn.koala.sensitiveword;
 
 /**
  * 敏感词过滤器
+ * <p>
+ * 除doFilter外的方法默认基于doFilter实现, 与替换字符相同的字符不视为敏感词; {@link AbstractSensitiveWordFilter}基于
+ * {@link SensitiveWordMatcher}直接查找与原地替换, 不创建中间文本
  *
  * @author Houtaroy
  */
 public interface SensitiveWordFilter {
   char DEFAULT_REPLACEMENT = '*';
 
+  /**
+   * 获取过滤器名称, 用于指标标签
+   *
+   * @return 过滤器名称
+   */
+  default String getName() {
+    return getClass().getSimpleName();
+  }
+
   /**
    * 过滤文本敏感词
    *
@@ -26,4 +38,80 @@ public interface SensitiveWordFilter {
    * @return 过滤后的文本
    */
   String doFilter(String content, char replacement);
+
+  /**
+   * 是否包含敏感词
+   *
+   * @param content 文本
+   * @return 是否包含敏感词
+   */
+  default boolean containsAny(CharSequence content) {
+    String text = content.toString();
+    return !text.equals(doFilter(text, DEFAULT_REPLACEMENT));
+  }
+
+  /**
+   * 查找敏感词区间, 按[start0, end0, start1, end1, ...]写入调用方提供的数组
+   * <p>
+   * 区间按起始位置升序排列, 相交或相邻的敏感词合并为同一区间, 区间为左闭右开, 数组写满后停止查找
+   *
+   * @param content 文本
+   * @param ranges  区间数组
+   * @return 写入的区间数量
+   */
+  default int find(CharSequence content, int[] ranges) {
+    String text = content.toString();
+    String filtered = doFilter(text, DEFAULT_REPLACEMENT);
+    int count = 0;
+    int index = 0;
+    while (index < text.length() && (count + 1) << 1 <= ranges.length) {
+      if (text.charAt(index) == filtered.charAt(index)) {
+        index++;
+        continue;
+      }
+      ranges[count << 1] = index;
+      while (index < text.length() && text.charAt(index) != filtered.charAt(index)) {
+        index++;
+      }
+      ranges[(count << 1) + 1] = index;
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * 在字符数组的指定范围内原地替换敏感词
+   *
+   * @param chars       字符数组
+   * @param offset      起始下标
+   * @param length      长度
+   * @param replacement 替换字符
+   * @return 是否替换了敏感词
+   */
+  default boolean mask(char[] chars, int offset, int length, char replacement) {
+    String text = new String(chars, offset, length);
+    String filtered = doFilter(text, replacement);
+    if (text.equals(filtered)) {
+      return false;
+    }
+    filtered.getChars(0, length, chars, offset);
+    return true;
+  }
+
+  /**
+   * 在StringBuilder中原地替换敏感词
+   *
+   * @param content     文本
+   * @param replacement 替换字符
+   * @return 是否替换了敏感词
+   */
+  default boolean mask(StringBuilder content, char replacement) {
+    String text = content.toString();
+    String filtered = doFilter(text, replacement);
+    if (text.equals(filtered)) {
+      return false;
+    }
+    content.replace(0, content.length(), filtered);
+    return true;
+  }
 }
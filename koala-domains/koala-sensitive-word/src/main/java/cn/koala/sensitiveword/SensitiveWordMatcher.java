@@ -0,0 +1,183 @@
+package cn.koala.sensitiveword;
+
+import java.util.Arrays;
+
+/**
+ * 敏感词匹配器
+ * <p>
+ * 以状态机的方式逐字符匹配敏感词, 状态{@link #ROOT}为初始状态
+ * <p>
+ * 除{@link #replace(String, char)}在命中时创建新字符串外, 其余方法均不分配内存
+ *
+ * @author Houtaroy
+ */
+public interface SensitiveWordMatcher {
+  int ROOT = 0;
+
+  /**
+   * 状态转移
+   *
+   * @param state 当前状态
+   * @param c     输入字符
+   * @return 转移后的状态
+   */
+  int next(int state, char c);
+
+  /**
+   * 获取以当前状态结尾的最长敏感词长度
+   *
+   * @param state 当前状态
+   * @return 最长敏感词长度, 无匹配时为0
+   */
+  int matchLength(int state);
+
+  /**
+   * 获取最长敏感词长度
+   *
+   * @return 最长敏感词长度
+   */
+  int maxWordLength();
+
+  /**
+   * 使用指定字符替换文本中的敏感词, 单次扫描完成全部匹配
+   *
+   * @param content     文本
+   * @param replacement 替换字符
+   * @return 替换后的文本, 无敏感词时返回原文本
+   */
+  default String replace(String content, char replacement) {
+    return replace(content, replacement, null);
+  }
+
+  /**
+   * 使用指定字符替换文本中的敏感词, 并累计命中次数与替换字符数
+   *
+   * @param content     文本
+   * @param replacement 替换字符
+   * @param statistics  敏感词过滤统计, 为null时不统计
+   * @return 替换后的文本, 无敏感词时返回原文本
+   */
+  default String replace(String content, char replacement, SensitiveWordStatistics statistics) {
+    if (content == null || content.isEmpty()) {
+      return content;
+    }
+    char[] result = null;
+    int state = ROOT;
+    int matches = 0;
+    int replaced = 0;
+    int end = 0;
+    for (int i = 0; i < content.length(); i++) {
+      state = next(state, content.charAt(i));
+      int length = matchLength(state);
+      if (length > 0) {
+        if (result == null) {
+          result = content.toCharArray();
+        }
+        Arrays.fill(result, i - length + 1, i + 1, replacement);
+        replaced += i + 1 - Math.max(i - length + 1, end);
+        end = i + 1;
+        matches++;
+      }
+    }
+    if (statistics != null) {
+      statistics.record(matches, replaced);
+    }
+    return result == null ? content : new String(result);
+  }
+
+  /**
+   * 是否包含敏感词, 命中第一个敏感词时立即返回
+   *
+   * @param content 文本
+   * @return 是否包含敏感词
+   */
+  default boolean containsAny(CharSequence content) {
+    int state = ROOT;
+    for (int i = 0; i < content.length(); i++) {
+      state = next(state, content.charAt(i));
+      if (matchLength(state) > 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 查找敏感词区间, 按[start0, end0, start1, end1, ...]写入调用方提供的数组
+   * <p>
+   * 相交或相邻的敏感词合并为同一区间, 区间为左闭右开, 数组写满后停止查找
+   *
+   * @param content 文本
+   * @param ranges  区间数组
+   * @return 写入的区间数量
+   */
+  default int find(CharSequence content, int[] ranges) {
+    int count = 0;
+    int state = ROOT;
+    for (int i = 0; i < content.length(); i++) {
+      state = next(state, content.charAt(i));
+      int length = matchLength(state);
+      if (length == 0) {
+        continue;
+      }
+      int start = i - length + 1;
+      while (count > 0 && start <= ranges[(count << 1) - 1]) {
+        start = Math.min(start, ranges[(count - 1) << 1]);
+        count--;
+      }
+      if ((count + 1) << 1 > ranges.length) {
+        return count;
+      }
+      ranges[count << 1] = start;
+      ranges[(count << 1) + 1] = i + 1;
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * 在字符数组的指定范围内原地替换敏感词
+   *
+   * @param chars       字符数组
+   * @param offset      起始下标
+   * @param length      长度
+   * @param replacement 替换字符
+   * @return 命中敏感词的次数
+   */
+  default int mask(char[] chars, int offset, int length, char replacement) {
+    int count = 0;
+    int state = ROOT;
+    for (int i = offset; i < offset + length; i++) {
+      state = next(state, chars[i]);
+      int matched = matchLength(state);
+      if (matched > 0) {
+        Arrays.fill(chars, i - matched + 1, i + 1, replacement);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * 在StringBuilder中原地替换敏感词
+   *
+   * @param content     文本
+   * @param replacement 替换字符
+   * @return 命中敏感词的次数
+   */
+  default int mask(StringBuilder content, char replacement) {
+    int count = 0;
+    int state = ROOT;
+    for (int i = 0; i < content.length(); i++) {
+      state = next(state, content.charAt(i));
+      int matched = matchLength(state);
+      if (matched > 0) {
+        for (int j = i - matched + 1; j <= i; j++) {
+          content.setCharAt(j, replacement);
+        }
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -0,0 +1,28 @@
+package cn.koala.sensitiveword;
+
+/**
+ * 敏感词过滤观察者
+ * <p>
+ * 由过滤链在每个过滤器过滤和刷新后回调, 合并模式下合并后的匹配器名称为{@link SensitiveWordSnapshot#MERGED}
+ *
+ * @author Houtaroy
+ */
+public interface SensitiveWordObserver {
+  /**
+   * 过滤完成
+   *
+   * @param name       过滤器名称
+   * @param length     扫描的字符数
+   * @param statistics 敏感词过滤统计
+   * @param nanos      耗时(纳秒)
+   */
+  void onFilter(String name, int length, SensitiveWordStatistics statistics, long nanos);
+
+  /**
+   * 刷新完成
+   *
+   * @param name  过滤器名称
+   * @param nanos 耗时(纳秒)
+   */
+  void onRefresh(String name, long nanos);
+}
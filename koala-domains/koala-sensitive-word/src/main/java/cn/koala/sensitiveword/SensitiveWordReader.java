@@ -0,0 +1,133 @@
+package cn.koala.sensitiveword;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * 敏感词过滤Reader
+ * <p>
+ * 读取的文本已经过敏感词替换, 匹配状态跨越多次读取保持, 被拆分在两次读取之间的敏感词同样可以被替换
+ * <p>
+ * 只缓冲固定大小的文本, 内存占用与文本长度无关, 不支持mark/reset
+ *
+ * @author Houtaroy
+ */
+public class SensitiveWordReader extends FilterReader {
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+  private static final int EOF = -1;
+
+  private final SensitiveWordMatcher matcher;
+  private final char replacement;
+  private final int retained;
+  private final char[] buffer;
+  private int position;
+  private int limit;
+  private int count;
+  private boolean eof;
+  private int state = SensitiveWordMatcher.ROOT;
+
+  /**
+   * 构造函数
+   *
+   * @param in          上游Reader
+   * @param matcher     敏感词匹配器
+   * @param replacement 替换字符
+   */
+  public SensitiveWordReader(Reader in, SensitiveWordMatcher matcher, char replacement) {
+    super(in);
+    this.matcher = matcher;
+    this.replacement = replacement;
+    this.retained = Math.max(matcher.maxWordLength() - 1, 0);
+    this.buffer = new char[retained + DEFAULT_BUFFER_SIZE];
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (position == limit && !fill()) {
+      return EOF;
+    }
+    return buffer[position++];
+  }
+
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (position == limit && !fill()) {
+      return EOF;
+    }
+    int result = Math.min(len, limit - position);
+    System.arraycopy(buffer, position, cbuf, off, result);
+    position += result;
+    return result;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long result = 0;
+    while (result < n && (position < limit || fill())) {
+      int skipped = (int) Math.min(n - result, limit - position);
+      position += skipped;
+      result += skipped;
+    }
+    return result;
+  }
+
+  @Override
+  public boolean ready() throws IOException {
+    return position < limit || in.ready();
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public void mark(int readAheadLimit) throws IOException {
+    throw new IOException("敏感词过滤Reader不支持mark");
+  }
+
+  @Override
+  public void reset() throws IOException {
+    throw new IOException("敏感词过滤Reader不支持reset");
+  }
+
+  /**
+   * 从上游读取并替换敏感词, 直到有可以释放的字符或读取结束
+   *
+   * @return 是否有可以释放的字符
+   * @throws IOException 读取异常
+   */
+  private boolean fill() throws IOException {
+    System.arraycopy(buffer, position, buffer, 0, count - position);
+    count -= position;
+    position = 0;
+    limit = 0;
+    while (limit == 0 && !eof) {
+      int read = in.read(buffer, count, buffer.length - count);
+      if (read < 0) {
+        eof = true;
+        limit = count;
+      } else {
+        scan(count, count + read);
+        count += read;
+        limit = Math.max(count - retained, 0);
+      }
+    }
+    return limit > 0;
+  }
+
+  private void scan(int from, int to) {
+    for (int i = from; i < to; i++) {
+      state = matcher.next(state, buffer[i]);
+      int length = matcher.matchLength(state);
+      if (length > 0) {
+        Arrays.fill(buffer, i - length + 1, i + 1, replacement);
+      }
+    }
+  }
+}
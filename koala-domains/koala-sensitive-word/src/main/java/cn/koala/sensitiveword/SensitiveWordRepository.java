@@ -1,9 +1,12 @@
 package cn.koala.sensitiveword;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * 敏感词存储库类
+ * <p>
+ * 如需增量刷新, 请实现{@link #findLatestVersion()}和{@link #findChangedSince(long)}
  *
  * @author Houtaroy
  */
@@ -14,4 +17,23 @@ public interface SensitiveWordRepository {
    * @return 敏感词列表
    */
   List<String> findAll();
+
+  /**
+   * 查询最新版本号, 应在{@link #findAll()}之前调用, 保证之后的变更不会遗漏
+   *
+   * @return 最新版本号
+   */
+  default long findLatestVersion() {
+    return 0L;
+  }
+
+  /**
+   * 查询指定版本之后的敏感词变更
+   *
+   * @param version 版本号
+   * @return 敏感词变更, 不支持增量查询时为空
+   */
+  default Optional<SensitiveWordChanges> findChangedSince(long version) {
+    return Optional.empty();
+  }
 }
@@ -0,0 +1,272 @@
+package cn.koala.sensitiveword;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 敏感词过滤链快照
+ * <p>
+ * 快照创建后不可变, 刷新时构建新的快照并整体替换, 读取方始终看到完整的快照
+ *
+ * @author Houtaroy
+ */
+@Getter
+@AllArgsConstructor
+public class SensitiveWordSnapshot {
+  public static final String MERGED = "merged";
+  public static final int MAX_BUFFERED_LENGTH = 65_536;
+  private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+  private final SensitiveWordMatcher matcher;
+  private final List<SensitiveWordFilter> filters;
+  private final long generation;
+  private final Duration refreshDuration;
+  private final ParallelSensitiveWordReplacer replacer;
+
+  /**
+   * 构造函数
+   *
+   * @param matcher         合并后的敏感词匹配器, 未开启合并模式时为null
+   * @param filters         敏感词过滤器列表
+   * @param generation      快照版本
+   * @param refreshDuration 刷新耗时
+   */
+  public SensitiveWordSnapshot(SensitiveWordMatcher matcher, List<SensitiveWordFilter> filters, long generation,
+                               Duration refreshDuration) {
+    this(matcher, filters, generation, refreshDuration, null);
+  }
+
+  /**
+   * 过滤文本敏感词, 先使用合并后的匹配器, 再依次使用其余过滤器
+   *
+   * @param content     文本
+   * @param replacement 替换字符
+   * @return 过滤后的文本
+   */
+  public String doFilter(String content, char replacement) {
+    return doFilter(content, replacement, null);
+  }
+
+  /**
+   * 过滤文本敏感词, 每个过滤器完成后回调观察者
+   *
+   * @param content     文本
+   * @param replacement 替换字符
+   * @param observer    敏感词过滤观察者, 为null时不回调
+   * @return 过滤后的文本
+   */
+  public String doFilter(String content, char replacement, SensitiveWordObserver observer) {
+    String result = matcher == null ? content : replace(MERGED, matcher, content, replacement, observer);
+    for (SensitiveWordFilter filter : filters) {
+      result = doFilter(filter, result, replacement, observer);
+    }
+    return result;
+  }
+
+  /**
+   * 是否包含敏感词
+   *
+   * @param content 文本
+   * @return 是否包含敏感词
+   */
+  public boolean containsAny(CharSequence content) {
+    if (matcher != null && matcher.containsAny(content)) {
+      return true;
+    }
+    for (SensitiveWordFilter filter : filters) {
+      if (filter.containsAny(content)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 查找敏感词区间, 合并匹配器与各过滤器在原文本中找到的区间, 相交或相邻的区间合并为同一区间
+   * <p>
+   * 多个过滤器的区间在线程本地缓冲中合并, 文本长度不小于{@link #MAX_BUFFERED_LENGTH}或嵌套查找时使用临时缓冲
+   *
+   * @param content 文本
+   * @param ranges  区间数组
+   * @return 写入的区间数量
+   */
+  public int find(CharSequence content, int[] ranges) {
+    if (filters.isEmpty()) {
+      return matcher == null ? 0 : matcher.find(content, ranges);
+    }
+    if (matcher == null && filters.size() == 1) {
+      return filters.get(0).find(content, ranges);
+    }
+    Buffers cached = BUFFERS.get();
+    Buffers buffers = content.length() < MAX_BUFFERED_LENGTH && !cached.busy ? cached : new Buffers();
+    buffers.busy = true;
+    try {
+      int[] buffer = buffers.buffer(content.length() + 1);
+      int size = matcher == null ? 0 : buffers.collect(0, buffer, matcher.find(content, buffer));
+      for (SensitiveWordFilter filter : filters) {
+        size = buffers.collect(size, buffer, filter.find(content, buffer));
+      }
+      Arrays.sort(buffers.found, 0, size);
+      return union(buffers.found, size, ranges);
+    } finally {
+      buffers.busy = false;
+    }
+  }
+
+  /**
+   * 按起始位置合并已排序的区间, 写入区间数组
+   *
+   * @param found  已排序的区间, 高32位为起始位置, 低32位为结束位置
+   * @param size   区间数量
+   * @param ranges 区间数组
+   * @return 写入的区间数量
+   */
+  private static int union(long[] found, int size, int[] ranges) {
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      int start = (int) (found[i] >>> Integer.SIZE);
+      int end = (int) found[i];
+      if (count > 0 && start <= ranges[(count << 1) - 1]) {
+        ranges[(count << 1) - 1] = Math.max(end, ranges[(count << 1) - 1]);
+        continue;
+      }
+      if ((count + 1) << 1 > ranges.length) {
+        break;
+      }
+      ranges[count << 1] = start;
+      ranges[(count << 1) + 1] = end;
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * 在字符数组的指定范围内原地替换敏感词
+   *
+   * @param chars       字符数组
+   * @param offset      起始下标
+   * @param length      长度
+   * @param replacement 替换字符
+   * @return 是否替换了敏感词
+   */
+  public boolean mask(char[] chars, int offset, int length, char replacement) {
+    boolean result = matcher != null && matcher.mask(chars, offset, length, replacement) > 0;
+    for (SensitiveWordFilter filter : filters) {
+      result |= filter.mask(chars, offset, length, replacement);
+    }
+    return result;
+  }
+
+  /**
+   * 在StringBuilder中原地替换敏感词
+   *
+   * @param content     文本
+   * @param replacement 替换字符
+   * @return 是否替换了敏感词
+   */
+  public boolean mask(StringBuilder content, char replacement) {
+    boolean result = matcher != null && matcher.mask(content, replacement) > 0;
+    for (SensitiveWordFilter filter : filters) {
+      result |= filter.mask(content, replacement);
+    }
+    return result;
+  }
+
+  /**
+   * 使用过滤器过滤文本敏感词, 过滤器基于匹配器实现时直接使用匹配器替换
+   *
+   * @param filter      敏感词过滤器
+   * @param content     文本
+   * @param replacement 替换字符
+   * @param observer    敏感词过滤观察者, 为null时不回调
+   * @return 过滤后的文本
+   */
+  protected String doFilter(SensitiveWordFilter filter, String content, char replacement,
+                            SensitiveWordObserver observer) {
+    SensitiveWordMatcher current = filter instanceof AbstractSensitiveWordFilter
+      ? ((AbstractSensitiveWordFilter) filter).getMatcher() : null;
+    if (current != null) {
+      return replace(filter.getName(), current, content, replacement, observer);
+    }
+    long start = observer == null ? 0L : System.nanoTime();
+    String result = filter.doFilter(content, replacement);
+    if (observer != null) {
+      observer.onFilter(filter.getName(), length(content), SensitiveWordStatistics.diff(content, result),
+        System.nanoTime() - start);
+    }
+    return result;
+  }
+
+  /**
+   * 使用匹配器替换文本敏感词, 配置并行替换器时由替换器决定是否并行
+   *
+   * @param name        过滤器名称
+   * @param current     敏感词匹配器
+   * @param content     文本
+   * @param replacement 替换字符
+   * @param observer    敏感词过滤观察者, 为null时不回调
+   * @return 替换后的文本
+   */
+  protected String replace(String name, SensitiveWordMatcher current, String content, char replacement,
+                           SensitiveWordObserver observer) {
+    if (observer == null) {
+      return replacer == null ? current.replace(content, replacement) : replacer.replace(current, content, replacement);
+    }
+    SensitiveWordStatistics statistics = new SensitiveWordStatistics();
+    long start = System.nanoTime();
+    String result = replacer == null ? current.replace(content, replacement, statistics)
+      : replacer.replace(current, content, replacement, statistics);
+    observer.onFilter(name, length(content), statistics, System.nanoTime() - start);
+    return result;
+  }
+
+  private static int length(String content) {
+    return content == null ? 0 : content.length();
+  }
+
+  /**
+   * 查找敏感词区间的缓冲, 只增不减
+   *
+   * @author Houtaroy
+   */
+  private static class Buffers {
+    private boolean busy;
+    private int[] ranges = new int[0];
+    private long[] found = new long[0];
+
+    /**
+     * 获取区间数组
+     *
+     * @param length 最小长度
+     * @return 区间数组
+     */
+    int[] buffer(int length) {
+      if (ranges.length < length) {
+        ranges = new int[length];
+      }
+      return ranges;
+    }
+
+    /**
+     * 追加找到的区间, 每个区间编码为高32位起始位置与低32位结束位置
+     *
+     * @param size   已找到的区间数量
+     * @param buffer 区间数组
+     * @param count  区间数量
+     * @return 追加后的区间数量
+     */
+    int collect(int size, int[] buffer, int count) {
+      if (found.length < size + count) {
+        found = Arrays.copyOf(found, Math.max(size + count, found.length << 1));
+      }
+      for (int i = 0; i < count; i++) {
+        found[size + i] = (long) buffer[i << 1] << Integer.SIZE | buffer[(i << 1) + 1];
+      }
+      return size + count;
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package cn.koala.sensitiveword;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 敏感词来源
+ * <p>
+ * 实现此接口的敏感词过滤器可在过滤链中合并为同一个匹配器; 实现{@link #getLatestVersion()}和{@link #getChangedSince(long)}后,
+ * 过滤链刷新时将增量变更应用到合并后的匹配器
+ *
+ * @author Houtaroy
+ */
+public interface SensitiveWordSource {
+  /**
+   * 获取敏感词列表
+   *
+   * @return 敏感词列表
+   */
+  List<String> getSensitiveWords();
+
+  /**
+   * 是否合并到过滤链的匹配器, 不合并的敏感词来源在合并模式下作为独立的过滤器执行
+   *
+   * @return 是否合并, 默认合并
+   */
+  default boolean isMergeable() {
+    return true;
+  }
+
+  /**
+   * 获取最新版本号, 应在{@link #getSensitiveWords()}之前调用, 保证之后的变更不会遗漏
+   *
+   * @return 最新版本号
+   */
+  default long getLatestVersion() {
+    return 0L;
+  }
+
+  /**
+   * 获取指定版本之后的敏感词变更
+   *
+   * @param version 版本号
+   * @return 敏感词变更, 不支持增量查询时为空
+   */
+  default Optional<SensitiveWordChanges> getChangedSince(long version) {
+    return Optional.empty();
+  }
+}
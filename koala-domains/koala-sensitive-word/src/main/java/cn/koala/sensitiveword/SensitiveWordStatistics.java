@@ -0,0 +1,52 @@
+package cn.koala.sensitiveword;
+
+import lombok.Getter;
+
+/**
+ * 敏感词过滤统计
+ * <p>
+ * 命中次数为以各字符结尾的最长敏感词数量, 替换字符数为被替换的字符总数, 重叠的敏感词不重复计算
+ *
+ * @author Houtaroy
+ */
+@Getter
+public class SensitiveWordStatistics {
+  private int matches;
+  private int replacements;
+
+  /**
+   * 比较过滤前后的文本生成统计, 用于不基于匹配器实现的过滤器, 连续被替换的字符计为一次命中
+   *
+   * @param content  过滤前的文本
+   * @param filtered 过滤后的文本
+   * @return 敏感词过滤统计
+   */
+  public static SensitiveWordStatistics diff(String content, String filtered) {
+    SensitiveWordStatistics result = new SensitiveWordStatistics();
+    if (content == null || filtered == null || content.equals(filtered)) {
+      return result;
+    }
+    int length = Math.min(content.length(), filtered.length());
+    boolean replacing = false;
+    for (int i = 0; i < length; i++) {
+      boolean replaced = content.charAt(i) != filtered.charAt(i);
+      if (replaced) {
+        result.replacements++;
+        result.matches += replacing ? 0 : 1;
+      }
+      replacing = replaced;
+    }
+    return result;
+  }
+
+  /**
+   * 累计统计
+   *
+   * @param matches      命中次数
+   * @param replacements 替换字符数
+   */
+  public void record(int matches, int replacements) {
+    this.matches += matches;
+    this.replacements += replacements;
+  }
+}
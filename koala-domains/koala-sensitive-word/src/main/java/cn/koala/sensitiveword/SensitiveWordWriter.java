@@ -0,0 +1,84 @@
+package cn.koala.sensitiveword;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * 敏感词过滤Writer
+ * <p>
+ * 写入的文本经过敏感词替换后写入下游, 匹配状态跨越多次写入保持, 被拆分在两次写入之间的敏感词同样可以被替换
+ * <p>
+ * 为替换之后才完整出现的敏感词, 最后(最长敏感词长度-1)个字符暂不写入下游, {@link #flush()}不会写出这部分字符,
+ * {@link #close()}时全部写出; 内存占用与文本长度无关
+ *
+ * @author Houtaroy
+ */
+public class SensitiveWordWriter extends FilterWriter {
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private final SensitiveWordMatcher matcher;
+  private final char replacement;
+  private final int retained;
+  private final char[] buffer;
+  private int count;
+  private int state = SensitiveWordMatcher.ROOT;
+
+  /**
+   * 构造函数
+   *
+   * @param out         下游Writer
+   * @param matcher     敏感词匹配器
+   * @param replacement 替换字符
+   */
+  public SensitiveWordWriter(Writer out, SensitiveWordMatcher matcher, char replacement) {
+    super(out);
+    this.matcher = matcher;
+    this.replacement = replacement;
+    this.retained = Math.max(matcher.maxWordLength() - 1, 0);
+    this.buffer = new char[retained + DEFAULT_BUFFER_SIZE];
+  }
+
+  @Override
+  public void write(int c) throws IOException {
+    accept((char) c);
+  }
+
+  @Override
+  public void write(char[] cbuf, int off, int len) throws IOException {
+    for (int i = off; i < off + len; i++) {
+      accept(cbuf[i]);
+    }
+  }
+
+  @Override
+  public void write(String str, int off, int len) throws IOException {
+    for (int i = off; i < off + len; i++) {
+      accept(str.charAt(i));
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (count > 0) {
+      out.write(buffer, 0, count);
+      count = 0;
+    }
+    super.close();
+  }
+
+  private void accept(char c) throws IOException {
+    if (count == buffer.length) {
+      out.write(buffer, 0, count - retained);
+      System.arraycopy(buffer, count - retained, buffer, 0, retained);
+      count = retained;
+    }
+    buffer[count++] = c;
+    state = matcher.next(state, c);
+    int length = matcher.matchLength(state);
+    if (length > 0) {
+      Arrays.fill(buffer, count - length, count, replacement);
+    }
+  }
+}
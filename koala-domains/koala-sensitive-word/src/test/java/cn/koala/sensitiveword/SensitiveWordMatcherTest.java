@@ -0,0 +1,443 @@
+package cn.koala.sensitiveword;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import toolgood.words.StringSearchEx2;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 敏感词匹配器单元测试
+ *
+ * @author Houtaroy
+ */
+public class SensitiveWordMatcherTest {
+  private static final long CACHE_MAX_WEIGHT = 10;
+  private static final int CACHE_MAX_CONTENT_LENGTH = 3;
+  private static final int CACHE_HITS = 3;
+  private static final int CACHE_SIZE = 2;
+  private static final long TIMEOUT_SECONDS = 10;
+
+  /**
+   * 简单替换
+   */
+  @Test
+  void replace() {
+    SensitiveWordMatcher matcher = DefaultSensitiveWordMatcher.compile(List.of("菜鸡"));
+    Assertions.assertEquals(matcher.replace("单词[菜鸡]应该被过滤哦", '*'), "单词[**]应该被过滤哦");
+  }
+
+  /**
+   * 无敏感词时返回原文本
+   */
+  @Test
+  void noMatch() {
+    SensitiveWordMatcher matcher = DefaultSensitiveWordMatcher.compile(List.of("菜鸡"));
+    String content = "没有敏感词";
+    Assertions.assertSame(matcher.replace(content, '*'), content);
+  }
+
+  /**
+   * 重叠与包含的敏感词
+   */
+  @Test
+  void overlap() {
+    SensitiveWordMatcher matcher = DefaultSensitiveWordMatcher.compile(Arrays.asList("bc", "abcd", "de", "e"));
+    Assertions.assertEquals(matcher.replace("xabcdex", '*'), "x*****x");
+    Assertions.assertEquals(matcher.replace("xbcx", '#'), "x##x");
+    Assertions.assertEquals(matcher.replace("abce", '*'), "a***");
+  }
+
+  /**
+   * 多个词库合并后单次扫描
+   */
+  @Test
+  void merged() {
+    List<SensitiveWordFilter> filters = Arrays.asList(
+      new DefaultRefreshableSensitiveWordFilter(() -> List.of("ab")),
+      new DefaultRefreshableSensitiveWordFilter(() -> List.of("bc"))
+    );
+    RefreshableSensitiveWordFilterChain chain = new DefaultRefreshableSensitiveWordFilterChain(filters, true);
+    Assertions.assertEquals(chain.doFilter("abc"), "***");
+  }
+
+  /**
+   * 合并模式下刷新将各来源的增量变更应用到合并后的匹配器, 多个来源共有的敏感词全部删除后才删除
+   */
+  @Test
+  void mergedChanges() {
+    VersionedRepository first = new VersionedRepository(List.of("ab", "cd"));
+    VersionedRepository second = new VersionedRepository(List.of("cd"));
+    DefaultRefreshableSensitiveWordFilter filter = new DefaultRefreshableSensitiveWordFilter(first);
+    DefaultRefreshableSensitiveWordFilterChain chain = new DefaultRefreshableSensitiveWordFilterChain(
+      List.of(filter, new DefaultRefreshableSensitiveWordFilter(second)), true);
+    Assertions.assertNull(filter.matcher);
+    first.change(List.of("ef"), List.of("cd"));
+    chain.refresh();
+    Assertions.assertEquals(chain.doFilter("abcdef"), "******");
+    second.change(List.of(), List.of("cd"));
+    chain.refresh();
+    Assertions.assertEquals(chain.doFilter("abcdef"), "**cd**");
+    first.change(List.of("cd"), List.of("ab"));
+    chain.refresh();
+    Assertions.assertEquals(chain.doFilter("abcdef"), "ab****");
+    Assertions.assertEquals(first.loads + second.loads, 2);
+    Assertions.assertNull(filter.matcher);
+  }
+
+  /**
+   * 增量应用敏感词变更
+   */
+  @Test
+  void apply() {
+    DefaultSensitiveWordMatcher matcher = DefaultSensitiveWordMatcher.compile(Arrays.asList("abc", "bc"));
+    DefaultSensitiveWordMatcher changed = matcher.apply(Arrays.asList("ab", "cd"), List.of("bc"));
+    Assertions.assertEquals(matcher.replace("xbcdx", '*'), "x**dx");
+    Assertions.assertEquals(changed.replace("xbcdx", '*'), "xb**x");
+    Assertions.assertEquals(changed.replace("xabx", '*'), "x**x");
+    Assertions.assertEquals(changed.replace("abcd", '*'), "****");
+  }
+
+  /**
+   * 删除敏感词后回收不再通向敏感词的状态
+   */
+  @Test
+  void compact() {
+    DefaultSensitiveWordMatcher matcher = DefaultSensitiveWordMatcher.compile(Arrays.asList("abcdef", "xy", "by"));
+    DefaultSensitiveWordMatcher changed = matcher.apply(List.of(), List.of("abcdef"));
+    Assertions.assertEquals(changed.size(), 5);
+    Assertions.assertEquals(changed.replace("abcdefxyby", '*'), "abcdef****");
+    Assertions.assertSame(changed.compact(), changed);
+    DefaultSensitiveWordMatcher empty = changed.apply(List.of(), Arrays.asList("xy", "by"));
+    Assertions.assertEquals(empty.size(), 1);
+    Assertions.assertEquals(empty.apply(List.of("ab"), List.of()).replace("xaby", '*'), "x**y");
+  }
+
+  /**
+   * 只设置已废弃的ToolGood搜索实例的过滤器继续可用
+   */
+  @Test
+  @SuppressWarnings("deprecation")
+  void legacy() {
+    AbstractSensitiveWordFilter filter = new AbstractSensitiveWordFilter() {
+      @Override
+      protected void init() {
+        StringSearchEx2 search = new StringSearchEx2();
+        search.SetKeywords(List.of("ab", "cd"));
+        instance = search;
+      }
+    };
+    filter.init();
+    Assertions.assertSame(filter.getInstance(), filter.instance);
+    Assertions.assertEquals(filter.doFilter("xabcdx", '*'), "x****x");
+    Assertions.assertTrue(filter.containsAny("xcd"));
+    StringBuilder content = new StringBuilder("abxcd");
+    Assertions.assertTrue(filter.mask(content, '*'));
+    Assertions.assertEquals(content.toString(), "**x**");
+    int[] ranges = new int[4];
+    Assertions.assertEquals(filter.find("abxcd", ranges), 2);
+    char[] chars = "xcdx".toCharArray();
+    Assertions.assertTrue(filter.mask(chars, 1, 2, '*'));
+    Assertions.assertEquals(new String(chars), "x**x");
+    StringSearchEx2 changed = new StringSearchEx2();
+    changed.SetKeywords(List.of("ef"));
+    filter.instance = changed;
+    Assertions.assertFalse(filter.containsAny("abcd"));
+    Assertions.assertEquals(filter.doFilter("xefx", '*'), "x**x");
+  }
+
+  /**
+   * 不分配内存的查找与原地替换, 过滤链合并各过滤器找到的区间
+   */
+  @Test
+  void scan() {
+    SensitiveWordMatcher matcher = DefaultSensitiveWordMatcher.compile(Arrays.asList("bc", "abcd", "e"));
+    Assertions.assertTrue(matcher.containsAny(new StringBuilder("xabcx")));
+    Assertions.assertFalse(matcher.containsAny("xyz"));
+    int[] ranges = new int[4];
+    Assertions.assertEquals(matcher.find("xabcdxex", ranges), 2);
+    Assertions.assertArrayEquals(ranges, new int[]{1, 5, 6, 7});
+    char[] chars = "[xabcdx]".toCharArray();
+    Assertions.assertEquals(matcher.mask(chars, 1, chars.length - 2, '*'), 2);
+    Assertions.assertEquals(new String(chars), "[x****x]");
+    StringBuilder builder = new StringBuilder("ebc");
+    matcher.mask(builder, '#');
+    Assertions.assertEquals(builder.toString(), "###");
+    DefaultRefreshableSensitiveWordFilterChain chain = new DefaultRefreshableSensitiveWordFilterChain(List.of(
+      new DefaultRefreshableSensitiveWordFilter(() -> List.of("ab")),
+      new DefaultRefreshableSensitiveWordFilter(() -> List.of("cd", "\uFFFF"))));
+    Assertions.assertTrue(chain.containsAny("xcdx"));
+    Assertions.assertFalse(chain.containsAny("xyz"));
+    Assertions.assertEquals(chain.find("abcdxab", ranges), 2);
+    Assertions.assertArrayEquals(ranges, new int[]{0, 4, 5, 7});
+    Assertions.assertEquals(chain.find("abcdxab", new int[2]), 1);
+  }
+
+  /**
+   * 只实现doFilter的过滤器由默认方法查找, 过滤链复用缓冲合并区间, 长文本使用临时缓冲
+   */
+  @Test
+  void defaults() {
+    SensitiveWordFilter filter = (content, replacement) -> content.replace("ab", "**");
+    Assertions.assertTrue(filter.containsAny("xabx"));
+    Assertions.assertFalse(filter.containsAny("xbax"));
+    int[] ranges = new int[4];
+    Assertions.assertEquals(filter.find("abxabab", ranges), 2);
+    Assertions.assertArrayEquals(ranges, new int[]{0, 2, 3, 7});
+    Assertions.assertEquals(filter.find("abxab", new int[2]), 1);
+    DefaultRefreshableSensitiveWordFilterChain chain = new DefaultRefreshableSensitiveWordFilterChain(List.of(
+      filter, new DefaultRefreshableSensitiveWordFilter(() -> List.of("cd"))));
+    for (int i = 0; i < 2; i++) {
+      Assertions.assertEquals(chain.find("xabcdxcd", ranges), 2);
+      Assertions.assertArrayEquals(ranges, new int[]{1, 5, 6, 8});
+    }
+    String text = "x".repeat(SensitiveWordSnapshot.MAX_BUFFERED_LENGTH) + "cd";
+    Assertions.assertEquals(chain.find(text, ranges), 1);
+    Assertions.assertEquals(ranges[1], text.length());
+  }
+
+  /**
+   * 流式过滤, 敏感词被拆分在两次写入/读取之间
+   *
+   * @throws IOException IO异常
+   */
+  @Test
+  void stream() throws IOException {
+    SensitiveWordMatcher matcher = DefaultSensitiveWordMatcher.compile(List.of("菜鸡"));
+    StringWriter result = new StringWriter();
+    try (Writer writer = new SensitiveWordWriter(result, matcher, '*')) {
+      writer.write("单词[菜");
+      writer.write("鸡]应该被过滤哦");
+    }
+    Assertions.assertEquals(result.toString(), "单词[**]应该被过滤哦");
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < SensitiveWordReader.DEFAULT_BUFFER_SIZE; i++) {
+      content.append('x');
+    }
+    content.append("菜鸡");
+    try (Reader reader = new SensitiveWordReader(new StringReader(content.toString()), matcher, '*')) {
+      char[] buffer = new char[content.length() + 1];
+      int length = 0;
+      for (int read = 0; read >= 0; read = reader.read(buffer, length, buffer.length - length)) {
+        length += read;
+      }
+      Assertions.assertEquals(new String(buffer, length - 2, 2), "**");
+    }
+  }
+
+  /**
+   * 缓存过滤结果, 刷新后失效, 总权重超出上限时淘汰最久未被访问的结果
+   */
+  @Test
+  void cache() {
+    List<String> words = new ArrayList<>(List.of("菜鸡"));
+    SensitiveWordCache cache = new SensitiveWordCache(CACHE_MAX_WEIGHT, CACHE_MAX_CONTENT_LENGTH);
+    DefaultRefreshableSensitiveWordFilterChain chain = new DefaultRefreshableSensitiveWordFilterChain(
+      List.of(new DefaultRefreshableSensitiveWordFilter(() -> words)), false, cache);
+    Assertions.assertEquals(chain.doFilter("菜鸡们"), "**们");
+    Assertions.assertEquals(chain.doFilter("菜鸡们"), "**们");
+    Assertions.assertEquals(cache.getHits(), 1);
+    Assertions.assertEquals(cache.getMisses(), 1);
+    words.add("们");
+    chain.refresh();
+    Assertions.assertEquals(chain.doFilter("菜鸡们"), "***");
+    Assertions.assertEquals(chain.doFilter("菜鸡"), "**");
+    Assertions.assertEquals(cache.weight(), CACHE_MAX_WEIGHT);
+    Assertions.assertEquals(chain.doFilter("菜鸡们"), "***");
+    Assertions.assertEquals(chain.doFilter("鸡们"), "鸡*");
+    Assertions.assertEquals(cache.getEvictions(), 1);
+    Assertions.assertEquals(chain.doFilter("菜鸡们"), "***");
+    Assertions.assertEquals(cache.getHits(), CACHE_HITS);
+    Assertions.assertEquals(chain.doFilter("菜鸡菜鸡"), "****");
+    Assertions.assertEquals(cache.size(), CACHE_SIZE);
+    Assertions.assertEquals(cache.getSegments(), 1);
+    SensitiveWordCache segmented = new SensitiveWordCache();
+    Assertions.assertEquals(segmented.getSegments(), SensitiveWordCache.MAX_SEGMENTS);
+    for (int i = 0; i < SensitiveWordCache.DEFAULT_MAX_WEIGHT; i++) {
+      String content = String.valueOf(i);
+      segmented.put(0L, content, '*', content);
+    }
+    Assertions.assertTrue(segmented.weight() <= SensitiveWordCache.DEFAULT_MAX_WEIGHT);
+    Assertions.assertTrue(segmented.getEvictions() > 0);
+    Assertions.assertEquals(segmented.get(0L, "1048575", '*'), "1048575");
+  }
+
+  /**
+   * 刷新创建新的过滤器实例, 旧快照保持不变; 刷新进行中的请求合并为下一次刷新, 结果在包含该请求的刷新完成后才完成
+   *
+   * @throws Exception 异常
+   */
+  @Test
+  void refresh() throws Exception {
+    List<String> words = new CopyOnWriteArrayList<>(List.of("菜鸡"));
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch released = new CountDownLatch(1);
+    AtomicBoolean blocking = new AtomicBoolean();
+    DefaultRefreshableSensitiveWordFilterChain chain = new DefaultRefreshableSensitiveWordFilterChain(
+      List.of(new DefaultRefreshableSensitiveWordFilter(() -> {
+        if (blocking.compareAndSet(true, false)) {
+          entered.countDown();
+          await(released);
+        }
+        return List.copyOf(words);
+      })));
+    SensitiveWordSnapshot before = chain.getSnapshot();
+    blocking.set(true);
+    CompletableFuture<Void> first = chain.refreshAsync(command -> new Thread(command).start());
+    Assertions.assertTrue(entered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    words.add("们");
+    CompletableFuture<Void> second = chain.refreshAsync(command -> Assertions.fail("刷新进行中时不应启动新的刷新"));
+    Assertions.assertNotSame(first, second);
+    released.countDown();
+    second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    Assertions.assertTrue(first.isDone());
+    Assertions.assertEquals(chain.doFilter("菜鸡们"), "***");
+    Assertions.assertEquals(chain.getSnapshot().getGeneration(), 2);
+    Assertions.assertEquals(before.doFilter("菜鸡们", SensitiveWordFilter.DEFAULT_REPLACEMENT), "**们");
+    Assertions.assertNotSame(before.getFilters().get(0), chain.getFilters().get(0));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      Assertions.assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * 并行替换与单线程替换结果一致
+   */
+  @Test
+  void parallel() {
+    SensitiveWordMatcher matcher = DefaultSensitiveWordMatcher.compile(Arrays.asList("ab", "abcab", "ca", "bbb"));
+    ParallelSensitiveWordReplacer replacer = new ParallelSensitiveWordReplacer(16, 3);
+    Random random = new Random(0);
+    for (int i = 0; i < 100; i++) {
+      StringBuilder content = new StringBuilder();
+      for (int j = random.nextInt(200); j > 0; j--) {
+        content.append((char) ('a' + random.nextInt(4)));
+      }
+      String text = content.toString();
+      Assertions.assertEquals(replacer.replace(matcher, text, '*'), matcher.replace(text, '*'));
+    }
+  }
+
+  /**
+   * 预编译词库文件以内存映射方式加载, 合并模式下不合并到过滤链的匹配器
+   *
+   * @throws IOException IO异常
+   */
+  @Test
+  void mapped() throws IOException {
+    List<String> words = Arrays.asList("bc", "abcd", "de", "e", "菜鸡");
+    Path path = Files.createTempFile("sensitive-words", ".dic");
+    try {
+      MappedSensitiveWordMatcher.write(DefaultSensitiveWordMatcher.compile(words), path);
+      FileSensitiveWordFilter filter = new FileSensitiveWordFilter(path.toString());
+      Assertions.assertTrue(filter.getMatcher() instanceof MappedSensitiveWordMatcher);
+      Assertions.assertEquals(filter.doFilter("xabcdex菜鸡"), "x*****x**");
+      Assertions.assertEquals(filter.getSensitiveWords().size(), words.size());
+      Assertions.assertTrue(filter.getSensitiveWords().containsAll(words));
+      DefaultRefreshableSensitiveWordFilterChain chain = new DefaultRefreshableSensitiveWordFilterChain(
+        Arrays.asList(filter, new DefaultRefreshableSensitiveWordFilter(() -> List.of("xy"))), true);
+      Assertions.assertEquals(chain.getSnapshot().getFilters(), List.of(filter));
+      Assertions.assertEquals(chain.doFilter("xyabcd菜鸡"), "********");
+      chain.refresh();
+      Assertions.assertEquals(chain.getSnapshot().getFilters(), List.of(filter));
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  /**
+   * 观察者按过滤器统计命中次数与替换字符数
+   */
+  @Test
+  void observe() {
+    SensitiveWordStatistics statistics = new SensitiveWordStatistics();
+    SensitiveWordMatcher matcher = DefaultSensitiveWordMatcher.compile(Arrays.asList("bc", "abcd", "de", "e"));
+    Assertions.assertEquals(matcher.replace("xbcxabcx", '*', statistics), "x**xa**x");
+    Assertions.assertEquals(statistics.getMatches(), 2);
+    Assertions.assertEquals(statistics.getReplacements(), 4);
+    List<String> names = new ArrayList<>();
+    DefaultRefreshableSensitiveWordFilterChain chain = new DefaultRefreshableSensitiveWordFilterChain(
+      List.of(new DefaultRefreshableSensitiveWordFilter(() -> List.of("菜鸡"))));
+    chain.setObserver(new SensitiveWordObserver() {
+      @Override
+      public void onFilter(String name, int length, SensitiveWordStatistics statistics, long nanos) {
+        Assertions.assertEquals(length, 4);
+        Assertions.assertEquals(statistics.getMatches(), 1);
+        Assertions.assertEquals(statistics.getReplacements(), 2);
+        names.add(name);
+      }
+
+      @Override
+      public void onRefresh(String name, long nanos) {
+        names.add(name);
+      }
+    });
+    Assertions.assertEquals(chain.doFilter("菜鸡们好"), "**们好");
+    chain.refresh();
+    String name = DefaultRefreshableSensitiveWordFilter.class.getSimpleName();
+    Assertions.assertEquals(names, List.of(name, name));
+  }
+
+  /**
+   * 支持增量查询的内存敏感词存储库, 只保留最近一次变更
+   *
+   * @author Houtaroy
+   */
+  private static class VersionedRepository implements SensitiveWordRepository {
+    private final List<String> words;
+    private SensitiveWordChanges changes;
+    private long version;
+    private int loads;
+
+    VersionedRepository(List<String> words) {
+      this.words = new ArrayList<>(words);
+    }
+
+    void change(List<String> added, List<String> removed) {
+      words.removeAll(removed);
+      words.addAll(added);
+      changes = new SensitiveWordChanges(++version, added, removed);
+    }
+
+    @Override
+    public List<String> findAll() {
+      loads++;
+      return List.copyOf(words);
+    }
+
+    @Override
+    public long findLatestVersion() {
+      return version;
+    }
+
+    @Override
+    public Optional<SensitiveWordChanges> findChangedSince(long since) {
+      if (since == version) {
+        return Optional.of(new SensitiveWordChanges(version, List.of(), List.of()));
+      }
+      return changes != null && since == version - 1 ? Optional.of(changes) : Optional.empty();
+    }
+  }
+}